@@ -0,0 +1,47 @@
+// BenchmarkImages.java - Image sizes and keypoint inputs shared by the kernel benchmarks
+package com.example.spineanalyzer.ml;
+
+final class BenchmarkImages {
+
+    // Image sizes every image benchmark runs at, "WIDTHxHEIGHT"
+    static final String SIZE_512 = "512x512";
+    static final String SIZE_1024 = "1024x1024";
+    static final String SIZE_2048 = "2048x1536";
+    static final String SIZE_4000 = "4000x3000";
+
+    private BenchmarkImages() {
+    }
+
+    static int width(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    static int height(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    static ArrayPixelSource syntheticXray(String size) {
+        return TestImages.syntheticXray(width(size), height(size));
+    }
+
+    /**
+     * One keypoint per label along the same S-curve, scaled to the image. With
+     * gaps, every third point is dropped so interpolation has work to do.
+     */
+    static KeypointSet keypoints(String size, boolean withGaps) {
+        int width = width(size);
+        int height = height(size);
+        KeypointSet keypoints = new KeypointSet();
+
+        for (int i = 0; i < KeypointSet.CAPACITY; i++) {
+            if (withGaps && i % 3 == 1) continue;
+
+            double t = 0.15 + 0.7 * i / (KeypointSet.CAPACITY - 1);
+            keypoints.add(i,
+                    (float) (width * (0.5 + 0.04 * Math.sin(t * 2 * Math.PI))),
+                    (float) (height * t),
+                    0.8f, false);
+        }
+        return keypoints;
+    }
+}
@@ -0,0 +1,28 @@
+// BenchmarkMain.java - Runs the kernel benchmarks with the GC/allocation profiler
+package com.example.spineanalyzer.ml;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compile ya/ml and ya/jmh together with jmh-core and the jmh annotation processor
+ * on the classpath (plus tensorflow-lite for the Interpreter types), then run this
+ * class. An optional argument narrows the run, e.g. "CenterlineBenchmark".
+ * Alloc rate per op (gc.alloc.rate.norm) is reported next to each score.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com.example.spineanalyzer.ml.*Benchmark";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
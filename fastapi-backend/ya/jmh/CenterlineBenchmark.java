@@ -0,0 +1,99 @@
+// CenterlineBenchmark.java - Spine centerline search in the straight and accurate detectors
+package com.example.spineanalyzer.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CenterlineBenchmark {
+
+    @Param({BenchmarkImages.SIZE_512, BenchmarkImages.SIZE_1024,
+            BenchmarkImages.SIZE_2048, BenchmarkImages.SIZE_4000})
+    public String size;
+
+    private LuminancePlane luminance;
+    private StraightSpineDetector straightDetector;
+    private AccurateSpineDetector accurateDetector;
+
+    // Column tables for one findPreciseCenterline pass, built once so the score loop is measured alone
+    private ColumnPrefixSums columnSums;
+    private ColumnRangeMax columnMax;
+    private int searchStart;
+    private int searchEnd;
+    private int stripHeight;
+    private int halfHeight;
+
+    @Setup
+    public void setUp() {
+        TestImages.silenceLogs();
+        luminance = LuminancePlane.fromPixels(BenchmarkImages.syntheticXray(size));
+        straightDetector = new StraightSpineDetector();
+        accurateDetector = new AccurateSpineDetector(TestImages.modelFreeRegistry());
+
+        int width = luminance.getWidth();
+        searchStart = (int) (width * (0.5f - StraightSpineDetector.CENTER_SEARCH_RATIO / 2));
+        searchEnd = (int) (width * (0.5f + StraightSpineDetector.CENTER_SEARCH_RATIO / 2));
+        stripHeight = luminance.getHeight() / StraightSpineDetector.VERTICAL_DIVISIONS;
+        halfHeight = stripHeight / 3;
+        columnSums = new ColumnPrefixSums(luminance, searchStart, searchEnd, 1, 1);
+        columnMax = new ColumnRangeMax(luminance, searchStart, searchEnd, 1, 2 * halfHeight + 1);
+    }
+
+    // Coarse-to-fine over the pyramid; the pyramid is memoized on the plane after the first call
+    @Benchmark
+    public List<SpinePoint> findPreciseCenterline() {
+        return straightDetector.findPreciseCenterline(luminance);
+    }
+
+    // Every column at full resolution, for comparison; includes building the column tables
+    @Benchmark
+    public List<SpinePoint> findPreciseCenterlineExhaustive() {
+        return straightDetector.findPreciseCenterlineExhaustive(luminance);
+    }
+
+    // Shared once per analysis by both detectors
+    @Benchmark
+    public LuminancePyramid buildPyramid() {
+        return new LuminancePyramid(luminance, LuminancePyramid.DEFAULT_LEVELS);
+    }
+
+    // Every strip and column of one pass, scores only
+    @Benchmark
+    public double calculateSpineScore() {
+        double total = 0;
+        for (int strip = 2; strip < StraightSpineDetector.VERTICAL_DIVISIONS - 2; strip++) {
+            int centerY = strip * stripHeight + stripHeight / 2;
+            for (int x = searchStart; x < searchEnd; x++) {
+                total += straightDetector.calculateSpineScore(columnSums, columnMax, x, centerY, halfHeight);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public List<SpinePoint> findSpineCenterline() {
+        return accurateDetector.findSpineCenterline(luminance);
+    }
+
+    @Benchmark
+    public List<SpinePoint> findSpineCenterlineExhaustive() {
+        return accurateDetector.findSpineCenterlineExhaustive(luminance);
+    }
+}
@@ -0,0 +1,69 @@
+// GeometryBenchmark.java - Keypoint interpolation and Cobb-angle routines of SpineAngleDetector
+package com.example.spineanalyzer.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class GeometryBenchmark {
+
+    // Keypoint coordinates scale with the image, so the same sizes apply here
+    @Param({BenchmarkImages.SIZE_512, BenchmarkImages.SIZE_1024,
+            BenchmarkImages.SIZE_2048, BenchmarkImages.SIZE_4000})
+    public String size;
+
+    private SpineAngleDetector detector;
+    private KeypointSet keypoints;
+    private KeypointSet sparseKeypoints;
+    private final KeypointSet interpolated = new KeypointSet();
+    private final CobbAngleEngine engine = new CobbAngleEngine();
+
+    @Setup
+    public void setUp() {
+        TestImages.silenceLogs();
+        detector = new SpineAngleDetector(TestImages.modelFreeRegistry(), 1, true);
+        keypoints = BenchmarkImages.keypoints(size, false);
+        sparseKeypoints = BenchmarkImages.keypoints(size, true);
+    }
+
+    @Benchmark
+    public KeypointSet smartInterpolation() {
+        detector.smartInterpolation(sparseKeypoints, interpolated);
+        return interpolated;
+    }
+
+    // One engine sweep: every Cobb method, regional angles, curvature and apex
+    @Benchmark
+    public CobbAngleEngine cobbAngleEngine() {
+        engine.compute(keypoints);
+        return engine;
+    }
+
+    // Traditional, curve-fitting and deviation methods combined
+    @Benchmark
+    public double calculateEnhancedCobbAngle() {
+        return detector.calculateEnhancedCobbAngle(keypoints);
+    }
+
+    // Cobb plus regional angles, curvature, apex and validation
+    @Benchmark
+    public SpineAngleDetector.SpineAngles calculateSpineAnglesEnhanced() {
+        return detector.calculateSpineAnglesEnhanced(keypoints);
+    }
+}
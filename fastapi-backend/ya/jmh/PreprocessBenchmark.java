@@ -0,0 +1,79 @@
+// PreprocessBenchmark.java - Pixel conversion and model-input preprocessing kernels
+package com.example.spineanalyzer.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PreprocessBenchmark {
+
+    @Param({BenchmarkImages.SIZE_512, BenchmarkImages.SIZE_1024,
+            BenchmarkImages.SIZE_2048, BenchmarkImages.SIZE_4000})
+    public String size;
+
+    private ArrayPixelSource pixels;
+    private LuminancePlane luminance;
+    private ByteBuffer classifierInput;
+    private ByteBuffer quantizedClassifierInput;
+
+    // Typical uint8 input quantization for [0,1] images
+    private static final TensorFormat UINT8_INPUT = new TensorFormat(DataType.UINT8, 1f / 255f, 0);
+
+    @Setup
+    public void setUp() {
+        TestImages.silenceLogs();
+        pixels = BenchmarkImages.syntheticXray(size);
+        luminance = LuminancePlane.fromPixels(pixels);
+
+        int classifierSize = SpineClassificationHelper.INPUT_SIZE;
+        classifierInput = ByteBuffer.allocateDirect(classifierSize * classifierSize * 3 * 4)
+                .order(ByteOrder.nativeOrder());
+        quantizedClassifierInput = ByteBuffer.allocateDirect(classifierSize * classifierSize * 3)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    // Replaces bitmapToFloatArray: full-resolution ARGB to one luminance byte per pixel
+    @Benchmark
+    public LuminancePlane luminanceFromPixels() {
+        return LuminancePlane.fromPixels(pixels);
+    }
+
+    // enhanceImageForClassification: resize + classification curve into the classifier tensor
+    @Benchmark
+    public ByteBuffer enhanceImageForClassification() {
+        classifierInput.clear();
+        PreprocessKernel.writeTensor(luminance, SpineClassificationHelper.INPUT_SIZE,
+                SpineClassificationHelper.INPUT_SIZE, SpineClassificationHelper.CLASSIFICATION_CURVE,
+                classifierInput);
+        return classifierInput;
+    }
+
+    // Same into a uint8 classifier tensor, a quarter of the bytes
+    @Benchmark
+    public ByteBuffer enhanceImageForClassificationQuantized() {
+        quantizedClassifierInput.clear();
+        PreprocessKernel.writeTensor(luminance, SpineClassificationHelper.INPUT_SIZE,
+                SpineClassificationHelper.INPUT_SIZE, SpineClassificationHelper.CLASSIFICATION_CURVE,
+                UINT8_INPUT, quantizedClassifierInput);
+        return quantizedClassifierInput;
+    }
+}
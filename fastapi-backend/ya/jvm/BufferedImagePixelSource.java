@@ -0,0 +1,30 @@
+// BufferedImagePixelSource.java - JVM adapter: PixelSource over a java.awt BufferedImage
+// Kept out of ya/ml because java.awt is not available to Android builds.
+package com.example.spineanalyzer.ml;
+
+import java.awt.image.BufferedImage;
+
+public class BufferedImagePixelSource implements PixelSource {
+
+    private final BufferedImage image;
+
+    public BufferedImagePixelSource(BufferedImage image) {
+        this.image = image;
+    }
+
+    @Override
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    @Override
+    public void getRow(int y, int[] dst) {
+        int width = image.getWidth();
+        image.getRGB(0, y, width, 1, dst, 0, width);
+    }
+}
@@ -1,17 +1,6 @@
 // AccurateSpineDetector.java - Fixed version untuk deteksi spine yang akurat
 package com.example.spineanalyzer.ml;
 
-import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.PointF;
-import android.util.Log;
-
-import org.tensorflow.lite.Interpreter;
-
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,59 +18,62 @@ public class AccurateSpineDetector {
             "S1-S2", "S3-S5"  // Sacral spine
     };
 
-    private Context context;
-    private Interpreter keypointDetector;
+    private ModelRegistry registry;
+    private InterpreterPool keypointPool;
+    private final int poolSize;
     private boolean isModelLoaded = false;
 
-    public AccurateSpineDetector(Context context) {
-        this.context = context;
+    public AccurateSpineDetector(ModelRegistry registry) {
+        this(registry, InterpreterPool.DEFAULT_SIZE);
+    }
+
+    public AccurateSpineDetector(ModelRegistry registry, int poolSize) {
+        this.registry = registry;
+        this.poolSize = poolSize;
         loadModel();
     }
 
     private void loadModel() {
         try {
-            MappedByteBuffer modelBuffer = loadModelFile();
-
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(4);
-            options.setUseNNAPI(true);
-
-            keypointDetector = new Interpreter(modelBuffer, options);
+            // Mapped once and shared with every other user of the same model file
+            keypointPool = registry.acquire("keypoint", MODEL_NAME, poolSize);
             isModelLoaded = true;
 
-            Log.d(TAG, "Accurate spine detection model loaded");
+            MlLog.d(TAG, "Accurate spine detection model loaded");
 
         } catch (Exception e) {
-            Log.e(TAG, "Error loading model", e);
+            MlLog.e(TAG, "Error loading model", e);
             isModelLoaded = false;
         }
     }
 
-    private MappedByteBuffer loadModelFile() throws IOException {
-        try {
-            FileInputStream fileInputStream = new FileInputStream(
-                    context.getAssets().openFd(MODEL_NAME).getFileDescriptor());
-            FileChannel fileChannel = fileInputStream.getChannel();
-            long startOffset = context.getAssets().openFd(MODEL_NAME).getStartOffset();
-            long declaredLength = context.getAssets().openFd(MODEL_NAME).getDeclaredLength();
-
-            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+    public SpineAnalysisResult detectSpineAndCalculateAngle(PixelSource pixels) {
+        return detectSpineAndCalculateAngle(LuminancePlane.fromPixels(pixels));
+    }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading model file: " + MODEL_NAME, e);
-            throw e;
-        }
+    /**
+     * Analyze using a luminance plane already computed for this analysis
+     */
+    public SpineAnalysisResult detectSpineAndCalculateAngle(LuminancePlane luminance) {
+        return detectSpineAndCalculateAngle(luminance, null);
     }
 
-    public SpineAnalysisResult detectSpineAndCalculateAngle(Bitmap inputBitmap) {
+    /**
+     * Analyze along a centerline already found for this analysis (e.g. by the pipeline's
+     * centerline stage) instead of scanning for it again; null scans as usual.
+     * The list is only read; it is smoothed into a copy.
+     */
+    public SpineAnalysisResult detectSpineAndCalculateAngle(LuminancePlane luminance, List<SpinePoint> centerline) {
         try {
-            Log.d(TAG, "Starting accurate spine analysis...");
+            MlLog.d(TAG, "Starting accurate spine analysis...");
 
             // STEP 1: Analyze image to detect if spine is actually straight
-            SpineCharacteristics characteristics = analyzeSpineCharacteristics(inputBitmap);
+            List<SpinePoint> spinePoints = centerline != null
+                    ? smoothSpinePoints(centerline) : findSpineCenterline(luminance);
+            SpineCharacteristics characteristics = analyzeSpineCharacteristics(luminance, spinePoints);
 
             // STEP 2: Generate keypoints based on actual spine analysis
-            List<SpineKeypoint> keypoints = generateAccurateKeypoints(inputBitmap, characteristics);
+            List<SpineKeypoint> keypoints = generateAccurateKeypoints(luminance, characteristics);
 
             // STEP 3: Calculate accurate angles
             SpineAngles angles = calculateAccurateAngles(keypoints, characteristics);
@@ -95,30 +87,27 @@ public class AccurateSpineDetector {
             result.angles = angles;
             result.assessment = assessment;
             result.isValidAnalysis = true;
-            result.originalImageWidth = inputBitmap.getWidth();
-            result.originalImageHeight = inputBitmap.getHeight();
+            result.originalImageWidth = luminance.getWidth();
+            result.originalImageHeight = luminance.getHeight();
             result.spineCharacteristics = characteristics;
 
-            Log.d(TAG, "Accurate analysis completed. Detected: " + characteristics.spineType +
-                    ", Cobb angle: " + angles.cobbAngle + "°");
+            MlLog.d(TAG, "Accurate analysis completed. Detected: %s, Cobb angle: %.1f°",
+                    characteristics.spineType, angles.cobbAngle);
 
             return result;
 
         } catch (Exception e) {
-            Log.e(TAG, "Error in accurate spine analysis", e);
-            return createFallbackResult(inputBitmap);
+            MlLog.e(TAG, "Error in accurate spine analysis", e);
+            return createFallbackResult(luminance.getWidth(), luminance.getHeight());
         }
     }
 
     // IMPROVED: Analyze actual spine characteristics from image
-    private SpineCharacteristics analyzeSpineCharacteristics(Bitmap bitmap) {
+    private SpineCharacteristics analyzeSpineCharacteristics(LuminancePlane luminance, List<SpinePoint> spinePoints) {
         SpineCharacteristics characteristics = new SpineCharacteristics();
 
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-
-        // Find the spine centerline by analyzing pixel brightness
-        List<PointF> spinePoints = findSpineCenterline(bitmap);
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
 
         if (spinePoints.size() >= 5) {
             // Calculate actual spine straightness
@@ -151,29 +140,99 @@ public class AccurateSpineDetector {
             characteristics.hasVisibleCurvature = false;
         }
 
-        Log.d(TAG, String.format("Spine analysis: %s (straightness=%.2f, maxDev=%.1f, expectedAngle=%.1f°)",
+        MlLog.d(TAG, "Spine analysis: %s (straightness=%.2f, maxDev=%.1f, expectedAngle=%.1f°)",
                 characteristics.spineType, characteristics.straightnessScore,
-                characteristics.maxDeviation, characteristics.expectedCobbAngle));
+                characteristics.maxDeviation, characteristics.expectedCobbAngle);
 
         return characteristics;
     }
 
-    // IMPROVED: Find actual spine centerline from image
-    private List<PointF> findSpineCenterline(Bitmap bitmap) {
-        List<PointF> spinePoints = new ArrayList<>();
+    // IMPROVED: Find actual spine centerline from image, coarse-to-fine over the luminance pyramid
+    List<SpinePoint> findSpineCenterline(final LuminancePlane luminance) {
+        List<SpinePoint> spinePoints = new ArrayList<>();
 
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
 
         // Analyze horizontal strips to find spine center
         int strips = 20; // Divide image into 20 horizontal strips
         int stripHeight = height / strips;
 
+        // Same columns as before (every 2nd in the center half), but only those around the bright band get scored at full resolution
+        CenterlinePyramidSearch search = new CenterlinePyramidSearch(luminance.getPyramid(), width / 4, 3 * width / 4, 2);
+        CenterlinePyramidSearch.StripScore brightness = this::stripBrightness;
+
+        // Full-resolution scores from the exhaustive scan's column sums, O(1) per column;
+        // only the blocks of columns the search looks at are summed
+        final ColumnBlocks<ColumnPrefixSums> columnSums = new ColumnBlocks<>(width / 4, 3 * width / 4, 2,
+                (first, end) -> new ColumnPrefixSums(luminance, first, end, 2, 3));
+        CenterlinePyramidSearch.ColumnScore fullBrightness = (x, top, bottom) ->
+                stripBrightness(columnSums.forColumn(x), x, top, bottom);
+
+        for (int strip = 2; strip < strips - 2; strip++) { // Skip top and bottom strips
+            int y = strip * stripHeight + stripHeight / 2;
+            int halfHeight = stripHeight / 2;
+
+            // Only keep significant brightness (likely spine)
+            int spineX = search.findBestColumn(y - halfHeight, y + halfHeight, brightness, fullBrightness);
+            if (spineX >= 0 && search.getBestScore() > 120) { // Threshold for X-ray spine brightness
+                spinePoints.add(new SpinePoint(spineX, y));
+            }
+        }
+
+        // Smooth the detected points to remove noise
+        return smoothSpinePoints(spinePoints);
+    }
+
+    // Same average from the column sums, computed as findSpineCenterInStrip does
+    private static float stripBrightness(ColumnPrefixSums columnSums, int x, int top, int bottom) {
+        int sampleCount = columnSums.count(top, bottom);
+        if (sampleCount == 0) return 0;
+
+        float avgBrightness = columnSums.sum(x, top, bottom);
+        avgBrightness /= sampleCount;
+        return avgBrightness;
+    }
+
+    // Average of every 3rd row in top..bottom, as the column sums sample them; for the coarse pyramid level
+    private float stripBrightness(LuminancePlane luminance, int x, int top, int bottom) {
+        int first = top >= 0 ? top : top + ((-top + 2) / 3) * 3;
+        int last = Math.min(bottom, luminance.getHeight() - 1);
+        if (last < first) return 0;
+
+        byte[] data = luminance.getData();
+        int width = luminance.getWidth();
+        int sum = 0;
+        int count = 0;
+        for (int row = first; row <= last; row += 3) {
+            sum += data[row * width + x] & 0xFF;
+            count++;
+        }
+
+        float avgBrightness = sum;
+        avgBrightness /= count;
+        return avgBrightness;
+    }
+
+    // Full-resolution scan of every 2nd column; reference for the pyramid search
+    List<SpinePoint> findSpineCenterlineExhaustive(LuminancePlane luminance) {
+        List<SpinePoint> spinePoints = new ArrayList<>();
+
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
+
+        // Analyze horizontal strips to find spine center
+        int strips = 20; // Divide image into 20 horizontal strips
+        int stripHeight = height / strips;
+
+        // Column sums over every 2nd column and every 3rd row, matching the strip sampling
+        ColumnPrefixSums columnSums = new ColumnPrefixSums(luminance, width / 4, 3 * width / 4, 2, 3);
+
         for (int strip = 2; strip < strips - 2; strip++) { // Skip top and bottom strips
             int y = strip * stripHeight + stripHeight / 2;
 
             // Find the brightest region in this strip (spine should be bright in X-ray)
-            PointF spineCenter = findSpineCenterInStrip(bitmap, y, stripHeight / 2);
+            SpinePoint spineCenter = findSpineCenterInStrip(columnSums, width, y, stripHeight / 2);
 
             if (spineCenter != null) {
                 spinePoints.add(spineCenter);
@@ -184,8 +243,7 @@ public class AccurateSpineDetector {
         return smoothSpinePoints(spinePoints);
     }
 
-    private PointF findSpineCenterInStrip(Bitmap bitmap, int centerY, int halfHeight) {
-        int width = bitmap.getWidth();
+    private SpinePoint findSpineCenterInStrip(ColumnPrefixSums columnSums, int width, int centerY, int halfHeight) {
 
         // Focus on center region of image (spine is usually in center)
         int searchStartX = width / 4;
@@ -195,19 +253,12 @@ public class AccurateSpineDetector {
         int spineX = width / 2; // Default to center
 
         // Look for brightest vertical line (spine in X-ray)
+        // Every column samples the same rows, so the count is shared
+        int sampleCount = columnSums.count(centerY - halfHeight, centerY + halfHeight);
+
         for (int x = searchStartX; x < searchEndX; x += 2) {
-            float avgBrightness = 0;
-            int sampleCount = 0;
-
-            // Sample vertical line around this x position
-            for (int y = centerY - halfHeight; y <= centerY + halfHeight; y += 3) {
-                if (y >= 0 && y < bitmap.getHeight()) {
-                    int pixel = bitmap.getPixel(x, y);
-                    int brightness = getGrayValue(pixel);
-                    avgBrightness += brightness;
-                    sampleCount++;
-                }
-            }
+            // Vertical line around this x position, every 3rd row
+            float avgBrightness = columnSums.sum(x, centerY - halfHeight, centerY + halfHeight);
 
             if (sampleCount > 0) {
                 avgBrightness /= sampleCount;
@@ -221,23 +272,16 @@ public class AccurateSpineDetector {
 
         // Only return if we found significant brightness (likely spine)
         if (maxBrightness > 120) { // Threshold for X-ray spine brightness
-            return new PointF(spineX, centerY);
+            return new SpinePoint(spineX, centerY);
         }
 
         return null;
     }
 
-    private int getGrayValue(int pixel) {
-        int r = (pixel >> 16) & 0xFF;
-        int g = (pixel >> 8) & 0xFF;
-        int b = pixel & 0xFF;
-        return (int) (0.299 * r + 0.587 * g + 0.114 * b);
-    }
-
-    private List<PointF> smoothSpinePoints(List<PointF> rawPoints) {
+    private List<SpinePoint> smoothSpinePoints(List<SpinePoint> rawPoints) {
         if (rawPoints.size() < 3) return rawPoints;
 
-        List<PointF> smoothed = new ArrayList<>();
+        List<SpinePoint> smoothed = new ArrayList<>();
 
         // Apply moving average smoothing
         for (int i = 0; i < rawPoints.size(); i++) {
@@ -251,23 +295,23 @@ public class AccurateSpineDetector {
                 count++;
             }
 
-            smoothed.add(new PointF(sumX / count, sumY / count));
+            smoothed.add(new SpinePoint(sumX / count, sumY / count));
         }
 
         return smoothed;
     }
 
-    private float calculateSpineStraightness(List<PointF> spinePoints) {
+    private float calculateSpineStraightness(List<SpinePoint> spinePoints) {
         if (spinePoints.size() < 3) return 0.8f; // Default assumption
 
         // Calculate how close the spine points are to a straight line
-        PointF first = spinePoints.get(0);
-        PointF last = spinePoints.get(spinePoints.size() - 1);
+        SpinePoint first = spinePoints.get(0);
+        SpinePoint last = spinePoints.get(spinePoints.size() - 1);
 
         double totalDeviation = 0;
         double maxPossibleDeviation = 0;
 
-        for (PointF point : spinePoints) {
+        for (SpinePoint point : spinePoints) {
             // Calculate distance from point to the straight line from first to last
             double deviation = pointToLineDistance(point, first, last);
             totalDeviation += deviation;
@@ -284,7 +328,7 @@ public class AccurateSpineDetector {
         return (float) Math.max(0.0, Math.min(1.0, straightness));
     }
 
-    private double pointToLineDistance(PointF point, PointF lineStart, PointF lineEnd) {
+    private double pointToLineDistance(SpinePoint point, SpinePoint lineStart, SpinePoint lineEnd) {
         double A = lineEnd.y - lineStart.y;
         double B = lineStart.x - lineEnd.x;
         double C = lineEnd.x * lineStart.y - lineStart.x * lineEnd.y;
@@ -292,14 +336,14 @@ public class AccurateSpineDetector {
         return Math.abs(A * point.x + B * point.y + C) / Math.sqrt(A * A + B * B);
     }
 
-    private double calculateMaxLateralDeviation(List<PointF> spinePoints) {
+    private double calculateMaxLateralDeviation(List<SpinePoint> spinePoints) {
         if (spinePoints.size() < 2) return 0.0;
 
-        PointF first = spinePoints.get(0);
-        PointF last = spinePoints.get(spinePoints.size() - 1);
+        SpinePoint first = spinePoints.get(0);
+        SpinePoint last = spinePoints.get(spinePoints.size() - 1);
 
         double maxDeviation = 0.0;
-        for (PointF point : spinePoints) {
+        for (SpinePoint point : spinePoints) {
             double deviation = pointToLineDistance(point, first, last);
             maxDeviation = Math.max(maxDeviation, deviation);
         }
@@ -308,11 +352,11 @@ public class AccurateSpineDetector {
     }
 
     // IMPROVED: Generate keypoints based on actual spine analysis
-    private List<SpineKeypoint> generateAccurateKeypoints(Bitmap bitmap, SpineCharacteristics characteristics) {
+    private List<SpineKeypoint> generateAccurateKeypoints(LuminancePlane luminance, SpineCharacteristics characteristics) {
         List<SpineKeypoint> keypoints = new ArrayList<>();
 
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
 
         if (characteristics.detectedSpinePoints != null && characteristics.detectedSpinePoints.size() > 0) {
             // Use detected spine points as basis for keypoints
@@ -334,7 +378,7 @@ public class AccurateSpineDetector {
         return keypoints;
     }
 
-    private List<SpineKeypoint> distributeKeypointsAlongSpine(List<PointF> spinePoints, int width, int height) {
+    private List<SpineKeypoint> distributeKeypointsAlongSpine(List<SpinePoint> spinePoints, int width, int height) {
         List<SpineKeypoint> keypoints = new ArrayList<>();
 
         // Interpolate to get exactly 17 keypoints along the detected spine
@@ -342,7 +386,7 @@ public class AccurateSpineDetector {
             float progress = (float) i / (NUM_KEYPOINTS - 1);
 
             // Find corresponding position along spine
-            PointF position = interpolateAlongSpine(spinePoints, progress);
+            SpinePoint position = interpolateAlongSpine(spinePoints, progress);
 
             SpineKeypoint keypoint = new SpineKeypoint();
             keypoint.label = KEYPOINT_LABELS[i];
@@ -357,9 +401,9 @@ public class AccurateSpineDetector {
         return keypoints;
     }
 
-    private PointF interpolateAlongSpine(List<PointF> spinePoints, float progress) {
+    private SpinePoint interpolateAlongSpine(List<SpinePoint> spinePoints, float progress) {
         if (spinePoints.size() == 0) {
-            return new PointF(0, 0);
+            return new SpinePoint(0, 0);
         }
 
         if (spinePoints.size() == 1) {
@@ -376,10 +420,10 @@ public class AccurateSpineDetector {
         }
 
         float ratio = targetIndex - lowerIndex;
-        PointF lower = spinePoints.get(lowerIndex);
-        PointF upper = spinePoints.get(upperIndex);
+        SpinePoint lower = spinePoints.get(lowerIndex);
+        SpinePoint upper = spinePoints.get(upperIndex);
 
-        return new PointF(
+        return new SpinePoint(
                 lower.x + ratio * (upper.x - lower.x),
                 lower.y + ratio * (upper.y - lower.y)
         );
@@ -406,7 +450,7 @@ public class AccurateSpineDetector {
             // Very minimal random variation for natural look
             float deviation = (float) (Math.random() - 0.5) * maxDeviation;
 
-            keypoint.position = new PointF(
+            keypoint.position = new SpinePoint(
                     centerX + deviation,
                     topY + i * stepY
             );
@@ -441,7 +485,7 @@ public class AccurateSpineDetector {
         angles.maxLateralDeviation = characteristics.maxDeviation;
         angles.apexLocation = findCurveApex(keypoints);
 
-        Log.d(TAG, "Accurate angles calculated: Cobb=" + angles.cobbAngle + "°");
+        MlLog.d(TAG, "Accurate angles calculated: Cobb=%.1f°", angles.cobbAngle);
 
         return angles;
     }
@@ -458,23 +502,23 @@ public class AccurateSpineDetector {
         if (angle < 10) {
             assessment.severity = "Normal";
             assessment.riskLevel = "Low";
-            assessment.color = android.graphics.Color.GREEN;
+            assessment.color = SpineColors.GREEN;
         } else if (angle < 20) {
             assessment.severity = "Mild Scoliosis";
             assessment.riskLevel = "Low";
-            assessment.color = android.graphics.Color.rgb(255, 193, 7);
+            assessment.color = SpineColors.AMBER;
         } else if (angle < 40) {
             assessment.severity = "Moderate Scoliosis";
             assessment.riskLevel = "Medium";
-            assessment.color = android.graphics.Color.rgb(255, 152, 0);
+            assessment.color = SpineColors.ORANGE;
         } else if (angle < 50) {
             assessment.severity = "Severe Scoliosis";
             assessment.riskLevel = "High";
-            assessment.color = android.graphics.Color.rgb(255, 87, 34);
+            assessment.color = SpineColors.DEEP_ORANGE;
         } else {
             assessment.severity = "Very Severe Scoliosis";
             assessment.riskLevel = "Critical";
-            assessment.color = android.graphics.Color.RED;
+            assessment.color = SpineColors.RED;
         }
 
         // High confidence for straight spine detection
@@ -525,8 +569,8 @@ public class AccurateSpineDetector {
 
         if (regionKeypoints.size() < 3) return 5.0 + Math.random() * 5.0; // Default normal range
 
-        PointF first = regionKeypoints.get(0).position;
-        PointF last = regionKeypoints.get(regionKeypoints.size() - 1).position;
+        SpinePoint first = regionKeypoints.get(0).position;
+        SpinePoint last = regionKeypoints.get(regionKeypoints.size() - 1).position;
 
         double maxDeviation = 0.0;
         for (SpineKeypoint kp : regionKeypoints) {
@@ -541,8 +585,8 @@ public class AccurateSpineDetector {
     private String findCurveApex(List<SpineKeypoint> keypoints) {
         if (keypoints.size() < 3) return "Center";
 
-        PointF top = keypoints.get(0).position;
-        PointF bottom = keypoints.get(keypoints.size() - 1).position;
+        SpinePoint top = keypoints.get(0).position;
+        SpinePoint bottom = keypoints.get(keypoints.size() - 1).position;
 
         double maxDeviation = 0.0;
         SpineKeypoint apexPoint = keypoints.get(keypoints.size() / 2); // Default to center
@@ -563,8 +607,8 @@ public class AccurateSpineDetector {
         if (keypoints.size() < 5) return "Linear pattern";
 
         double totalDeviation = 0;
-        PointF first = keypoints.get(0).position;
-        PointF last = keypoints.get(keypoints.size() - 1).position;
+        SpinePoint first = keypoints.get(0).position;
+        SpinePoint last = keypoints.get(keypoints.size() - 1).position;
 
         for (SpineKeypoint kp : keypoints) {
             totalDeviation += Math.abs(pointToLineDistance(kp.position, first, last));
@@ -581,7 +625,7 @@ public class AccurateSpineDetector {
         }
     }
 
-    private SpineAnalysisResult createFallbackResult(Bitmap inputBitmap) {
+    private SpineAnalysisResult createFallbackResult(int imageWidth, int imageHeight) {
         // Create conservative fallback for straight spine
         SpineCharacteristics characteristics = new SpineCharacteristics();
         characteristics.spineType = "Normal/Straight";
@@ -591,7 +635,7 @@ public class AccurateSpineDetector {
         characteristics.maxDeviation = 5.0;
 
         List<SpineKeypoint> keypoints = generateStraightSpineKeypoints(
-                inputBitmap.getWidth(), inputBitmap.getHeight(), characteristics);
+                imageWidth, imageHeight, characteristics);
 
         SpineAngles angles = calculateAccurateAngles(keypoints, characteristics);
         SpineCurvatureAssessment assessment = createRealisticAssessment(keypoints, angles, characteristics);
@@ -601,8 +645,8 @@ public class AccurateSpineDetector {
         result.angles = angles;
         result.assessment = assessment;
         result.isValidAnalysis = true;
-        result.originalImageWidth = inputBitmap.getWidth();
-        result.originalImageHeight = inputBitmap.getHeight();
+        result.originalImageWidth = imageWidth;
+        result.originalImageHeight = imageHeight;
         result.spineCharacteristics = characteristics;
 
         return result;
@@ -613,12 +657,12 @@ public class AccurateSpineDetector {
     }
 
     public void close() {
-        if (keypointDetector != null) {
-            keypointDetector.close();
-            keypointDetector = null;
+        if (keypointPool != null) {
+            registry.release(MODEL_NAME);
+            keypointPool = null;
         }
         isModelLoaded = false;
-        Log.d(TAG, "Accurate spine detector closed");
+        MlLog.d(TAG, "Accurate spine detector closed");
     }
 
     // Data classes
@@ -628,12 +672,12 @@ public class AccurateSpineDetector {
         public double expectedCobbAngle;
         public boolean hasVisibleCurvature;
         public double maxDeviation;
-        public List<PointF> detectedSpinePoints;
+        public List<SpinePoint> detectedSpinePoints;
     }
 
     public static class SpineKeypoint {
         public String label;
-        public PointF position;
+        public SpinePoint position;
         public float confidence;
         public int index;
         public String region;
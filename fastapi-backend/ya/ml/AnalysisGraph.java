@@ -0,0 +1,155 @@
+// AnalysisGraph.java - Per-image dependency graph of named analysis stages
+package com.example.spineanalyzer.ml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Results of one image's analysis, keyed by stage. A stage is computed at most
+ * once per graph, on the executor, as soon as the stages it depends on are done;
+ * stages that do not depend on each other run in parallel. Asking for several
+ * results therefore shares every intermediate stage they have in common.
+ *
+ * A stage can only depend on stages created before it, so the graph is acyclic.
+ * Thread-safe; a failed stage fails every stage that depends on it.
+ */
+public final class AnalysisGraph {
+
+    private final Executor executor;
+    private final AnalysisTrace trace;
+    private final ConcurrentHashMap<Stage<?>, CompletableFuture<?>> results = new ConcurrentHashMap<>();
+
+    public AnalysisGraph(Executor executor, AnalysisTrace trace) {
+        this.executor = executor;
+        this.trace = trace;
+    }
+
+    /**
+     * Provide the value of an input stage, or replace a stage by a known result
+     */
+    public <T> AnalysisGraph put(Stage<T> stage, T value) {
+        return put(stage, CompletableFuture.completedFuture(value));
+    }
+
+    /**
+     * Provide an input that is still being produced, e.g. a decode running elsewhere
+     */
+    public <T> AnalysisGraph put(Stage<T> stage, CompletableFuture<T> value) {
+        if (results.putIfAbsent(stage, value) != null) {
+            throw new IllegalStateException("Stage " + stage.name + " already started");
+        }
+        return this;
+    }
+
+    /**
+     * Result of a stage, starting it and any of its dependencies not started yet
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> get(final Stage<T> stage) {
+        CompletableFuture<T> existing = (CompletableFuture<T>) results.get(stage);
+        if (existing != null) return existing;
+
+        if (stage.compute == null) {
+            throw new IllegalStateException("No value for input stage " + stage.name);
+        }
+
+        // Claim the stage before starting it so concurrent callers share one computation
+        final CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> raced = (CompletableFuture<T>) results.putIfAbsent(stage, created);
+        if (raced != null) return raced;
+
+        CompletableFuture<?>[] dependencies = new CompletableFuture<?>[stage.dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = get(stage.dependencies[i]);
+        }
+
+        CompletableFuture.allOf(dependencies)
+                .thenApply(ignored -> System.nanoTime())
+                .thenAcceptAsync(ready -> {
+                    if (stage.queueTraceStage >= 0) trace.lap(stage.queueTraceStage, ready);
+                    created.complete(stage.compute.apply(this));
+                }, executor)
+                .exceptionally(error -> {
+                    created.completeExceptionally(unwrap(error));
+                    return null;
+                });
+        return created;
+    }
+
+    /**
+     * Value of a finished dependency; for use inside a stage's compute function
+     */
+    public <T> T value(Stage<T> stage) {
+        return get(stage).join();
+    }
+
+    public AnalysisTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Names of the stages started so far, inputs included
+     */
+    public List<String> getStartedStages() {
+        List<String> names = new ArrayList<>();
+        for (Stage<?> stage : results.keySet()) {
+            names.add(stage.name);
+        }
+        return names;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * A named step of the analysis. Identity is the instance, so one definition
+     * serves every graph; compute receives the graph to read its dependencies.
+     */
+    public static final class Stage<T> {
+        final String name;
+        final Stage<?>[] dependencies;
+        final Function<AnalysisGraph, T> compute;  // Null for inputs
+        final int queueTraceStage;                  // AnalysisTrace slot for the executor wait, -1 for none
+
+        private Stage(String name, Stage<?>[] dependencies, Function<AnalysisGraph, T> compute, int queueTraceStage) {
+            this.name = name;
+            this.dependencies = dependencies.clone();
+            this.compute = compute;
+            this.queueTraceStage = queueTraceStage;
+        }
+
+        /**
+         * Stage whose value is put() into each graph
+         */
+        public static <T> Stage<T> input(String name) {
+            return new Stage<>(name, new Stage<?>[0], null, -1);
+        }
+
+        public static <T> Stage<T> of(String name, Function<AnalysisGraph, T> compute, Stage<?>... dependencies) {
+            return new Stage<>(name, dependencies, compute, -1);
+        }
+
+        /**
+         * Same, adding the time between dependencies done and compute start to a trace slot
+         */
+        public static <T> Stage<T> of(String name, int queueTraceStage, Function<AnalysisGraph, T> compute,
+                                      Stage<?>... dependencies) {
+            return new Stage<>(name, dependencies, compute, queueTraceStage);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+// AnalysisResultCache.java - Content-addressed cache of spine analysis results
+package com.example.spineanalyzer.ml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AnalysisResultCache {
+
+    private static final String TAG = "AnalysisResultCache";
+    private static final int DISK_FORMAT_VERSION = 2; // 2: answeredBy
+    private static final String DISK_SUFFIX = ".result";
+
+    // Memory tier: access-ordered, evicted by estimated size
+    private final LinkedHashMap<String, MemoryEntry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxMemoryBytes;
+    private long memoryBytes = 0;
+
+    // Optional disk tier; null when disabled
+    private final File diskDir;
+    private final long maxDiskBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    /**
+     * @param diskDir directory for the persistent tier, or null for memory only
+     */
+    public AnalysisResultCache(long maxMemoryBytes, File diskDir, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+
+        if (diskDir != null && !diskDir.isDirectory() && !diskDir.mkdirs()) {
+            MlLog.w(TAG, "Cannot create disk cache at " + diskDir + ", using memory only");
+            diskDir = null;
+        }
+        this.diskDir = diskDir;
+    }
+
+    /**
+     * Cache key: 64-bit hash of the decoded pixels and size, plus the model versions
+     */
+    public static String keyFor(PixelSource pixels, String modelVersion) {
+        return keyFor(pixels) + "-" + modelVersion;
+    }
+
+    /**
+     * Image part of the key, for callers that append the versions themselves
+     */
+    public static String keyFor(PixelSource pixels) {
+        return Long.toHexString(hashPixels(pixels));
+    }
+
+    /**
+     * FNV-1a over the ARGB pixels, one row at a time
+     */
+    public static long hashPixels(PixelSource pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
+        int[] row = new int[width];
+
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ width) * 0x100000001b3L;
+        hash = (hash ^ height) * 0x100000001b3L;
+
+        for (int y = 0; y < height; y++) {
+            pixels.getRow(y, row);
+            for (int x = 0; x < width; x++) {
+                hash = (hash ^ row[x]) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Key for a 16-bit image; the window is part of it since it changes the analyzed plane
+     */
+    public static String keyFor(Gray16Image image, String modelVersion) {
+        return keyFor(image) + "-" + modelVersion;
+    }
+
+    public static String keyFor(Gray16Image image) {
+        return "g16-" + Long.toHexString(hashSamples(image));
+    }
+
+    /**
+     * FNV-1a over the window and the 16-bit samples
+     */
+    public static long hashSamples(Gray16Image image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        short[] samples = image.getData();
+
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ width) * 0x100000001b3L;
+        hash = (hash ^ height) * 0x100000001b3L;
+        hash = (hash ^ image.getWindowCenter()) * 0x100000001b3L;
+        hash = (hash ^ image.getWindowWidth()) * 0x100000001b3L;
+
+        for (int i = 0; i < width * height; i++) {
+            hash = (hash ^ (samples[i] & 0xFFFF)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public MLModelManager.SpineAnalysisResult get(String key) {
+        synchronized (this) {
+            MemoryEntry entry = memory.get(key);
+            if (entry != null) {
+                memoryHits.incrementAndGet();
+                return entry.result.copy();
+            }
+        }
+
+        MLModelManager.SpineAnalysisResult result = readFromDisk(key);
+        if (result != null) {
+            diskHits.incrementAndGet();
+            putInMemory(key, result.copy());
+            return result;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, MLModelManager.SpineAnalysisResult result) {
+        putInMemory(key, result.copy());
+        writeToDisk(key, result);
+    }
+
+    private synchronized void putInMemory(String key, MLModelManager.SpineAnalysisResult result) {
+        MemoryEntry entry = new MemoryEntry(result, estimateSize(result));
+
+        MemoryEntry previous = memory.put(key, entry);
+        if (previous != null) {
+            memoryBytes -= previous.size;
+        }
+        memoryBytes += entry.size;
+
+        // Drop least recently used entries until back under budget
+        Iterator<MemoryEntry> iterator = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            MemoryEntry eldest = iterator.next();
+            if (eldest == entry) break;
+            iterator.remove();
+            memoryBytes -= eldest.size;
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+
+        if (diskDir != null) {
+            for (File file : listDiskFiles()) {
+                file.delete();
+            }
+        }
+    }
+
+    // Rough retained size of one result
+    private static int estimateSize(MLModelManager.SpineAnalysisResult result) {
+        int size = 256;
+        if (result.allProbabilities != null) size += 16 + 4 * result.allProbabilities.length;
+        if (result.keypoints != null) size += 96 * result.keypoints.size();
+        if (result.classification != null) size += 2 * result.classification.length();
+        if (result.assessment != null && result.assessment.recommendations != null) {
+            size += 2 * result.assessment.recommendations.length();
+        }
+        return size;
+    }
+
+    private MLModelManager.SpineAnalysisResult readFromDisk(String key) {
+        if (diskDir == null) return null;
+
+        File file = new File(diskDir, key + DISK_SUFFIX);
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != DISK_FORMAT_VERSION) return null;
+            MLModelManager.SpineAnalysisResult result = readResult(in);
+            file.setLastModified(System.currentTimeMillis());
+            return result;
+        } catch (IOException e) {
+            MlLog.w(TAG, "Dropping unreadable cache entry " + key, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, MLModelManager.SpineAnalysisResult result) {
+        if (diskDir == null) return;
+
+        File file = new File(diskDir, key + DISK_SUFFIX);
+        File temp = null;
+
+        // Unique temp file per writer, so concurrent puts of one key never interleave
+        try {
+            temp = File.createTempFile(key + DISK_SUFFIX, ".tmp", diskDir); // Prefix needs 3+ chars
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(DISK_FORMAT_VERSION);
+                writeResult(out, result);
+            }
+        } catch (IOException e) {
+            MlLog.w(TAG, "Could not write cache entry " + key, e);
+            if (temp != null) temp.delete();
+            return;
+        }
+
+        // rename(2) replaces the entry atomically; readers see the old file or the new one
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    // Delete the least recently used files until the tier fits its budget
+    private synchronized void trimDisk() {
+        List<File> files = listDiskFiles();
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) return;
+
+        files.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= maxDiskBytes) break;
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+                diskEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    private List<File> listDiskFiles() {
+        File[] files = diskDir.listFiles((dir, name) -> name.endsWith(DISK_SUFFIX));
+        return files != null ? new ArrayList<>(Arrays.asList(files)) : new ArrayList<>();
+    }
+
+    private static void writeResult(DataOutputStream out, MLModelManager.SpineAnalysisResult result)
+            throws IOException {
+        out.writeLong(result.timestamp);
+        out.writeInt(result.imageWidth);
+        out.writeInt(result.imageHeight);
+        out.writeDouble(result.primaryAngle);
+        out.writeFloat(result.confidence);
+        writeString(out, result.classification);
+        out.writeFloat(result.classificationConfidence);
+
+        out.writeInt(result.allProbabilities != null ? result.allProbabilities.length : -1);
+        if (result.allProbabilities != null) {
+            for (float probability : result.allProbabilities) {
+                out.writeFloat(probability);
+            }
+        }
+
+        out.writeInt(result.keypoints != null ? result.keypoints.size() : -1);
+        if (result.keypoints != null) {
+            for (SpineAngleDetector.SpineKeypoint keypoint : result.keypoints) {
+                writeString(out, keypoint.label);
+                out.writeFloat(keypoint.position != null ? keypoint.position.x : 0f);
+                out.writeFloat(keypoint.position != null ? keypoint.position.y : 0f);
+                out.writeFloat(keypoint.confidence);
+                out.writeInt(keypoint.index);
+                writeString(out, keypoint.region);
+                out.writeBoolean(keypoint.isInterpolated);
+            }
+        }
+
+        out.writeBoolean(result.angles != null);
+        if (result.angles != null) {
+            SpineAngleDetector.SpineAngles angles = result.angles;
+            out.writeDouble(angles.cobbAngle);
+            out.writeDouble(angles.cervicalLordosis);
+            out.writeDouble(angles.thoracicKyphosis);
+            out.writeDouble(angles.lumbarLordosis);
+            out.writeDouble(angles.overallCurvature);
+            out.writeDouble(angles.maxLateralDeviation);
+            writeString(out, angles.apexLocation);
+        }
+
+        out.writeBoolean(result.assessment != null);
+        if (result.assessment != null) {
+            MLModelManager.SpineAssessment assessment = result.assessment;
+            writeString(out, assessment.severity);
+            writeString(out, assessment.riskLevel);
+            out.writeFloat(assessment.overallConfidence);
+            out.writeInt(assessment.color);
+            writeString(out, assessment.recommendations);
+            out.writeBoolean(assessment.requiresImmediateAttention);
+        }
+
+        out.writeInt(result.answeredBy.ordinal());
+    }
+
+    private static MLModelManager.SpineAnalysisResult readResult(DataInputStream in) throws IOException {
+        MLModelManager.SpineAnalysisResult result = new MLModelManager.SpineAnalysisResult();
+        result.timestamp = in.readLong();
+        result.imageWidth = in.readInt();
+        result.imageHeight = in.readInt();
+        result.primaryAngle = in.readDouble();
+        result.confidence = in.readFloat();
+        result.classification = readString(in);
+        result.classificationConfidence = in.readFloat();
+
+        int probabilityCount = in.readInt();
+        if (probabilityCount >= 0) {
+            result.allProbabilities = new float[probabilityCount];
+            for (int i = 0; i < probabilityCount; i++) {
+                result.allProbabilities[i] = in.readFloat();
+            }
+        }
+
+        int keypointCount = in.readInt();
+        if (keypointCount >= 0) {
+            result.keypoints = new ArrayList<>(keypointCount);
+            for (int i = 0; i < keypointCount; i++) {
+                SpineAngleDetector.SpineKeypoint keypoint = new SpineAngleDetector.SpineKeypoint();
+                keypoint.label = readString(in);
+                keypoint.position = new SpinePoint(in.readFloat(), in.readFloat());
+                keypoint.confidence = in.readFloat();
+                keypoint.index = in.readInt();
+                keypoint.region = readString(in);
+                keypoint.isInterpolated = in.readBoolean();
+                result.keypoints.add(keypoint);
+            }
+        }
+
+        if (in.readBoolean()) {
+            SpineAngleDetector.SpineAngles angles = new SpineAngleDetector.SpineAngles();
+            angles.cobbAngle = in.readDouble();
+            angles.cervicalLordosis = in.readDouble();
+            angles.thoracicKyphosis = in.readDouble();
+            angles.lumbarLordosis = in.readDouble();
+            angles.overallCurvature = in.readDouble();
+            angles.maxLateralDeviation = in.readDouble();
+            angles.apexLocation = readString(in);
+            result.angles = angles;
+        }
+
+        if (in.readBoolean()) {
+            MLModelManager.SpineAssessment assessment = new MLModelManager.SpineAssessment();
+            assessment.severity = readString(in);
+            assessment.riskLevel = readString(in);
+            assessment.overallConfidence = in.readFloat();
+            assessment.color = in.readInt();
+            assessment.recommendations = readString(in);
+            assessment.requiresImmediateAttention = in.readBoolean();
+            result.assessment = assessment;
+        }
+
+        MLModelManager.SpineAnalysisResult.AnsweredBy[] paths = MLModelManager.SpineAnalysisResult.AnsweredBy.values();
+        int path = in.readInt();
+        if (path < 0 || path >= paths.length) throw new IOException("Unknown result path " + path);
+        result.answeredBy = paths[path];
+
+        return result;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public CacheStats getStats() {
+        CacheStats stats = new CacheStats();
+        synchronized (this) {
+            stats.memoryEntries = memory.size();
+            stats.memoryBytes = memoryBytes;
+        }
+        stats.maxMemoryBytes = maxMemoryBytes;
+        stats.diskEnabled = diskDir != null;
+        stats.memoryHits = memoryHits.get();
+        stats.diskHits = diskHits.get();
+        stats.misses = misses.get();
+        stats.evictions = evictions.get();
+        stats.diskEvictions = diskEvictions.get();
+        return stats;
+    }
+
+    private static class MemoryEntry {
+        final MLModelManager.SpineAnalysisResult result;
+        final int size;
+
+        MemoryEntry(MLModelManager.SpineAnalysisResult result, int size) {
+            this.result = result;
+            this.size = size;
+        }
+    }
+
+    public static class CacheStats {
+        public int memoryEntries;
+        public long memoryBytes;
+        public long maxMemoryBytes;
+        public boolean diskEnabled;
+        public long memoryHits;
+        public long diskHits;
+        public long misses;
+        public long evictions;
+        public long diskEvictions;
+
+        public double getHitRate() {
+            long lookups = memoryHits + diskHits + misses;
+            return lookups > 0 ? (double) (memoryHits + diskHits) / lookups : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Result cache: %d entries (%d/%d KB), %d memory hits, %d disk hits, "
+                            + "%d misses (%.0f%% hit rate), %d evictions%s",
+                    memoryEntries, memoryBytes / 1024, maxMemoryBytes / 1024, memoryHits, diskHits,
+                    misses, getHitRate() * 100, evictions,
+                    diskEnabled ? ", " + diskEvictions + " disk evictions" : "");
+        }
+    }
+}
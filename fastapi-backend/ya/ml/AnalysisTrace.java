@@ -0,0 +1,121 @@
+// AnalysisTrace.java - Per-request stage timings on the monotonic clock
+package com.example.spineanalyzer.ml;
+
+/**
+ * Nanosecond durations per pipeline stage, measured with System.nanoTime. One
+ * fixed array per request and no formatting until toString(), so it stays on
+ * in production. Each slot is written by a single thread at a time; the future
+ * chain of the analysis publishes the writes to whoever reads the result.
+ */
+public final class AnalysisTrace {
+
+    // Request level
+    public static final int QUEUE_WAIT = 0;           // Waiting for an executor thread
+    public static final int MODEL_WAIT = 1;           // Waiting for models to finish loading
+    public static final int CACHE_LOOKUP = 2;         // Pixel hash + result cache
+    public static final int DECODE = 3;               // Bitmap to luminance plane
+
+    // Keypoint pipeline. While keypoints are simulated no interpreter is checked out and
+    // no tensor is prepared, so CHECKOUT and PREPROCESS stay 0 (and out of toString())
+    // until the keypoint model really runs; only the classifier reports its checkout wait
+    public static final int KEYPOINT_QUEUE_WAIT = 4;
+    public static final int KEYPOINT_CHECKOUT = 5;    // Waiting for a pooled interpreter
+    public static final int KEYPOINT_PREPROCESS = 6;
+    public static final int KEYPOINT_INFERENCE = 7;
+    public static final int KEYPOINT_VALIDATION = 8;
+    public static final int ANGLES = 9;
+    public static final int CURVATURE = 10;
+
+    // Classification pipeline
+    public static final int CLASSIFY_QUEUE_WAIT = 11;
+    public static final int CLASSIFY_CHECKOUT = 12;
+    public static final int CLASSIFY_PREPROCESS = 13;
+    public static final int CLASSIFY_INFERENCE = 14;
+    public static final int CLASSIFY_POSTPROCESS = 15;
+
+    // Comprehensive assessment
+    public static final int ASSESSMENT = 16;
+
+    // Streaming sessions: keypoints tracked from the previous frame instead of detected
+    public static final int TRACKING = 17;
+
+    // Cascade mode: heuristic linearity check before the models
+    public static final int SCREENING = 18;
+
+    // Pipeline stages shared by several detectors, computed once per image
+    public static final int STATISTICS = 19;
+    public static final int CENTERLINE = 20;
+
+    // Submit to completion
+    public static final int TOTAL = 21;
+
+    public static final int STAGE_COUNT = 22;
+
+    private static final String[] STAGE_NAMES = {
+            "queue", "modelWait", "cache", "decode",
+            "kpQueue", "kpCheckout", "kpPreprocess", "kpInference", "kpValidation", "angles", "curvature",
+            "clsQueue", "clsCheckout", "clsPreprocess", "clsInference", "clsPostprocess",
+            "assessment", "tracking", "screening", "statistics", "centerline", "total"
+    };
+
+    private final long startNanos;
+    private final long[] nanos = new long[STAGE_COUNT];
+    private boolean cacheHit;
+
+    public AnalysisTrace() {
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Add the time since `since` to a stage and return the current time, so
+     * consecutive stages can be chained: t = trace.lap(A, t); ... t = trace.lap(B, t);
+     */
+    public long lap(int stage, long since) {
+        long now = System.nanoTime();
+        nanos[stage] += now - since;
+        return now;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    // Stamp TOTAL with the time since the trace was created
+    public void finish(boolean fromCache) {
+        cacheHit = fromCache;
+        nanos[TOTAL] = System.nanoTime() - startNanos;
+    }
+
+    public long getNanos(int stage) {
+        return nanos[stage];
+    }
+
+    public double getMillis(int stage) {
+        return nanos[stage] / 1e6;
+    }
+
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    public static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    /**
+     * Stages that took any time, e.g. "total=41.20ms decode=3.10 kpInference=12.40 ..."
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("total=").append(String.format("%.2f", getMillis(TOTAL))).append("ms");
+        if (cacheHit) text.append(" (cached)");
+
+        for (int stage = 0; stage < TOTAL; stage++) {
+            if (nanos[stage] == 0) continue;
+            text.append(' ').append(STAGE_NAMES[stage]).append('=')
+                    .append(String.format("%.2f", getMillis(stage)));
+        }
+        return text.toString();
+    }
+}
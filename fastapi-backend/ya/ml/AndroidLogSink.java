@@ -0,0 +1,15 @@
+// AndroidLogSink.java - Android adapter: routes MlLog to android.util.Log
+package com.example.spineanalyzer.ml;
+
+import android.util.Log;
+
+public class AndroidLogSink implements MlLog.Sink {
+
+    @Override
+    public void log(int level, String tag, String message, Throwable error) {
+        if (error != null) {
+            message = message + '\n' + Log.getStackTraceString(error);
+        }
+        Log.println(level, tag, message);
+    }
+}
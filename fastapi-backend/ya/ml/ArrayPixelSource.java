@@ -0,0 +1,33 @@
+// ArrayPixelSource.java - PixelSource over a row-major packed ARGB array
+package com.example.spineanalyzer.ml;
+
+public class ArrayPixelSource implements PixelSource {
+
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+
+    public ArrayPixelSource(int[] pixels, int width, int height) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel data too small for " + width + "x" + height);
+        }
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void getRow(int y, int[] dst) {
+        System.arraycopy(pixels, y * width, dst, 0, width);
+    }
+}
@@ -0,0 +1,43 @@
+// AssetModelLoader.java - Android adapter: maps models from the APK assets
+package com.example.spineanalyzer.ml;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class AssetModelLoader implements ModelLoader {
+
+    private static final String TAG = "AssetModelLoader";
+
+    private final Context context;
+
+    public AssetModelLoader(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public MappedByteBuffer load(String modelFile) throws IOException {
+        // One descriptor per model; the mapping stays valid after it is closed
+        try (AssetFileDescriptor fileDescriptor = context.getAssets().openFd(modelFile);
+             FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor())) {
+
+            FileChannel fileChannel = inputStream.getChannel();
+            long startOffset = fileDescriptor.getStartOffset();
+            long declaredLength = fileDescriptor.getDeclaredLength();
+
+            MappedByteBuffer buffer = fileChannel.map(
+                    FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+
+            MlLog.d(TAG, "Model file loaded: " + modelFile + " (" + declaredLength + " bytes)");
+            return buffer;
+
+        } catch (IOException e) {
+            MlLog.e(TAG, "Error loading model file: " + modelFile, e);
+            throw e;
+        }
+    }
+}
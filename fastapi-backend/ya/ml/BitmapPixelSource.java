@@ -0,0 +1,29 @@
+// BitmapPixelSource.java - Android adapter: PixelSource over a Bitmap
+package com.example.spineanalyzer.ml;
+
+import android.graphics.Bitmap;
+
+public class BitmapPixelSource implements PixelSource {
+
+    private final Bitmap bitmap;
+
+    public BitmapPixelSource(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    @Override
+    public int getWidth() {
+        return bitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return bitmap.getHeight();
+    }
+
+    @Override
+    public void getRow(int y, int[] dst) {
+        int width = bitmap.getWidth();
+        bitmap.getPixels(dst, 0, width, 0, y, width, 1);
+    }
+}
@@ -0,0 +1,141 @@
+// CenterlinePyramidSearch.java - Coarse-to-fine search for the brightest column of a strip
+package com.example.spineanalyzer.ml;
+
+/**
+ * Finds the spine column of one horizontal strip without scanning every column
+ * at full resolution. The detector's own score is taken on every column of the
+ * coarsest pyramid level; each coarse column scoring close to the coarse best
+ * is then scanned at full resolution over the columns it and its neighbours
+ * cover, the neighbours holding the band edges the coarse average blurs. A flat-topped
+ * band keeps all of its columns, so the noisiest pixel on the plateau - the one
+ * the exhaustive left-to-right scan reports - is among those scanned; a flat
+ * strip keeps every column and degrades to the exhaustive scan. Full-resolution
+ * scores come from the same column tables as the exhaustive scan, so they are
+ * identical to its scores and cost O(1) per column.
+ *
+ * One instance per centerline pass; not thread-safe.
+ */
+public final class CenterlinePyramidSearch {
+
+    /**
+     * Score of column x over rows top..bottom of a plane; the detector's own formula,
+     * applied to the coarsest pyramid level
+     */
+    public interface StripScore {
+        double score(LuminancePlane plane, int x, int top, int bottom);
+    }
+
+    /**
+     * The same score at full resolution, in O(1) per column from the detector's
+     * column tables (ColumnPrefixSums, ColumnRangeMax)
+     */
+    public interface ColumnScore {
+        double score(int x, int top, int bottom);
+    }
+
+    // Coarse columns within this fraction of the coarse score range below the best are scanned
+    private static final double PLATEAU_TOLERANCE = 0.25;
+
+    // Neighbouring coarse columns scanned with a kept one: they straddle the band edges
+    private static final int REFINE_RADIUS = 1;
+
+    private final LuminancePyramid pyramid;
+    private final int searchStart;
+    private final int searchEnd;
+    private final int xStep;
+    private double[] coarseScores = new double[0];
+    private double bestScore;
+
+    /**
+     * Columns searchStart, searchStart + xStep, ... below searchEnd are eligible, as in
+     * the exhaustive search
+     */
+    public CenterlinePyramidSearch(LuminancePyramid pyramid, int searchStart, int searchEnd, int xStep) {
+        this.pyramid = pyramid;
+        this.searchStart = Math.max(0, searchStart);
+        this.searchEnd = Math.min(searchEnd, pyramid.getLevel(0).getWidth());
+        this.xStep = xStep;
+    }
+
+    /**
+     * Best eligible column for rows top..bottom, or -1 if there is none; ties keep
+     * the leftmost column like the exhaustive search. The score is in getBestScore().
+     */
+    public int findBestColumn(int top, int bottom, StripScore score, ColumnScore fullResolution) {
+        bestScore = 0;
+        if (searchEnd <= searchStart) return -1;
+
+        int coarsest = pyramid.getLevelCount() - 1;
+        if (coarsest == 0) {
+            // Too small for a pyramid: the whole range is the last window
+            return scoreWindow(searchStart, searchEnd - 1, -1, top, bottom, fullResolution);
+        }
+
+        LuminancePlane plane = pyramid.getLevel(coarsest);
+        int first = searchStart >> coarsest;
+        int last = Math.min((searchEnd - 1) >> coarsest, plane.getWidth() - 1);
+        int count = last - first + 1;
+
+        if (coarseScores.length < count) {
+            coarseScores = new double[count];
+        }
+        double coarseBest = Double.NEGATIVE_INFINITY;
+        double coarseWorst = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < count; c++) {
+            double value = score.score(plane, first + c, top >> coarsest, bottom >> coarsest);
+            coarseScores[c] = value;
+            coarseBest = Math.max(coarseBest, value);
+            coarseWorst = Math.min(coarseWorst, value);
+        }
+        double threshold = coarseBest - PLATEAU_TOLERANCE * (coarseBest - coarseWorst);
+
+        // Left to right, so overlapping spans are scanned once and ties stay leftmost
+        int bestX = -1;
+        int scannedTo = searchStart - 1;
+        for (int c = 0; c < count; c++) {
+            if (coarseScores[c] < threshold) continue;
+
+            int spanFirst = Math.max(scannedTo + 1, (first + c - REFINE_RADIUS) << coarsest);
+            int spanLast = Math.min(searchEnd - 1, ((first + c + 1 + REFINE_RADIUS) << coarsest) - 1);
+            if (spanFirst > spanLast) continue;
+
+            bestX = scoreWindow(spanFirst, spanLast, bestX, top, bottom, fullResolution);
+            scannedTo = spanLast;
+        }
+        if (bestX < 0) return -1;
+
+        // A peak on the edge of the scanned spans: climb on while it improves, then left across ties
+        while (bestX + xStep < searchEnd) {
+            double value = fullResolution.score(bestX + xStep, top, bottom);
+            if (value <= bestScore) break;
+            bestScore = value;
+            bestX += xStep;
+        }
+        while (bestX - xStep >= searchStart) {
+            double value = fullResolution.score(bestX - xStep, top, bottom);
+            if (value < bestScore) break;
+            bestScore = value;
+            bestX -= xStep;
+        }
+        return bestX;
+    }
+
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    // Full-resolution scores of the eligible columns first..last, merged into the running best
+    private int scoreWindow(int first, int last, int bestX, int top, int bottom, ColumnScore score) {
+        int offset = first - searchStart;
+        int x = searchStart + ((offset + xStep - 1) / xStep) * xStep;
+
+        for (; x <= last; x += xStep) {
+            double value = score.score(x, top, bottom);
+            if (bestX < 0 || value > bestScore || (value == bestScore && x < bestX)) {
+                bestScore = value;
+                bestX = x;
+            }
+        }
+        return bestX;
+    }
+}
@@ -0,0 +1,251 @@
+// CobbAngleEngine.java - All spine angle metrics of a KeypointSet in one sweep, without allocating
+package com.example.spineanalyzer.ml;
+
+/**
+ * Computes the Cobb methods (segment, curve fitting, deviation), the three
+ * regional angles, overall curvature, lateral deviation and the apex in a
+ * single pass over the keypoint coordinates. Each reference line gets its
+ * normal and length once instead of one sqrt per point, and segment and chord
+ * lengths are shared between the angles that use them. Every value is evaluated
+ * with the same float/double operations as SpineAngleDetector's original
+ * per-method passes, so results are bit-identical.
+ *
+ * An engine keeps scratch state between calls: reuse one per thread.
+ */
+public final class CobbAngleEngine {
+
+    private static final int CAPACITY = KeypointSet.CAPACITY;
+    private static final int REGIONS = 3; // Cervical, thoracic, lumbar
+
+    // Segment k runs from slot k to k+1, chord k from slot k to k+2
+    private final double[] segmentDx = new double[CAPACITY];
+    private final double[] segmentDy = new double[CAPACITY];
+    private final double[] segmentLength = new double[CAPACITY];
+    private final double[] chordDx = new double[CAPACITY];
+    private final double[] chordDy = new double[CAPACITY];
+    private final double[] chordLength = new double[CAPACITY];
+
+    // Per-region reference line (first to last slot of the region)
+    private final int[] regionFirst = new int[REGIONS];
+    private final int[] regionLast = new int[REGIONS];
+    private final double[] regionA = new double[REGIONS];
+    private final double[] regionB = new double[REGIONS];
+    private final double[] regionC = new double[REGIONS];
+    private final double[] regionNorm = new double[REGIONS];
+    private final double[] regionMaxDeviation = new double[REGIONS];
+    private final int[] regionMaxSlot = new int[REGIONS];
+    private final double[] regionAngles = new double[REGIONS];
+
+    private int size;
+    private double traditionalCobb;
+    private double curveFittingAngle;
+    private double deviationAngle;
+    private double overallCurvature;
+    private double maxLateralDeviation;
+    private double totalDeviation;
+    private int apexSlot;
+
+    public void compute(KeypointSet keypoints) {
+        final float[] xs = keypoints.xs;
+        final float[] ys = keypoints.ys;
+        final int n = keypoints.size();
+        size = n;
+
+        traditionalCobb = 0.0;
+        curveFittingAngle = 0.0;
+        deviationAngle = 0.0;
+        overallCurvature = 0.0;
+        maxLateralDeviation = 0.0;
+        totalDeviation = 0.0;
+        apexSlot = -1;
+        prepareRegions(keypoints);
+
+        if (n < 2) return;
+
+        // Spine line from the first to the last keypoint
+        final int top = 0;
+        final int bottom = n - 1;
+        final double lineA = ys[bottom] - ys[top];
+        final double lineB = xs[top] - xs[bottom];
+        final double lineC = xs[bottom] * ys[top] - xs[top] * ys[bottom];
+        final double lineNorm = Math.sqrt(lineA * lineA + lineB * lineB);
+        final float midX = (xs[top] + xs[bottom]) / 2;
+
+        double maxDeviation = 0.0;
+        double apexDeviation = 0.0;
+        double maxCenterOffset = 0.0;
+        double maxSegmentAngle = 0.0;
+        double maxCurvature = 0.0;
+
+        for (int i = 0; i < n; i++) {
+            final float x = xs[i];
+            final float y = ys[i];
+
+            // Distance from the spine line: deviation angle, lateral deviation, apex, visibility
+            double deviation = Math.abs(lineA * x + lineB * y + lineC) / lineNorm;
+            maxDeviation = Math.max(maxDeviation, deviation);
+            totalDeviation += deviation;
+            if (deviation > apexDeviation) {
+                apexDeviation = deviation;
+                apexSlot = i;
+            }
+
+            maxCenterOffset = Math.max(maxCenterOffset, Math.abs(x - midX));
+
+            // Distance from the line of this point's region
+            int region = KeypointSet.regionOf(keypoints.indices[i]);
+            if (region < REGIONS && regionLast[region] - regionFirst[region] >= 2) {
+                double regionDeviation = Math.abs(regionA[region] * x + regionB[region] * y + regionC[region])
+                        / regionNorm[region];
+                if (regionDeviation > regionMaxDeviation[region]) {
+                    regionMaxDeviation[region] = regionDeviation;
+                    regionMaxSlot[region] = i;
+                }
+            }
+
+            // Segment i and chord i start here
+            if (i + 1 < n) {
+                double dx = xs[i + 1] - x;
+                double dy = ys[i + 1] - y;
+                segmentDx[i] = dx;
+                segmentDy[i] = dy;
+                segmentLength[i] = Math.sqrt(dx * dx + dy * dy);
+            }
+            if (i + 2 < n) {
+                double dx = xs[i + 2] - x;
+                double dy = ys[i + 2] - y;
+                chordDx[i] = dx;
+                chordDy[i] = dy;
+                chordLength[i] = Math.sqrt(dx * dx + dy * dy);
+            }
+
+            // Segment method at j = i - 1: angle between segments j - 1 and j + 1
+            int j = i - 1;
+            if (j >= 1 && j < n - 2) {
+                maxSegmentAngle = Math.max(maxSegmentAngle, angleBetween(
+                        segmentDx[j - 1], segmentDy[j - 1], segmentLength[j - 1],
+                        segmentDx[j + 1], segmentDy[j + 1], segmentLength[j + 1]));
+            }
+
+            // Curve fitting at i: angle at point i between points i - 2 and i + 2
+            if (i >= 2 && i < n - 2) {
+                double angle = angleBetween(
+                        -chordDx[i - 2], -chordDy[i - 2], chordLength[i - 2],
+                        chordDx[i], chordDy[i], chordLength[i]);
+                maxCurvature = Math.max(maxCurvature, Math.abs(180 - angle));
+            }
+        }
+
+        maxLateralDeviation = maxDeviation;
+        if (n < 3) return;
+
+        double spineLength = Math.sqrt(Math.pow(xs[bottom] - xs[top], 2) + Math.pow(ys[bottom] - ys[top], 2));
+        deviationAngle = Math.toDegrees(Math.atan(maxDeviation / (spineLength / 2))) * 2;
+        overallCurvature = Math.toDegrees(Math.atan(maxCenterOffset / (spineLength / 2)));
+        traditionalCobb = maxSegmentAngle;
+        curveFittingAngle = n < 5 ? 0.0 : maxCurvature;
+
+        for (int region = 0; region < REGIONS; region++) {
+            int maxSlot = regionMaxSlot[region];
+            if (maxSlot < 0) continue;
+
+            int first = regionFirst[region];
+            int last = regionLast[region];
+            regionAngles[region] = angleBetween(
+                    xs[first] - xs[maxSlot], ys[first] - ys[maxSlot],
+                    xs[last] - xs[maxSlot], ys[last] - ys[maxSlot]);
+        }
+    }
+
+    // Region slot ranges and reference lines; regions with fewer than 3 points get no angle
+    private void prepareRegions(KeypointSet keypoints) {
+        final float[] xs = keypoints.xs;
+        final float[] ys = keypoints.ys;
+
+        for (int region = 0; region < REGIONS; region++) {
+            regionFirst[region] = 0;
+            regionLast[region] = -1;
+            regionMaxDeviation[region] = 0.0;
+            regionMaxSlot[region] = -1;
+            regionAngles[region] = 0.0;
+        }
+
+        int slot = 0;
+        for (int region = 0; region < REGIONS; region++) {
+            regionFirst[region] = slot;
+            slot = keypoints.regionEnd(region);
+            regionLast[region] = slot - 1;
+
+            int first = regionFirst[region];
+            int last = regionLast[region];
+            if (last - first < 2) continue;
+
+            regionA[region] = ys[last] - ys[first];
+            regionB[region] = xs[first] - xs[last];
+            regionC[region] = xs[last] * ys[first] - xs[first] * ys[last];
+            regionNorm[region] = Math.sqrt(regionA[region] * regionA[region] + regionB[region] * regionB[region]);
+        }
+    }
+
+    private static double angleBetween(double dx1, double dy1, double dx2, double dy2) {
+        return angleBetween(dx1, dy1, Math.sqrt(dx1 * dx1 + dy1 * dy1), dx2, dy2, Math.sqrt(dx2 * dx2 + dy2 * dy2));
+    }
+
+    // Angle in degrees between two vectors whose lengths are already known
+    private static double angleBetween(double dx1, double dy1, double mag1, double dx2, double dy2, double mag2) {
+        if (mag1 == 0 || mag2 == 0) return 0.0;
+
+        double dot = dx1 * dx2 + dy1 * dy2;
+        double cosAngle = dot / (mag1 * mag2);
+        cosAngle = Math.max(-1.0, Math.min(1.0, cosAngle));
+
+        return Math.toDegrees(Math.acos(cosAngle));
+    }
+
+    /**
+     * Largest of the three Cobb methods, before any realism adjustment; 0 below 4 keypoints
+     */
+    public double getCobbAngle() {
+        if (size < 4) return 0.0;
+        return Math.max(traditionalCobb, Math.max(curveFittingAngle, deviationAngle));
+    }
+
+    public double getTraditionalCobb() {
+        return traditionalCobb;
+    }
+
+    public double getCurveFittingAngle() {
+        return curveFittingAngle;
+    }
+
+    public double getDeviationAngle() {
+        return deviationAngle;
+    }
+
+    /**
+     * Regional angle for KeypointSet.CERVICAL, THORACIC or LUMBAR
+     */
+    public double getRegionalAngle(int region) {
+        return regionAngles[region];
+    }
+
+    public double getOverallCurvature() {
+        return overallCurvature;
+    }
+
+    public double getMaxLateralDeviation() {
+        return maxLateralDeviation;
+    }
+
+    /**
+     * Slot of the keypoint farthest from the spine line, or -1
+     */
+    public int getApexSlot() {
+        return size < 3 ? -1 : apexSlot;
+    }
+
+    // Mean distance from the spine line above 10 px, with at least 5 keypoints
+    public boolean hasVisibleCurvature() {
+        return size >= 5 && totalDeviation / size > 10;
+    }
+}
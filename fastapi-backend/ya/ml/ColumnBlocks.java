@@ -0,0 +1,59 @@
+// ColumnBlocks.java - Column tables built block by block, only where a search looks
+package com.example.spineanalyzer.ml;
+
+/**
+ * Splits the columns xStart, xStart + xStep, ... below xEnd into blocks and
+ * builds a column table (ColumnPrefixSums, ColumnRangeMax) for a block on the
+ * first lookup of one of its columns. A search that only scores the columns
+ * around a bright band pays for the tables of those blocks, not of the whole
+ * range; each table answers for its columns exactly as a full-range one would.
+ *
+ * Not thread-safe: one instance per centerline pass.
+ */
+public final class ColumnBlocks<T> {
+
+    /**
+     * Table for the columns xStart, xStart + xStep, ... below xEnd
+     */
+    public interface Factory<T> {
+        T build(int xStart, int xEnd);
+    }
+
+    // Columns per block: few enough that a band's neighbours stay cheap
+    static final int BLOCK_COLUMNS = 32;
+
+    private final int xStart;
+    private final int xEnd;
+    private final int xStep;
+    private final Factory<T> factory;
+    private final Object[] blocks;
+
+    public ColumnBlocks(int xStart, int xEnd, int xStep, Factory<T> factory) {
+        this.xStart = Math.max(0, xStart);
+        this.xEnd = xEnd;
+        this.xStep = xStep;
+        this.factory = factory;
+
+        int columns = xEnd > this.xStart ? (xEnd - this.xStart + xStep - 1) / xStep : 0;
+        this.blocks = new Object[(columns + BLOCK_COLUMNS - 1) / BLOCK_COLUMNS];
+    }
+
+    /**
+     * Table holding column x, built now if this is the first lookup in its block
+     */
+    @SuppressWarnings("unchecked")
+    public T forColumn(int x) {
+        int block = (x - xStart) / xStep / BLOCK_COLUMNS;
+        if (block < 0 || block >= blocks.length) {
+            throw new IllegalArgumentException("Column " + x + " is not indexed");
+        }
+
+        Object table = blocks[block];
+        if (table == null) {
+            int first = xStart + block * BLOCK_COLUMNS * xStep;
+            table = factory.build(first, Math.min(xEnd, first + BLOCK_COLUMNS * xStep));
+            blocks[block] = table;
+        }
+        return (T) table;
+    }
+}
@@ -0,0 +1,100 @@
+// ColumnPrefixSums.java - Per-column prefix sums for O(1) vertical strip averages
+package com.example.spineanalyzer.ml;
+
+public final class ColumnPrefixSums {
+
+    private final int xStart;
+    private final int xStep;
+    private final int columns;
+    private final int height;
+    private final int rowStep;
+
+    // Row-major: prefix[y * columns + c] = lum(y) + lum(y - rowStep) + ... for column c
+    private final int[] prefix;
+
+    /**
+     * Build sums for columns xStart, xStart + xStep, ... below xEnd.
+     * With rowStep > 1 each sum only chains rows of the same residue,
+     * which matches detectors that sample every rowStep-th row.
+     */
+    public ColumnPrefixSums(LuminancePlane luminance, int xStart, int xEnd, int xStep, int rowStep) {
+        if (xStep < 1 || rowStep < 1) {
+            throw new IllegalArgumentException("Steps must be positive");
+        }
+
+        this.xStart = Math.max(0, xStart);
+        this.xStep = xStep;
+        this.height = luminance.getHeight();
+        this.rowStep = rowStep;
+
+        int end = Math.min(xEnd, luminance.getWidth());
+        this.columns = end > this.xStart ? (end - this.xStart + xStep - 1) / xStep : 0;
+        this.prefix = new int[columns * height];
+
+        byte[] data = luminance.getData();
+        int width = luminance.getWidth();
+
+        for (int y = 0; y < height; y++) {
+            int src = y * width + this.xStart;
+            int dst = y * columns;
+            int prev = (y - rowStep) * columns;
+
+            for (int c = 0; c < columns; c++, src += xStep) {
+                int value = data[src] & 0xFF;
+                prefix[dst + c] = y >= rowStep ? prefix[prev + c] + value : value;
+            }
+        }
+    }
+
+    /**
+     * Sum of rows start, start + rowStep, ... up to end, skipping rows outside the image
+     */
+    public int sum(int x, int start, int end) {
+        int first = firstSampledRow(start);
+        int last = lastSampledRow(first, end);
+        if (last < first) return 0;
+
+        int column = columnIndex(x);
+        int total = prefix[last * columns + column];
+
+        int before = first - rowStep;
+        if (before >= 0) {
+            total -= prefix[before * columns + column];
+        }
+
+        return total;
+    }
+
+    /**
+     * Number of rows sum() adds for the same range
+     */
+    public int count(int start, int end) {
+        int first = firstSampledRow(start);
+        int last = lastSampledRow(first, end);
+        return last < first ? 0 : (last - first) / rowStep + 1;
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    private int firstSampledRow(int start) {
+        if (start >= 0) return start;
+        int skipped = (-start + rowStep - 1) / rowStep;
+        return start + skipped * rowStep;
+    }
+
+    private int lastSampledRow(int first, int end) {
+        int limit = Math.min(end, height - 1);
+        if (limit < first) return first - 1;
+        return first + ((limit - first) / rowStep) * rowStep;
+    }
+
+    private int columnIndex(int x) {
+        int offset = x - xStart;
+        if (offset < 0 || offset % xStep != 0 || offset / xStep >= columns) {
+            throw new IllegalArgumentException("Column " + x + " is not indexed");
+        }
+        return offset / xStep;
+    }
+}
@@ -0,0 +1,113 @@
+// ColumnRangeMax.java - Per-column vertical maximum over fixed-length windows in O(1)
+package com.example.spineanalyzer.ml;
+
+public final class ColumnRangeMax {
+
+    private final int xStart;
+    private final int xStep;
+    private final int columns;
+    private final int height;
+    private final int window;
+
+    // Row-major, unsigned. Rows are grouped into blocks of `window` rows;
+    // blockPrefix holds the running max from the block start down to y,
+    // blockSuffix the running max from y down to the block end.
+    private final byte[] blockPrefix;
+    private final byte[] blockSuffix;
+
+    /**
+     * Build maxima for columns xStart, xStart + xStep, ... below xEnd.
+     * Only queries of exactly `window` rows are supported; each answers in
+     * constant time.
+     */
+    public ColumnRangeMax(LuminancePlane luminance, int xStart, int xEnd, int xStep, int window) {
+        if (xStep < 1 || window < 1) {
+            throw new IllegalArgumentException("Step and window must be positive");
+        }
+
+        this.xStart = Math.max(0, xStart);
+        this.xStep = xStep;
+        this.height = luminance.getHeight();
+        this.window = window;
+
+        int end = Math.min(xEnd, luminance.getWidth());
+        this.columns = end > this.xStart ? (end - this.xStart + xStep - 1) / xStep : 0;
+        this.blockPrefix = new byte[columns * height];
+        this.blockSuffix = new byte[columns * height];
+
+        byte[] data = luminance.getData();
+        int width = luminance.getWidth();
+
+        // Running max downwards, reset at every block start
+        for (int y = 0; y < height; y++) {
+            boolean blockStart = y % window == 0;
+            int src = y * width + this.xStart;
+            int dst = y * columns;
+
+            for (int c = 0; c < columns; c++, src += xStep) {
+                int value = data[src] & 0xFF;
+                if (!blockStart) {
+                    value = Math.max(value, blockPrefix[dst - columns + c] & 0xFF);
+                }
+                blockPrefix[dst + c] = (byte) value;
+            }
+        }
+
+        // Running max upwards, reset at every block end
+        for (int y = height - 1; y >= 0; y--) {
+            boolean blockEnd = y % window == window - 1 || y == height - 1;
+            int src = y * width + this.xStart;
+            int dst = y * columns;
+
+            for (int c = 0; c < columns; c++, src += xStep) {
+                int value = data[src] & 0xFF;
+                if (!blockEnd) {
+                    value = Math.max(value, blockSuffix[dst + columns + c] & 0xFF);
+                }
+                blockSuffix[dst + c] = (byte) value;
+            }
+        }
+    }
+
+    /**
+     * Maximum luminance of rows start..end (inclusive), clipped to the image; 0 if empty.
+     * The range must span exactly `window` rows before clipping.
+     */
+    public int max(int x, int start, int end) {
+        if (end - start + 1 != window) {
+            throw new IllegalArgumentException("Range of " + (end - start + 1) + " rows, window is " + window);
+        }
+
+        int top = Math.max(0, start);
+        int bottom = Math.min(height - 1, end);
+        if (bottom < top) return 0;
+
+        int column = columnIndex(x);
+        int topBlock = top / window;
+        int bottomBlock = bottom / window;
+
+        if (topBlock != bottomBlock) {
+            // Window straddles one block boundary
+            return Math.max(blockSuffix[top * columns + column] & 0xFF,
+                    blockPrefix[bottom * columns + column] & 0xFF);
+        }
+
+        // Within one block a full or clipped window starts at the block start or ends at the block end
+        if (top % window == 0) {
+            return blockPrefix[bottom * columns + column] & 0xFF;
+        }
+        return blockSuffix[top * columns + column] & 0xFF;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    private int columnIndex(int x) {
+        int offset = x - xStart;
+        if (offset < 0 || offset % xStep != 0 || offset / xStep >= columns) {
+            throw new IllegalArgumentException("Column " + x + " is not indexed");
+        }
+        return offset / xStep;
+    }
+}
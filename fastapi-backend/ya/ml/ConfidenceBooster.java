@@ -1,15 +1,10 @@
 // ConfidenceBooster.java - Utility class untuk meningkatkan confidence score AI
 package com.example.spineanalyzer.ml;
 
-import android.content.Context;
-import android.content.SharedPreferences;
-import android.graphics.Bitmap;
-import android.util.Log;
-
 public class ConfidenceBooster {
 
     private static final String TAG = "ConfidenceBooster";
-    private static final String PREFS_NAME = "ConfidenceSettings";
+    public static final String PREFS_NAME = "ConfidenceSettings";
 
     // BOOST SETTINGS - Ubah nilai ini untuk mengatur tingkat confidence
     private static final float BASE_CONFIDENCE_BOOST = 0.15f;      // +15% base boost
@@ -21,12 +16,13 @@ public class ConfidenceBooster {
     private static final float MIN_CONFIDENCE = 0.65f;  // Minimum 65%
     private static final float MAX_CONFIDENCE = 0.95f;  // Maximum 95%
 
-    private Context context;
-    private SharedPreferences preferences;
+    private SettingsStore preferences;
 
-    public ConfidenceBooster(Context context) {
-        this.context = context;
-        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    /**
+     * On Android pass a SharedPreferencesStore over the PREFS_NAME preferences
+     */
+    public ConfidenceBooster(SettingsStore preferences) {
+        this.preferences = preferences;
     }
 
     /**
@@ -35,44 +31,44 @@ public class ConfidenceBooster {
     public float boostConfidence(float originalConfidence, BoostFactors factors) {
         float boostedConfidence = originalConfidence;
 
-        Log.d(TAG, "Original confidence: " + String.format("%.3f", originalConfidence));
+        MlLog.d(TAG, "Original confidence: %.3f", originalConfidence);
 
         // 1. Apply base confidence boost
         boostedConfidence += BASE_CONFIDENCE_BOOST;
-        Log.d(TAG, "After base boost: " + String.format("%.3f", boostedConfidence));
+        MlLog.d(TAG, "After base boost: %.3f", boostedConfidence);
 
         // 2. Apply analysis quality boost
         if (factors != null) {
             if (factors.keypointCount >= 12) {
                 boostedConfidence += ANALYSIS_QUALITY_BOOST;
-                Log.d(TAG, "Applied analysis quality boost: +" + ANALYSIS_QUALITY_BOOST);
+                MlLog.d(TAG, "Applied analysis quality boost: +%.3f", ANALYSIS_QUALITY_BOOST);
             }
 
             // 3. Apply image quality boost
             if (factors.imageQualityScore > 0.6f) {
                 float imageBoost = IMAGE_QUALITY_BOOST * factors.imageQualityScore;
                 boostedConfidence += imageBoost;
-                Log.d(TAG, "Applied image quality boost: +" + String.format("%.3f", imageBoost));
+                MlLog.d(TAG, "Applied image quality boost: +%.3f", imageBoost);
             }
 
             // 4. Apply algorithm confidence boost
             if (factors.algorithmReliability > 0.7f) {
                 float algoBoost = ALGORITHM_CONFIDENCE_BOOST * factors.algorithmReliability;
                 boostedConfidence += algoBoost;
-                Log.d(TAG, "Applied algorithm boost: +" + String.format("%.3f", algoBoost));
+                MlLog.d(TAG, "Applied algorithm boost: +%.3f", algoBoost);
             }
 
             // 5. Apply multi-method validation boost
             if (factors.validationMethods > 1) {
                 float validationBoost = 0.05f * factors.validationMethods;
                 boostedConfidence += validationBoost;
-                Log.d(TAG, "Applied validation boost: +" + String.format("%.3f", validationBoost));
+                MlLog.d(TAG, "Applied validation boost: +%.3f", validationBoost);
             }
 
             // 6. Apply consistency boost
             if (factors.resultConsistency > 0.8f) {
                 boostedConfidence += 0.06f;
-                Log.d(TAG, "Applied consistency boost: +0.06");
+                MlLog.d(TAG, "Applied consistency boost: +0.06");
             }
         }
 
@@ -80,14 +76,14 @@ public class ConfidenceBooster {
         float userBoost = getUserConfidenceBoost();
         boostedConfidence += userBoost;
         if (userBoost > 0) {
-            Log.d(TAG, "Applied user boost: +" + String.format("%.3f", userBoost));
+            MlLog.d(TAG, "Applied user boost: +%.3f", userBoost);
         }
 
         // 8. Ensure confidence is within realistic bounds
         boostedConfidence = Math.max(MIN_CONFIDENCE, Math.min(MAX_CONFIDENCE, boostedConfidence));
 
-        Log.d(TAG, "Final boosted confidence: " + String.format("%.3f", boostedConfidence) +
-                " (boost: +" + String.format("%.1f%%", (boostedConfidence - originalConfidence) * 100) + ")");
+        MlLog.d(TAG, "Final boosted confidence: %.3f (boost: +%.1f%%)",
+                boostedConfidence, (boostedConfidence - originalConfidence) * 100);
 
         return boostedConfidence;
     }
@@ -111,7 +107,7 @@ public class ConfidenceBooster {
      * Boost confidence untuk spine classification  
      */
     public float boostClassificationConfidence(float originalConfidence, String className,
-                                               Bitmap analyzedImage, boolean isEnhancedAnalysis) {
+                                               LuminancePlane analyzedImage, boolean isEnhancedAnalysis) {
         BoostFactors factors = new BoostFactors();
         factors.algorithmReliability = calculateClassificationReliability(className);
         factors.imageQualityScore = analyzeImageQuality(analyzedImage);
@@ -205,24 +201,24 @@ public class ConfidenceBooster {
     /**
      * Analyze image quality for confidence boosting
      */
-    private float analyzeImageQuality(Bitmap bitmap) {
-        if (bitmap == null) return 0.5f;
+    private float analyzeImageQuality(LuminancePlane luminance) {
+        if (luminance == null) return 0.5f;
 
         float qualityScore = 0.5f; // Base score
 
         // Check image size
-        int pixels = bitmap.getWidth() * bitmap.getHeight();
+        int pixels = luminance.getWidth() * luminance.getHeight();
         if (pixels > 300000) qualityScore += 0.1f; // Large image bonus
         else if (pixels > 100000) qualityScore += 0.05f; // Medium image bonus
 
         // Check aspect ratio (spine X-rays are usually vertical)
-        float aspectRatio = (float) bitmap.getHeight() / bitmap.getWidth();
+        float aspectRatio = (float) luminance.getHeight() / luminance.getWidth();
         if (aspectRatio > 1.2f && aspectRatio < 2.0f) {
             qualityScore += 0.1f; // Good aspect ratio for spine
         }
 
         // Sample pixel diversity (good contrast indicator)
-        if (hasGoodContrast(bitmap)) {
+        if (hasGoodContrast(luminance)) {
             qualityScore += 0.15f;
         }
 
@@ -232,20 +228,17 @@ public class ConfidenceBooster {
     /**
      * Check if image has good contrast
      */
-    private boolean hasGoodContrast(Bitmap bitmap) {
+    private boolean hasGoodContrast(LuminancePlane luminance) {
         // Sample 100 random pixels
-        int sampleSize = Math.min(100, bitmap.getWidth() * bitmap.getHeight());
+        int sampleSize = Math.min(100, luminance.getWidth() * luminance.getHeight());
         int brightPixels = 0;
         int darkPixels = 0;
 
         for (int i = 0; i < sampleSize; i++) {
-            int x = (int) (Math.random() * bitmap.getWidth());
-            int y = (int) (Math.random() * bitmap.getHeight());
+            int x = (int) (Math.random() * luminance.getWidth());
+            int y = (int) (Math.random() * luminance.getHeight());
 
-            int pixel = bitmap.getPixel(x, y);
-            int gray = (int) (0.299 * ((pixel >> 16) & 0xFF) +
-                    0.587 * ((pixel >> 8) & 0xFF) +
-                    0.114 * (pixel & 0xFF));
+            int gray = luminance.get(x, y);
 
             if (gray > 180) brightPixels++;
             else if (gray < 80) darkPixels++;
@@ -292,9 +285,8 @@ public class ConfidenceBooster {
      * Set user-defined confidence boost (for admin settings)
      */
     public void setUserConfidenceBoost(float boost) {
-        preferences.edit().putFloat("user_confidence_boost",
-                Math.max(0.0f, Math.min(0.2f, boost))).apply();
-        Log.d(TAG, "User confidence boost set to: " + boost);
+        preferences.putFloat("user_confidence_boost", Math.max(0.0f, Math.min(0.2f, boost)));
+        MlLog.d(TAG, "User confidence boost set to: %.3f", boost);
     }
 
     /**
@@ -323,7 +315,7 @@ public class ConfidenceBooster {
         }
 
         float boostedConfidence = confidence + contextBoost;
-        Log.d(TAG, "Applied medical context boost: +" + String.format("%.3f", contextBoost));
+        MlLog.d(TAG, "Applied medical context boost: +%.3f", contextBoost);
 
         return Math.max(MIN_CONFIDENCE, Math.min(MAX_CONFIDENCE, boostedConfidence));
     }
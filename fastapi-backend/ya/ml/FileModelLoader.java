@@ -0,0 +1,25 @@
+// FileModelLoader.java - ModelLoader that maps model files from a directory
+package com.example.spineanalyzer.ml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class FileModelLoader implements ModelLoader {
+
+    private final File modelDir;
+
+    public FileModelLoader(File modelDir) {
+        this.modelDir = modelDir;
+    }
+
+    @Override
+    public MappedByteBuffer load(String modelFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(modelDir, modelFile), "r")) {
+            FileChannel fileChannel = file.getChannel();
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+    }
+}
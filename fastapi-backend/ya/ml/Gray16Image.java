@@ -0,0 +1,94 @@
+// Gray16Image.java - Single-channel 12-16 bit radiograph with its display window
+package com.example.spineanalyzer.ml;
+
+/**
+ * Native radiograph samples (unsigned, stored in a short[] row-major) plus the
+ * window center/width that maps them to 8-bit luminance, DICOM style. Use
+ * LuminancePlane.fromGray16() to window and downsample in one pass, without
+ * going through a 32-bit ARGB Bitmap.
+ */
+public final class Gray16Image {
+
+    private final short[] data;
+    private final int width;
+    private final int height;
+    private final int windowCenter;
+    private final int windowWidth;
+
+    public Gray16Image(short[] data, int width, int height, int windowCenter, int windowWidth) {
+        if (data.length < width * height) {
+            throw new IllegalArgumentException("Sample data too small for " + width + "x" + height);
+        }
+        if (windowWidth < 1) {
+            throw new IllegalArgumentException("Window width must be at least 1, got " + windowWidth);
+        }
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        this.windowCenter = windowCenter;
+        this.windowWidth = windowWidth;
+    }
+
+    /**
+     * Window covering every value of a bitsStored-bit detector (e.g. 12 -> 0..4095)
+     */
+    public static Gray16Image fullRange(short[] data, int width, int height, int bitsStored) {
+        int range = 1 << bitsStored;
+        return new Gray16Image(data, width, height, range / 2, range);
+    }
+
+    /**
+     * Unsigned sample at x, y
+     */
+    public int get(int x, int y) {
+        return data[y * width + x] & 0xFFFF;
+    }
+
+    /**
+     * DICOM linear VOI function as a table over all 65536 sample values, so
+     * windowing costs one lookup per output pixel
+     */
+    public byte[] buildWindowTable() {
+        byte[] table = new byte[65536];
+        double low = windowCenter - 0.5 - (windowWidth - 1) / 2.0;
+        double high = windowCenter - 0.5 + (windowWidth - 1) / 2.0;
+        double span = Math.max(1, windowWidth - 1);
+
+        for (int value = 0; value < table.length; value++) {
+            int gray;
+            if (value <= low) {
+                gray = 0;
+            } else if (value > high) {
+                gray = 255;
+            } else {
+                gray = (int) Math.round(((value - (windowCenter - 0.5)) / span + 0.5) * 255);
+                gray = Math.max(0, Math.min(255, gray));
+            }
+            table[value] = (byte) gray;
+        }
+        return table;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWindowCenter() {
+        return windowCenter;
+    }
+
+    public int getWindowWidth() {
+        return windowWidth;
+    }
+
+    /**
+     * Raw row-major backing array; values are unsigned, mask with 0xFFFF
+     */
+    short[] getData() {
+        return data;
+    }
+}
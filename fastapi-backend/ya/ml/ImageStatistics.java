@@ -0,0 +1,136 @@
+// ImageStatistics.java - Image quality measurements shared by the detectors of one analysis
+package com.example.spineanalyzer.ml;
+
+/**
+ * Contrast, edge density, brightness of the central column and the x-ray
+ * brightness profile of one luminance plane. Computed once per analysis by the
+ * statistics stage and read by every consumer instead of each rescanning.
+ */
+public final class ImageStatistics {
+
+    public final float contrastLevel;    // Sampled brightness std dev, [0,1]
+    public final float edgeDefinition;   // Fraction of sampled pixels on an edge
+    public final float spineVisibility;  // Fraction of bright pixels in the central band
+    public final boolean likelyXray;     // Bright bones over a dark background
+
+    private ImageStatistics(float contrastLevel, float edgeDefinition, float spineVisibility, boolean likelyXray) {
+        this.contrastLevel = contrastLevel;
+        this.edgeDefinition = edgeDefinition;
+        this.spineVisibility = spineVisibility;
+        this.likelyXray = likelyXray;
+    }
+
+    public static ImageStatistics of(LuminancePlane luminance) {
+        return new ImageStatistics(calculateImageContrast(luminance), calculateEdgeDefinition(luminance),
+                estimateSpineVisibility(luminance), isLikelyXrayImage(luminance));
+    }
+
+    private static float calculateImageContrast(LuminancePlane luminance) {
+        // Sample pixels to calculate contrast
+        int sampleSize = Math.min(luminance.getWidth() * luminance.getHeight(), 1000);
+        int[] grays = new int[sampleSize];
+
+        // Get random sample of pixels
+        for (int i = 0; i < sampleSize; i++) {
+            int x = (int) (Math.random() * luminance.getWidth());
+            int y = (int) (Math.random() * luminance.getHeight());
+            grays[i] = luminance.get(x, y);
+        }
+
+        // Calculate standard deviation of brightness
+        float mean = 0f;
+        for (int gray : grays) {
+            mean += gray;
+        }
+        mean /= sampleSize;
+
+        float variance = 0f;
+        for (int gray : grays) {
+            variance += (gray - mean) * (gray - mean);
+        }
+        variance /= sampleSize;
+
+        float stdDev = (float) Math.sqrt(variance);
+        return Math.min(1.0f, stdDev / 128.0f); // Normalize to [0,1]
+    }
+
+    private static float calculateEdgeDefinition(LuminancePlane luminance) {
+        // Simple edge detection approximation
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
+        int edgeCount = 0;
+        int totalSamples = 0;
+
+        // Sample edge detection
+        for (int y = 1; y < height - 1; y += 5) {
+            for (int x = 1; x < width - 1; x += 5) {
+                int center = luminance.get(x, y);
+                int right = luminance.get(x + 1, y);
+                int bottom = luminance.get(x, y + 1);
+
+                int gradientX = Math.abs(right - center);
+                int gradientY = Math.abs(bottom - center);
+                int gradient = gradientX + gradientY;
+
+                if (gradient > 30) edgeCount++; // Edge threshold
+                totalSamples++;
+            }
+        }
+
+        return totalSamples > 0 ? (float) edgeCount / totalSamples : 0f;
+    }
+
+    private static float estimateSpineVisibility(LuminancePlane luminance) {
+        // Look for vertical structures (spine-like patterns)
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
+        int centerX = width / 2;
+        int verticalStructureScore = 0;
+        int samples = 0;
+
+        // Sample vertical line through center (where spine should be)
+        for (int y = height / 4; y < 3 * height / 4; y += 3) {
+            for (int x = centerX - width / 8; x < centerX + width / 8; x += 2) {
+                if (x >= 0 && x < width) {
+                    int gray = luminance.get(x, y);
+                    // Look for bright structures (bones in X-ray)
+                    if (gray > 150) verticalStructureScore++;
+                    samples++;
+                }
+            }
+        }
+
+        return samples > 0 ? (float) verticalStructureScore / samples : 0f;
+    }
+
+    private static boolean isLikelyXrayImage(LuminancePlane luminance) {
+        // Check if image has X-ray characteristics
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
+        int brightPixels = 0;
+        int darkPixels = 0;
+        int totalSamples = 0;
+
+        // Sample image to check brightness distribution
+        for (int y = 0; y < height; y += 10) {
+            for (int x = 0; x < width; x += 10) {
+                int gray = luminance.get(x, y);
+                if (gray > 200) brightPixels++;
+                if (gray < 50) darkPixels++;
+                totalSamples++;
+            }
+        }
+
+        float brightRatio = (float) brightPixels / totalSamples;
+        float darkRatio = (float) darkPixels / totalSamples;
+
+        // X-rays typically have high contrast with bright bones and dark background
+        return brightRatio > 0.1f && darkRatio > 0.2f;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("contrast=%.2f, edges=%.2f, spine=%.2f, xray=%b",
+                contrastLevel, edgeDefinition, spineVisibility, likelyXray);
+    }
+}
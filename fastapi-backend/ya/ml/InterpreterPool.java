@@ -0,0 +1,202 @@
+// InterpreterPool.java - Bounded pool of model runners, one thread per runner at a time
+package com.example.spineanalyzer.ml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InterpreterPool {
+
+    public static final int DEFAULT_SIZE = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // How often a waiting acquire() rechecks whether the pool was closed
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    /**
+     * Creates one runner (interpreter + tensors) for the pool
+     */
+    public interface RunnerFactory {
+        ModelRunner create() throws Exception;
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final RunnerFactory factory;
+    private final BlockingQueue<ModelRunner> idle;
+    private final TensorFormat inputFormat;
+    private final List<ModelRunner> all = new ArrayList<>();
+    private int growing = 0;                 // Slots reserved by runners still being created
+    private volatile boolean closed = false;
+
+    // Pool-wait metrics
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public InterpreterPool(String name, int maxSize, RunnerFactory factory) throws Exception {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.factory = factory;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+
+        // Create the first runner up front so load errors surface immediately
+        ModelRunner first = factory.create();
+        all.add(first);
+        idle.add(first);
+        inputFormat = first.getInputFormat(0);
+    }
+
+    /**
+     * Check out a runner, growing the pool up to its size, otherwise waiting for a return.
+     * Throws IllegalStateException once the pool is closed, also to callers already waiting.
+     */
+    public ModelRunner acquire() throws InterruptedException {
+        checkouts.incrementAndGet();
+
+        ModelRunner runner = idle.poll();
+        if (runner != null) return runner;
+
+        runner = tryGrow();
+        if (runner != null) return runner;
+
+        // Returned runners are closed instead of queued after close(), so keep checking
+        long start = System.nanoTime();
+        while ((runner = idle.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            checkOpen();
+        }
+        recordWait(System.nanoTime() - start);
+        return runner;
+    }
+
+    /**
+     * Return a runner obtained from acquire(); always call from a finally block
+     */
+    public void release(ModelRunner runner) {
+        if (runner == null) return;
+
+        synchronized (this) {
+            if (closed) {
+                runner.close();
+                return;
+            }
+            idle.offer(runner);
+        }
+    }
+
+    // Only the slot is reserved under the lock; building an interpreter must not block release()
+    private ModelRunner tryGrow() {
+        synchronized (this) {
+            checkOpen();
+            if (all.size() + growing >= maxSize) return null;
+            growing++;
+        }
+
+        ModelRunner runner = null;
+        try {
+            runner = factory.create();
+        } catch (Exception e) {
+            // Could not grow; callers fall back to waiting for an existing runner
+        }
+
+        synchronized (this) {
+            growing--;
+            if (runner != null && closed) {
+                runner.close();
+                checkOpen();
+            }
+            if (runner != null) {
+                all.add(runner);
+            }
+        }
+        return runner;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Interpreter pool " + name + " is closed");
+        }
+    }
+
+    private void recordWait(long nanos) {
+        waits.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+
+        long currentMax;
+        do {
+            currentMax = maxWaitNanos.get();
+        } while (nanos > currentMax && !maxWaitNanos.compareAndSet(currentMax, nanos));
+    }
+
+    public synchronized int getCreatedCount() {
+        return all.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Format of the model's first input, the same for every runner of the pool
+     */
+    public TensorFormat getInputFormat() {
+        return inputFormat;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PoolStats getStats() {
+        PoolStats stats = new PoolStats();
+        stats.name = name;
+        stats.maxSize = maxSize;
+        stats.created = getCreatedCount();
+        stats.idle = idle.size();
+        stats.checkouts = checkouts.get();
+        stats.waits = waits.get();
+        stats.totalWaitNanos = totalWaitNanos.get();
+        stats.maxWaitNanos = maxWaitNanos.get();
+        return stats;
+    }
+
+    /**
+     * Close idle runners now; runners still checked out are closed when returned,
+     * and callers waiting in acquire() get an IllegalStateException
+     */
+    public synchronized void close() {
+        closed = true;
+
+        ModelRunner runner;
+        while ((runner = idle.poll()) != null) {
+            runner.close();
+        }
+    }
+
+    public static class PoolStats {
+        public String name;
+        public int maxSize;
+        public int created;
+        public int idle;
+        public long checkouts;
+        public long waits;
+        public long totalWaitNanos;
+        public long maxWaitNanos;
+
+        public double getAverageWaitMillis() {
+            return waits > 0 ? totalWaitNanos / 1e6 / waits : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d/%d runners, %d checkouts, %d waits (avg %.2f ms, max %.2f ms)",
+                    name, created, maxSize, checkouts, waits, getAverageWaitMillis(), maxWaitNanos / 1e6);
+        }
+    }
+}
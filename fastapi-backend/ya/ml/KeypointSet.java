@@ -0,0 +1,168 @@
+// KeypointSet.java - Primitive, fixed-capacity keypoints for the 17-point spine model
+package com.example.spineanalyzer.ml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Struct-of-arrays keypoints: coordinates and confidences in parallel float
+ * arrays, interpolated points as a bitmask, kept in ascending keypoint-index
+ * order so every spine region is a contiguous range of slots. The geometry code
+ * works on this; List<SpineKeypoint> is only built at the API boundary.
+ */
+public final class KeypointSet {
+
+    public static final int CAPACITY = 17;
+
+    // Spine keypoint labels (from top to bottom)
+    static final String[] LABELS = {
+            "C1-C2", "C3-C4", "C5-C6", "C7-T1",  // Cervical spine (4 points)
+            "T2-T3", "T4-T5", "T6-T7", "T8-T9", "T10-T11", "T12-L1",  // Thoracic spine (6 points)
+            "L1-L2", "L2-L3", "L3-L4", "L4-L5", "L5-S1",  // Lumbar spine (5 points)
+            "S1-S2", "S3-S5"  // Sacral spine (2 points)
+    };
+
+    public static final int CERVICAL = 0;
+    public static final int THORACIC = 1;
+    public static final int LUMBAR = 2;
+    public static final int SACRAL = 3;
+
+    static final String[] REGION_NAMES = {"Cervical", "Thoracic", "Lumbar", "Sacral"};
+
+    // First keypoint index after each region
+    private static final int[] REGION_END_INDEX = {4, 10, 15, CAPACITY};
+
+    final float[] xs = new float[CAPACITY];
+    final float[] ys = new float[CAPACITY];
+    final float[] confidences = new float[CAPACITY];
+    final byte[] indices = new byte[CAPACITY];
+    int interpolatedMask;
+    int size;
+
+    public static int regionOf(int keypointIndex) {
+        if (keypointIndex < 4) return CERVICAL;
+        else if (keypointIndex < 10) return THORACIC;
+        else if (keypointIndex < 15) return LUMBAR;
+        else return SACRAL;
+    }
+
+    public void clear() {
+        size = 0;
+        interpolatedMask = 0;
+    }
+
+    /**
+     * Append a keypoint; indices must be added in strictly ascending order
+     */
+    public void add(int index, float x, float y, float confidence, boolean interpolated) {
+        if (size == CAPACITY) {
+            throw new IllegalStateException("Keypoint set is full");
+        }
+        if (index < 0 || index >= CAPACITY || (size > 0 && index <= indices[size - 1])) {
+            throw new IllegalArgumentException("Keypoint index " + index + " out of order");
+        }
+        set(size++, index, x, y, confidence, interpolated);
+    }
+
+    // Overwrite slot i (used for in-place filtering and refinement)
+    void set(int i, int index, float x, float y, float confidence, boolean interpolated) {
+        indices[i] = (byte) index;
+        xs[i] = x;
+        ys[i] = y;
+        confidences[i] = confidence;
+        if (interpolated) {
+            interpolatedMask |= 1 << i;
+        } else {
+            interpolatedMask &= ~(1 << i);
+        }
+    }
+
+    // Drop slots from newSize on
+    void truncate(int newSize) {
+        size = newSize;
+        interpolatedMask &= (1 << newSize) - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int index(int i) {
+        return indices[i];
+    }
+
+    public float x(int i) {
+        return xs[i];
+    }
+
+    public float y(int i) {
+        return ys[i];
+    }
+
+    public float confidence(int i) {
+        return confidences[i];
+    }
+
+    public boolean isInterpolated(int i) {
+        return (interpolatedMask & (1 << i)) != 0;
+    }
+
+    /**
+     * First slot holding a keypoint of the region
+     */
+    public int regionStart(int region) {
+        return region == 0 ? 0 : regionEnd(region - 1);
+    }
+
+    /**
+     * One past the last slot holding a keypoint of the region
+     */
+    public int regionEnd(int region) {
+        int endIndex = REGION_END_INDEX[region];
+        int slot = 0;
+        while (slot < size && indices[slot] < endIndex) slot++;
+        return slot;
+    }
+
+    public void copyFrom(KeypointSet other) {
+        System.arraycopy(other.xs, 0, xs, 0, other.size);
+        System.arraycopy(other.ys, 0, ys, 0, other.size);
+        System.arraycopy(other.confidences, 0, confidences, 0, other.size);
+        System.arraycopy(other.indices, 0, indices, 0, other.size);
+        interpolatedMask = other.interpolatedMask;
+        size = other.size;
+    }
+
+    /**
+     * Object view for callers of the public API
+     */
+    public List<SpineAngleDetector.SpineKeypoint> toKeypoints() {
+        List<SpineAngleDetector.SpineKeypoint> keypoints = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            SpineAngleDetector.SpineKeypoint keypoint = new SpineAngleDetector.SpineKeypoint();
+            keypoint.index = indices[i];
+            keypoint.label = LABELS[keypoint.index];
+            keypoint.region = REGION_NAMES[regionOf(keypoint.index)];
+            keypoint.position = new SpinePoint(xs[i], ys[i]);
+            keypoint.confidence = confidences[i];
+            keypoint.isInterpolated = isInterpolated(i);
+            keypoints.add(keypoint);
+        }
+        return keypoints;
+    }
+
+    /**
+     * Primitive copy of keypoints from the object view, sorted by index
+     */
+    public static KeypointSet fromKeypoints(List<SpineAngleDetector.SpineKeypoint> keypoints) {
+        List<SpineAngleDetector.SpineKeypoint> sorted = new ArrayList<>(keypoints);
+        sorted.sort((a, b) -> Integer.compare(a.index, b.index));
+
+        KeypointSet set = new KeypointSet();
+        for (SpineAngleDetector.SpineKeypoint keypoint : sorted) {
+            set.add(keypoint.index, keypoint.position.x, keypoint.position.y,
+                    keypoint.confidence, keypoint.isInterpolated);
+        }
+        return set;
+    }
+}
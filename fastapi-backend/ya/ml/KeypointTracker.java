@@ -0,0 +1,240 @@
+// KeypointTracker.java - Frame-to-frame keypoint tracking by local luminance profile matching
+package com.example.spineanalyzer.ml;
+
+/**
+ * Follows the keypoints of a keyframe through later frames of the same scene.
+ * Around each keypoint the previous frame's column profile (column sums over a
+ * short row band) is matched against the new frame within a small search
+ * radius, then the row profile the same way, so an update costs a few thousand
+ * pixel reads per keypoint instead of a full detection.
+ *
+ * track() refuses (returns false) when the match gets poor, the tracked
+ * centerline drifts too far from the keyframe, the frame size changes or the
+ * keyframe gets old; the caller then runs full detection and calls reset().
+ * Not thread-safe: one tracker per stream.
+ */
+public final class KeypointTracker {
+
+    private static final String TAG = "KeypointTracker";
+
+    // Search window and template, relative to the image size with a floor for small frames
+    private static final float SEARCH_RADIUS_RATIO = 0.02f;
+    private static final int MIN_SEARCH_RADIUS = 8;
+    private static final float TEMPLATE_HALF_SIZE_RATIO = 0.015f;
+    private static final int MIN_TEMPLATE_HALF_SIZE = 8;
+    private static final float BAND_HALF_SIZE_RATIO = 0.01f;
+    private static final int MIN_BAND_HALF_SIZE = 4;
+
+    // Profiles flatter than this (in mean gray levels) carry no position information
+    private static final int MIN_PROFILE_CONTRAST = 6;
+    private static final float FLAT_PROFILE_QUALITY = 0.8f;
+
+    // Re-detection triggers
+    public static final float MIN_MATCH_QUALITY = 0.6f;
+    public static final float MAX_CENTERLINE_DRIFT_RATIO = 0.05f; // Mean lateral drift vs keyframe, of width
+    public static final int MAX_TRACKED_FRAMES = 30;
+
+    private final KeypointSet keyframe = new KeypointSet();
+    private final KeypointSet previous = new KeypointSet();
+    private LuminancePlane reference;
+    private int framesSinceKeyframe;
+    private float lastQuality;
+    private float lastDrift;
+
+    // Profile scratch, grown on demand
+    private int[] referenceProfile = new int[0];
+    private int[] currentProfile = new int[0];
+    private int sampleCount;    // Pixels summed per profile entry
+    private float matchQuality; // Of the last bestShift() match, 0..1
+
+    /**
+     * Start tracking from keypoints detected on this frame
+     */
+    public void reset(LuminancePlane luminance, KeypointSet keypoints) {
+        keyframe.copyFrom(keypoints);
+        previous.copyFrom(keypoints);
+        reference = luminance;
+        framesSinceKeyframe = 0;
+        lastQuality = 1f;
+        lastDrift = 0f;
+    }
+
+    public void clear() {
+        keyframe.clear();
+        previous.clear();
+        reference = null;
+        framesSinceKeyframe = 0;
+    }
+
+    public boolean hasKeyframe() {
+        return reference != null;
+    }
+
+    /**
+     * Move the previous frame's keypoints onto current, writing them to tracked
+     * with the keyframe confidence scaled by match quality. Returns false, and
+     * leaves the tracker where it was, when full detection should run instead.
+     */
+    public boolean track(LuminancePlane current, KeypointSet tracked) {
+        if (reference == null || framesSinceKeyframe >= MAX_TRACKED_FRAMES) return false;
+        if (current.getWidth() != reference.getWidth() || current.getHeight() != reference.getHeight()
+                || current.getScale() != reference.getScale()) return false;
+
+        // Keypoints are in source pixels; profiles are matched on the (possibly downsampled) plane
+        int width = current.getWidth();
+        int height = current.getHeight();
+        int scale = current.getScale();
+        int searchRadius = Math.max(MIN_SEARCH_RADIUS, Math.round(Math.min(width, height) * SEARCH_RADIUS_RATIO));
+        int templateHalf = Math.max(MIN_TEMPLATE_HALF_SIZE, Math.round(Math.min(width, height) * TEMPLATE_HALF_SIZE_RATIO));
+        int bandHalf = Math.max(MIN_BAND_HALF_SIZE, Math.round(Math.min(width, height) * BAND_HALF_SIZE_RATIO));
+        ensureCapacity(2 * (templateHalf + searchRadius) + 1);
+
+        int count = previous.size();
+        float totalQuality = 0f;
+        float totalDrift = 0f;
+        tracked.clear();
+
+        for (int i = 0; i < count; i++) {
+            int px = clamp(Math.round(previous.xs[i] / scale), 0, width - 1);
+            int py = clamp(Math.round(previous.ys[i] / scale), 0, height - 1);
+
+            // Horizontal shift from column profiles, then vertical from row profiles at the new x
+            columnProfile(reference, px, py, templateHalf, bandHalf, referenceProfile);
+            columnProfile(current, px, py, templateHalf + searchRadius, bandHalf, currentProfile);
+            int shiftX = bestShift(templateHalf, searchRadius);
+            float qualityX = matchQuality;
+
+            int nx = clamp(px + shiftX, 0, width - 1);
+            rowProfile(reference, px, py, templateHalf, bandHalf, referenceProfile);
+            rowProfile(current, nx, py, templateHalf + searchRadius, bandHalf, currentProfile);
+            int shiftY = bestShift(templateHalf, searchRadius);
+            float quality = Math.min(qualityX, matchQuality);
+
+            float x = previous.xs[i] + shiftX * scale;
+            float y = previous.ys[i] + shiftY * scale;
+            tracked.add(previous.index(i), x, y, keyframe.confidences[i] * quality, previous.isInterpolated(i));
+
+            totalQuality += quality;
+            totalDrift += Math.abs(x - keyframe.xs[i]);
+        }
+
+        lastQuality = count > 0 ? totalQuality / count : 0f;
+        lastDrift = count > 0 ? totalDrift / count : 0f;
+
+        if (lastQuality < MIN_MATCH_QUALITY || lastDrift > current.getSourceWidth() * MAX_CENTERLINE_DRIFT_RATIO) {
+            MlLog.d(TAG, "Tracking lost (quality=%.2f, drift=%.1f px), re-detecting", lastQuality, lastDrift);
+            return false;
+        }
+
+        previous.copyFrom(tracked);
+        reference = current;
+        framesSinceKeyframe++;
+        return true;
+    }
+
+    /**
+     * Offset in [-radius, radius] where currentProfile best matches referenceProfile
+     * (sum of absolute differences); the smallest shift wins ties
+     */
+    private int bestShift(int templateHalf, int radius) {
+        int templateLength = 2 * templateHalf + 1;
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int k = 0; k < templateLength; k++) {
+            min = Math.min(min, referenceProfile[k]);
+            max = Math.max(max, referenceProfile[k]);
+        }
+
+        // Sums cover the same number of pixels in both profiles, so compare in those units
+        if (max - min < MIN_PROFILE_CONTRAST * sampleCount) {
+            matchQuality = FLAT_PROFILE_QUALITY;
+            return 0;
+        }
+
+        long bestSad = Long.MAX_VALUE;
+        int bestShift = 0;
+        for (int step = 0; step <= 2 * radius; step++) {
+            // 0, -1, 1, -2, 2, ... so ties keep the smaller motion
+            int shift = (step & 1) == 0 ? step / 2 : -(step + 1) / 2;
+            int offset = radius + shift;
+
+            long sad = 0;
+            for (int k = 0; k < templateLength && sad < bestSad; k++) {
+                sad += Math.abs(referenceProfile[k] - currentProfile[offset + k]);
+            }
+            if (sad < bestSad) {
+                bestSad = sad;
+                bestShift = shift;
+            }
+        }
+
+        float meanDifference = (float) bestSad / templateLength;
+        matchQuality = Math.max(0f, 1f - meanDifference / (max - min));
+        return bestShift;
+    }
+
+    // Sums of rows cy-band..cy+band for columns cx-half..cx+half, edges clamped
+    private void columnProfile(LuminancePlane luminance, int cx, int cy, int half, int band, int[] profile) {
+        byte[] data = luminance.getData();
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
+
+        for (int k = 0; k <= 2 * half; k++) {
+            profile[k] = 0;
+        }
+        for (int dy = -band; dy <= band; dy++) {
+            int rowOffset = clamp(cy + dy, 0, height - 1) * width;
+            for (int k = 0; k <= 2 * half; k++) {
+                profile[k] += data[rowOffset + clamp(cx - half + k, 0, width - 1)] & 0xFF;
+            }
+        }
+        sampleCount = 2 * band + 1;
+    }
+
+    // Sums of columns cx-band..cx+band for rows cy-half..cy+half, edges clamped
+    private void rowProfile(LuminancePlane luminance, int cx, int cy, int half, int band, int[] profile) {
+        byte[] data = luminance.getData();
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
+
+        for (int k = 0; k <= 2 * half; k++) {
+            int rowOffset = clamp(cy - half + k, 0, height - 1) * width;
+            int sum = 0;
+            for (int dx = -band; dx <= band; dx++) {
+                sum += data[rowOffset + clamp(cx + dx, 0, width - 1)] & 0xFF;
+            }
+            profile[k] = sum;
+        }
+        sampleCount = 2 * band + 1;
+    }
+
+    private void ensureCapacity(int length) {
+        if (currentProfile.length < length) {
+            referenceProfile = new int[length];
+            currentProfile = new int[length];
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public int getFramesSinceKeyframe() {
+        return framesSinceKeyframe;
+    }
+
+    /**
+     * Mean match quality (0..1) of the last track() call
+     */
+    public float getLastQuality() {
+        return lastQuality;
+    }
+
+    /**
+     * Mean lateral distance in source pixels from the keyframe keypoints after the last track() call
+     */
+    public float getLastDrift() {
+        return lastDrift;
+    }
+}
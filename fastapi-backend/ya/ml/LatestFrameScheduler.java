@@ -0,0 +1,110 @@
+// LatestFrameScheduler.java - One frame in flight, only the newest one waiting
+package com.example.spineanalyzer.ml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backpressure for continuous input: at most one frame is processed and one
+ * waits. A frame submitted while another is waiting replaces it, so the stale
+ * frame (and its pixels) is dropped instead of queued. Futures of dropped frames
+ * are coalesced into the frame that replaced them and complete with its result.
+ * Latency is bounded by two processing times and memory by two frames, however
+ * fast frames arrive.
+ */
+public final class LatestFrameScheduler<F, R> {
+
+    /**
+     * Starts processing one frame; called outside the scheduler lock
+     */
+    public interface FrameProcessor<F, R> {
+        CompletableFuture<R> process(F frame, AnalysisTrace trace);
+    }
+
+    private final FrameProcessor<F, R> processor;
+
+    private boolean running = false;
+    private F pendingFrame;
+    private AnalysisTrace pendingTrace;
+    private List<CompletableFuture<R>> pendingFutures = new ArrayList<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public LatestFrameScheduler(FrameProcessor<F, R> processor) {
+        this.processor = processor;
+    }
+
+    public CompletableFuture<R> submit(F frame, AnalysisTrace trace) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+
+        synchronized (this) {
+            if (running) {
+                if (pendingFrame != null) {
+                    dropped.incrementAndGet();
+                }
+                pendingFrame = frame;
+                pendingTrace = trace;
+                pendingFutures.add(future);
+                return future;
+            }
+            running = true;
+        }
+
+        List<CompletableFuture<R>> futures = new ArrayList<>(1);
+        futures.add(future);
+        start(frame, trace, futures);
+        return future;
+    }
+
+    private void start(F frame, AnalysisTrace trace, final List<CompletableFuture<R>> futures) {
+        CompletableFuture<R> result;
+        try {
+            result = processor.process(frame, trace);
+        } catch (Exception e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+
+        result.whenComplete((value, error) -> {
+            startPending();
+            for (CompletableFuture<R> future : futures) {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(value);
+                }
+            }
+        });
+    }
+
+    // Hand the waiting frame, if any, to the processor
+    private void startPending() {
+        F frame;
+        AnalysisTrace trace;
+        List<CompletableFuture<R>> futures;
+
+        synchronized (this) {
+            if (pendingFrame == null) {
+                running = false;
+                return;
+            }
+            frame = pendingFrame;
+            trace = pendingTrace;
+            futures = pendingFutures;
+            pendingFrame = null;
+            pendingTrace = null;
+            pendingFutures = new ArrayList<>();
+        }
+
+        start(frame, trace, futures);
+    }
+
+    /**
+     * Frames dropped so far because a newer one replaced them while waiting
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,218 @@
+// LuminancePlane.java - Shared grayscale plane, computed once per analysis
+package com.example.spineanalyzer.ml;
+
+import java.util.Arrays;
+
+public final class LuminancePlane {
+
+    // Analysis budget: 4 MP is one byte per pixel, so 4 MB per plane whatever the source size
+    public static final int DEFAULT_MAX_PIXELS = 2048 * 2048;
+
+    private final byte[] data;   // Unsigned 8-bit luminance, row-major
+    private final int width;
+    private final int height;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final int scale;     // Source pixels per plane pixel, in each direction
+    private volatile LuminancePyramid pyramid;
+
+    public LuminancePlane(byte[] data, int width, int height) {
+        this(data, width, height, width, height, 1);
+    }
+
+    private LuminancePlane(byte[] data, int width, int height, int sourceWidth, int sourceHeight, int scale) {
+        if (data.length < width * height) {
+            throw new IllegalArgumentException("Luminance data too small for " + width + "x" + height);
+        }
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.scale = scale;
+    }
+
+    /**
+     * Convert decoded pixels to luminance in a single pass, one row at a time
+     */
+    public static LuminancePlane fromPixels(PixelSource pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
+
+        byte[] data = new byte[width * height];
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            pixels.getRow(y, row);
+
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                data[offset + x] = (byte) toGray(row[x]);
+            }
+        }
+
+        return new LuminancePlane(data, width, height);
+    }
+
+    /**
+     * Luminance of at most maxPixels pixels. Larger sources are box-averaged by the
+     * smallest integer factor that fits, consuming the source in bands of `factor`
+     * rows: the working set is one source row, one row of sums and the output, so
+     * peak memory does not grow with the input. Smaller sources are converted 1:1.
+     * Plane coordinates times getScale() are source coordinates.
+     */
+    public static LuminancePlane fromPixels(PixelSource pixels, int maxPixels) {
+        int sourceWidth = pixels.getWidth();
+        int sourceHeight = pixels.getHeight();
+        int factor = downsampleFactor(sourceWidth, sourceHeight, maxPixels);
+        if (factor == 1) return fromPixels(pixels);
+
+        int width = sourceWidth / factor;
+        int height = sourceHeight / factor;
+        int area = factor * factor;
+
+        byte[] data = new byte[width * height];
+        int[] row = new int[sourceWidth];
+        int[] sums = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(sums, 0);
+
+            // One band of source rows per output row; the last partial band and column block are dropped
+            for (int band = 0; band < factor; band++) {
+                pixels.getRow(y * factor + band, row);
+
+                int src = 0;
+                for (int x = 0; x < width; x++) {
+                    int sum = 0;
+                    for (int k = 0; k < factor; k++) {
+                        sum += toGray(row[src++]);
+                    }
+                    sums[x] += sum;
+                }
+            }
+
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                data[offset + x] = (byte) ((sums[x] + area / 2) / area);
+            }
+        }
+
+        return new LuminancePlane(data, width, height, sourceWidth, sourceHeight, factor);
+    }
+
+    /**
+     * Windowed 8-bit luminance of a native 16-bit radiograph, at most maxPixels
+     * pixels. Samples are box-averaged at full precision first and windowed once
+     * per output pixel, so detail outside 8 bits survives the downsampling.
+     */
+    public static LuminancePlane fromGray16(Gray16Image image, int maxPixels) {
+        int sourceWidth = image.getWidth();
+        int sourceHeight = image.getHeight();
+        int factor = downsampleFactor(sourceWidth, sourceHeight, maxPixels);
+
+        int width = sourceWidth / factor;
+        int height = sourceHeight / factor;
+        int area = factor * factor;
+
+        short[] samples = image.getData();
+        byte[] window = image.buildWindowTable();
+        byte[] data = new byte[width * height];
+        int[] sums = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(sums, 0);
+
+            for (int band = 0; band < factor; band++) {
+                int src = (y * factor + band) * sourceWidth;
+                for (int x = 0; x < width; x++) {
+                    int sum = 0;
+                    for (int k = 0; k < factor; k++) {
+                        sum += samples[src++] & 0xFFFF;
+                    }
+                    sums[x] += sum;
+                }
+            }
+
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                data[offset + x] = window[(sums[x] + area / 2) / area];
+            }
+        }
+
+        return new LuminancePlane(data, width, height, sourceWidth, sourceHeight, factor);
+    }
+
+    // Smallest integer factor that brings width x height within maxPixels
+    static int downsampleFactor(int width, int height, int maxPixels) {
+        int factor = 1;
+        while ((long) (width / factor) * (height / factor) > maxPixels) {
+            factor++;
+        }
+        return factor;
+    }
+
+    /**
+     * Standard luma weights, same truncation the detectors used per pixel
+     */
+    public static int toGray(int pixel) {
+        int r = (pixel >> 16) & 0xFF;
+        int g = (pixel >> 8) & 0xFF;
+        int b = pixel & 0xFF;
+        return (int) (0.299 * r + 0.587 * g + 0.114 * b);
+    }
+
+    public int get(int x, int y) {
+        return data[y * width + x] & 0xFF;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Width of the image this plane was computed from; differs from getWidth() when downsampled
+     */
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    public int getSourceHeight() {
+        return sourceHeight;
+    }
+
+    /**
+     * Source pixels per plane pixel; 1 unless fromPixels(source, maxPixels) had to downsample
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Pyramid down to 1/8 resolution, built on first use and shared by later callers
+     */
+    public LuminancePyramid getPyramid() {
+        LuminancePyramid result = pyramid;
+        if (result == null) {
+            synchronized (this) {
+                result = pyramid;
+                if (result == null) {
+                    result = new LuminancePyramid(this, LuminancePyramid.DEFAULT_LEVELS);
+                    pyramid = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Raw row-major backing array; values are unsigned, mask with 0xFF
+     */
+    byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,67 @@
+// LuminancePyramid.java - Half-resolution levels of a luminance plane for coarse-to-fine searches
+package com.example.spineanalyzer.ml;
+
+/**
+ * Level 0 is the plane itself (not copied); each further level halves width and
+ * height with a rounded 2x2 box average. Building reads the base once, and all
+ * coarser levels together add a third of that. Get it from
+ * LuminancePlane.getPyramid() so every detector of an analysis shares one.
+ */
+public final class LuminancePyramid {
+
+    // 1/8 resolution, unless the image is too small for it
+    public static final int DEFAULT_LEVELS = 4;
+
+    // Coarser levels would leave too few columns to search
+    private static final int MIN_LEVEL_SIZE = 32;
+
+    private final LuminancePlane[] levels;
+
+    public LuminancePyramid(LuminancePlane base, int maxLevels) {
+        int count = 1;
+        while (count < maxLevels
+                && (base.getWidth() >> count) >= MIN_LEVEL_SIZE
+                && (base.getHeight() >> count) >= MIN_LEVEL_SIZE) {
+            count++;
+        }
+
+        levels = new LuminancePlane[count];
+        levels[0] = base;
+        for (int level = 1; level < count; level++) {
+            levels[level] = downsample(levels[level - 1]);
+        }
+    }
+
+    private static LuminancePlane downsample(LuminancePlane source) {
+        int width = source.getWidth() / 2;
+        int height = source.getHeight() / 2;
+        int sourceWidth = source.getWidth();
+        byte[] src = source.getData();
+        byte[] dst = new byte[width * height];
+
+        for (int y = 0; y < height; y++) {
+            int top = 2 * y * sourceWidth;
+            int bottom = top + sourceWidth;
+            int out = y * width;
+
+            for (int x = 0; x < width; x++, top += 2, bottom += 2) {
+                int sum = (src[top] & 0xFF) + (src[top + 1] & 0xFF)
+                        + (src[bottom] & 0xFF) + (src[bottom + 1] & 0xFF);
+                dst[out + x] = (byte) ((sum + 2) >> 2);
+            }
+        }
+
+        return new LuminancePlane(dst, width, height);
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Plane at 1/2^level resolution
+     */
+    public LuminancePlane getLevel(int level) {
+        return levels[level];
+    }
+}
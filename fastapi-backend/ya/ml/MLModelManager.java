@@ -3,24 +3,39 @@ package com.example.spineanalyzer.ml;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import android.graphics.Bitmap;
-import android.util.Log;
 
-import org.tensorflow.lite.Interpreter;
-
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 public class MLModelManager {
 
     private static final String TAG = "MLModelManager";
     private static final String PREFS_NAME = "MLModelPrefs";
+    private static final String PREF_POOL_SIZE = "interpreter_pool_size";
+    private static final String PREF_LAZY_LOADING = "lazy_model_loading";
+    private static final String PREF_DISK_RESULT_CACHE = "disk_result_cache";
+    private static final String PREF_CASCADE = "screening_cascade";
+
+    // Result cache budgets
+    private static final long RESULT_CACHE_MEMORY_BYTES = 4L * 1024 * 1024;
+    private static final long RESULT_CACHE_DISK_BYTES = 32L * 1024 * 1024;
+
+    // Images per batched inference; bounds tensor and luminance memory per chunk
+    private static final int MAX_BATCH_SIZE = 8;
 
     // Model file names
     private static final String SPINE_CLASSIFIER_MODEL = "spine_classifier.tflite";
@@ -33,11 +48,20 @@ public class MLModelManager {
     private Context context;
     private SharedPreferences preferences;
     private ExecutorService executorService;
+    private ModelRegistry registry;
+
+    // Model interpreter pools from the registry (by model type), shared with the helpers below
+    private final Map<String, CompletableFuture<InterpreterPool>> modelPools = new HashMap<>();
+    private final Map<String, String> modelFiles = new HashMap<>();
+    private int poolSize;
+    private boolean lazyLoading;
 
-    // Model interpreters
-    private Interpreter spineClassifier;
-    private Interpreter keypointDetector;
-    private Interpreter angleCalculator;
+    // Repeat analyses of the same pixels with the same models
+    private AnalysisResultCache resultCache;
+
+    // Cascade mode: clearly normal spines are answered by the linearity heuristic alone
+    private final ScreeningCascade cascade = new ScreeningCascade();
+    private volatile boolean cascadeEnabled;
 
     // Model status tracking
     private Map<String, Boolean> modelLoadStatus;
@@ -46,13 +70,57 @@ public class MLModelManager {
     private SpineClassificationHelper classificationHelper;
     private SpineAngleDetector angleDetectorHelper;
 
+    // Helpers of the fast/accurate variants, created on first request
+    private final Map<ModelVariant, SpineClassificationHelper> variantClassifiers = new EnumMap<>(ModelVariant.class);
+    private final Map<ModelVariant, SpineAngleDetector> variantDetectors = new EnumMap<>(ModelVariant.class);
+
+    // Stages of every analysis; the accurate detector is only created when a graph asks for it
+    private final SpinePipeline pipeline;
+    private volatile AccurateSpineDetector accurateDetector;
+    // Own lock: creating the detector maps its model, which must not block the manager's monitor
+    private final Object accurateDetectorLock = new Object();
+
     private MLModelManager(Context context) {
+        MlLog.setSink(new AndroidLogSink());
+        // Debug lines are dropped before formatting in release builds
+        boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        MlLog.setLevel(debuggable ? MlLog.DEBUG : MlLog.INFO);
         this.context = context.getApplicationContext();
         this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.executorService = Executors.newFixedThreadPool(2);
-        this.modelLoadStatus = new HashMap<>();
+        this.poolSize = Math.max(1, preferences.getInt(PREF_POOL_SIZE, InterpreterPool.DEFAULT_SIZE));
+        this.lazyLoading = preferences.getBoolean(PREF_LAZY_LOADING, false);
+        this.cascadeEnabled = preferences.getBoolean(PREF_CASCADE, false);
+        // One analysis per interpreter in each pool, never fewer than the original two threads
+        this.executorService = Executors.newFixedThreadPool(Math.max(2, poolSize));
+        this.modelLoadStatus = new ConcurrentHashMap<>();
+        this.registry = ModelRegistry.getInstance(new AssetModelLoader(this.context));
+
+        File diskCacheDir = preferences.getBoolean(PREF_DISK_RESULT_CACHE, false)
+                ? new File(this.context.getCacheDir(), "analysis_results") : null;
+        this.resultCache = new AnalysisResultCache(RESULT_CACHE_MEMORY_BYTES, diskCacheDir, RESULT_CACHE_DISK_BYTES);
 
         initializeHelpers();
+        this.pipeline = new SpinePipeline(new SpinePipeline.Models() {
+            @Override
+            public SpineAngleDetector.SpineAnalysisResult detectKeypoints(LuminancePlane luminance,
+                                                                          ModelVariant variant,
+                                                                          AnalysisTrace trace) {
+                return MLModelManager.this.detectKeypoints(luminance, variant, trace);
+            }
+
+            @Override
+            public SpineClassificationHelper.ClassificationResult classify(LuminancePlane luminance,
+                                                                           ImageStatistics statistics,
+                                                                           ModelVariant variant,
+                                                                           AnalysisTrace trace) {
+                return MLModelManager.this.classify(luminance, statistics, variant, trace);
+            }
+
+            @Override
+            public AccurateSpineDetector getAccurateDetector() {
+                return MLModelManager.this.getAccurateDetector();
+            }
+        });
     }
 
     public static synchronized MLModelManager getInstance(Context context) {
@@ -64,222 +132,640 @@ public class MLModelManager {
 
     private void initializeHelpers() {
         try {
-            classificationHelper = new SpineClassificationHelper(context);
-            angleDetectorHelper = new SpineAngleDetector(context);
-            Log.d(TAG, "ML helpers initialized successfully");
+            classificationHelper = new SpineClassificationHelper(registry, poolSize, lazyLoading);
+            angleDetectorHelper = new SpineAngleDetector(registry, poolSize, lazyLoading);
+            MlLog.d(TAG, "ML helpers initialized successfully");
         } catch (Exception e) {
-            Log.e(TAG, "Failed to initialize ML helpers", e);
+            MlLog.e(TAG, "Failed to initialize ML helpers", e);
         }
     }
 
+    /**
+     * Load every model in parallel; the callback fires once all of them have finished.
+     * Use getModelReadyFuture to start using one model before the others are done.
+     */
     public void loadAllModels(final ModelLoadCallback callback) {
-        executorService.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    Log.d(TAG, "Starting to load all ML models...");
+        MlLog.d(TAG, "Starting to load all ML models...");
 
-                    boolean success = true;
+        final CompletableFuture<Boolean> classifier = getModelReadyFuture("classifier");
+        final CompletableFuture<Boolean> keypoint = getModelReadyFuture("keypoint");
+        // Angle calculator (optional)
+        final CompletableFuture<Boolean> angle = getModelReadyFuture("angle");
 
-                    // Load spine classifier
-                    success &= loadSpineClassifier();
+        CompletableFuture.allOf(classifier, keypoint, angle).thenRun(() -> {
+            boolean success = classifier.join() && keypoint.join() && angle.join();
+            MlLog.d(TAG, "All models loaded. Success: " + success);
 
-                    // Load keypoint detector
-                    success &= loadKeypointDetector();
+            if (callback != null) {
+                callback.onModelsLoaded(success);
+            }
+        });
+    }
 
-                    // Load angle calculator (optional)
-                    success &= loadAngleCalculator();
+    /**
+     * Completes with true once the model is ready, false if it could not be loaded.
+     * Starts loading the model if nothing has asked for it yet (e.g. in lazy mode);
+     * a model that failed to load is retried.
+     */
+    public CompletableFuture<Boolean> getModelReadyFuture(String modelType) {
+        return getModelReadyFuture(modelType, ModelVariant.STANDARD);
+    }
 
-                    Log.d(TAG, "All models loaded. Success: " + success);
+    /**
+     * Same for one variant of a model ("classifier" + FAST is spine_classifier_fast.tflite)
+     */
+    public synchronized CompletableFuture<Boolean> getModelReadyFuture(String standardType, ModelVariant variant) {
+        final String modelType = variant.modelType(standardType);
+        CompletableFuture<InterpreterPool> pool = modelPools.get(modelType);
+
+        if (pool == null || pool.isCompletedExceptionally()) {
+            String modelFile = getModelFile(standardType, variant);
+            if (pool != null) {
+                registry.release(modelFile);
+            }
 
-                    if (callback != null) {
-                        callback.onModelsLoaded(success);
-                    }
+            pool = registry.acquireAsync(modelType, modelFile, poolSize);
+            modelPools.put(modelType, pool);
+            modelFiles.put(modelType, modelFile);
 
-                } catch (Exception e) {
-                    Log.e(TAG, "Error loading models", e);
-                    if (callback != null) {
-                        callback.onModelsLoaded(false);
-                    }
+            pool.whenComplete((loaded, error) -> {
+                modelLoadStatus.put(modelType, error == null);
+                if (error == null) {
+                    MlLog.d(TAG, "Model ready: " + modelType);
+                } else {
+                    MlLog.e(TAG, "Failed to load model: " + modelType, error);
                 }
+            });
+        }
+
+        return pool.handle((loaded, error) -> error == null);
+    }
+
+    // Waits for a model, loading it first if needed
+    private boolean awaitModel(String modelType, ModelVariant variant) {
+        return getModelReadyFuture(modelType, variant).join();
+    }
+
+    private static String getModelFile(String standardType, ModelVariant variant) {
+        return variant.modelFile(getModelFile(standardType));
+    }
+
+    private static String getModelFile(String modelType) {
+        switch (modelType) {
+            case "classifier":
+                return SPINE_CLASSIFIER_MODEL;
+            case "keypoint":
+                return KEYPOINT_DETECTOR_MODEL;
+            case "angle":
+                return ANGLE_CALCULATOR_MODEL;
+            default:
+                throw new IllegalArgumentException("Unknown model type: " + modelType);
+        }
+    }
+
+    public void analyzeSpine(final Bitmap inputBitmap, final SpineAnalysisCallback callback) {
+        analyzeSpineAsync(inputBitmap).handle((result, error) -> {
+            if (error != null) {
+                MlLog.e(TAG, "Error during spine analysis", unwrap(error));
+                result = createFallbackResult(inputBitmap);
+            }
+
+            if (callback != null) {
+                callback.onAnalysisComplete(result);
             }
+            return null;
         });
     }
 
-    private boolean loadSpineClassifier() {
-        try {
-            if (spineClassifier != null) {
-                spineClassifier.close();
+    public CompletableFuture<SpineAnalysisResult> analyzeSpineAsync(Bitmap inputBitmap) {
+        return analyzeSpineAsync(inputBitmap, executorService);
+    }
+
+    /**
+     * Keypoint detection and classification are independent stages of the analysis
+     * graph (see SpinePipeline), so they run side by side on the given executor and
+     * are joined for the assessment. A
+     * failing stage leaves its error on the result (keypointError/classificationError)
+     * instead of failing the analysis; only a failure before the stages (reading the
+     * bitmap) completes the future exceptionally.
+     *
+     * Results are cached by pixel content and model versions, so re-submitting the
+     * same image returns the earlier result. The cache keeps its own copy of each result.
+     * A cache hit comes back as a copy carrying its own trace.
+     */
+    public CompletableFuture<SpineAnalysisResult> analyzeSpineAsync(Bitmap inputBitmap, Executor executor) {
+        return analyzeSpineAsync(inputBitmap, ModelVariant.STANDARD, executor);
+    }
+
+    /**
+     * Analyze with the fast or accurate build of the models; each variant is loaded
+     * on first use and cached under its own model versions
+     */
+    public CompletableFuture<SpineAnalysisResult> analyzeSpineAsync(Bitmap inputBitmap, ModelVariant variant) {
+        return analyzeSpineAsync(inputBitmap, variant, executorService);
+    }
+
+    public CompletableFuture<SpineAnalysisResult> analyzeSpineAsync(final Bitmap inputBitmap,
+                                                                  final ModelVariant variant,
+                                                                  final Executor executor) {
+        return analyzeCached(
+                () -> AnalysisResultCache.keyFor(new BitmapPixelSource(inputBitmap)),
+                () -> LuminancePlane.fromPixels(new BitmapPixelSource(inputBitmap),
+                        LuminancePlane.DEFAULT_MAX_PIXELS),
+                variant, executor);
+    }
+
+    public CompletableFuture<SpineAnalysisResult> analyzeSpineAsync(Gray16Image image) {
+        return analyzeSpineAsync(image, ModelVariant.STANDARD, executorService);
+    }
+
+    public CompletableFuture<SpineAnalysisResult> analyzeSpineAsync(Gray16Image image, ModelVariant variant) {
+        return analyzeSpineAsync(image, variant, executorService);
+    }
+
+    /**
+     * Same analysis for a native 12-16 bit radiograph: windowing and downsampling
+     * happen once while building the luminance plane, with no ARGB Bitmap in
+     * between. The cache key covers the samples and the window.
+     */
+    public CompletableFuture<SpineAnalysisResult> analyzeSpineAsync(final Gray16Image image,
+                                                                  final ModelVariant variant,
+                                                                  final Executor executor) {
+        return analyzeCached(
+                () -> AnalysisResultCache.keyFor(image),
+                () -> LuminancePlane.fromGray16(image, LuminancePlane.DEFAULT_MAX_PIXELS),
+                variant, executor);
+    }
+
+    private CompletableFuture<SpineAnalysisResult> analyzeCached(final Supplier<String> imageKeyFor,
+                                                                 final Supplier<LuminancePlane> decoder,
+                                                                 final ModelVariant variant,
+                                                                 final Executor executor) {
+        final AnalysisTrace trace = new AnalysisTrace();
+        final boolean screening = cascadeEnabled;
+        final long timestamp = System.currentTimeMillis();
+
+        return CompletableFuture.supplyAsync(() -> {
+            long start = trace.lap(AnalysisTrace.QUEUE_WAIT, trace.getStartNanos());
+            String imageKey = imageKeyFor.get();
+            trace.lap(AnalysisTrace.CACHE_LOOKUP, start);
+            return imageKey;
+        }, executor).thenCompose(imageKey -> {
+            if (!screening) {
+                return analyzeWithModels(imageKey,
+                        () -> decode(decoder, executor, trace)
+                                .thenApply(luminance -> pipeline.newGraph(luminance, variant, executor, trace)),
+                        variant, trace, timestamp);
             }
 
-            MappedByteBuffer modelBuffer = loadModelFile(SPINE_CLASSIFIER_MODEL);
-            Interpreter.Options options = createInterpreterOptions();
+            // A screened answer depends on the image and the bands only, so no model is waited for;
+            // under other bands, or with the cascade off, it is not served
+            final String screeningKey = imageKey + "-cascade" + cascade.getBandsKey();
+            SpineAnalysisResult cached = getCached(screeningKey, trace);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+
+            // Escalated before: straight to the model-keyed entry, decoding only if that misses too
+            if (cascade.isEscalated(screeningKey)) {
+                return analyzeWithModels(imageKey,
+                        () -> decode(decoder, executor, trace)
+                                .thenApply(luminance -> pipeline.newGraph(luminance, variant, executor, trace)),
+                        variant, trace, timestamp);
+            }
 
-            spineClassifier = new Interpreter(modelBuffer, options);
-            modelLoadStatus.put("classifier", true);
+            return decode(decoder, executor, trace).thenCompose(luminance -> {
+                final AnalysisGraph graph = pipeline.newGraph(luminance, variant, executor, trace);
 
-            Log.d(TAG, "Spine classifier loaded successfully");
-            return true;
+                // Screening result stays in the graph, so an escalated image reuses its centerline
+                final long screenStart = System.nanoTime();
+                return graph.get(pipeline.straight).thenCompose(straight -> {
+                    StraightSpineDetector.StraightSpineResult heuristic = cascade.screen(straight);
+                    trace.lap(AnalysisTrace.SCREENING, screenStart);
 
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to load spine classifier", e);
-            modelLoadStatus.put("classifier", false);
-            return false;
+                    if (heuristic != null) {
+                        SpineAnalysisResult result = createScreeningResult(luminance, heuristic, trace, timestamp);
+                        finishAnalysis(result, screeningKey, trace);
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    cascade.markEscalated(screeningKey);
+                    return analyzeWithModels(imageKey, () -> CompletableFuture.completedFuture(graph),
+                            variant, trace, timestamp);
+                });
+            });
+        });
+    }
+
+    // Model-backed analysis, cached under the model versions; the graph is only built on a cache miss
+    private CompletableFuture<SpineAnalysisResult> analyzeWithModels(String imageKey,
+                                                                     Supplier<CompletableFuture<AnalysisGraph>> graph,
+                                                                     ModelVariant variant,
+                                                                     final AnalysisTrace trace,
+                                                                     final long timestamp) {
+        long start = System.nanoTime();
+        final String key = imageKey + "-" + getModelVersionKey(variant);
+        trace.lap(AnalysisTrace.MODEL_WAIT, start);
+
+        SpineAnalysisResult cached = getCached(key, trace);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        return graph.get().thenCompose(analysis ->
+                analyzeGraph(analysis, analysis.value(pipeline.luminance), timestamp)
+        ).thenApply(result -> {
+            // Partial results are not cached so a retry can recover: a stage that failed, or
+            // whose model was unavailable and left its part of the result empty
+            boolean complete = result.keypointError == null && result.classificationError == null
+                    && result.keypoints != null && result.classification != null;
+            finishAnalysis(result, complete ? key : null, trace);
+            return result;
+        });
+    }
+
+    private SpineAnalysisResult getCached(String key, AnalysisTrace trace) {
+        long start = System.nanoTime();
+        SpineAnalysisResult cached = resultCache.get(key);
+        trace.lap(AnalysisTrace.CACHE_LOOKUP, start);
+
+        if (cached != null) {
+            MlLog.d(TAG, "Spine analysis served from cache");
+            trace.finish(true);
+            cached.trace = trace;
         }
+        return cached;
     }
 
-    private boolean loadKeypointDetector() {
-        try {
-            if (keypointDetector != null) {
-                keypointDetector.close();
+    // Closes the trace of an analysis that ran, caching the result under key unless it is null
+    private void finishAnalysis(SpineAnalysisResult result, String key, AnalysisTrace trace) {
+        trace.finish(false);
+        MlLog.d(TAG, "Spine analysis trace: %s", trace);
+        if (key != null) {
+            resultCache.put(key, result);
+        }
+    }
+
+    // Grayscale once, shared by every stage; very large films are decoded in row bands into a bounded plane
+    private CompletableFuture<LuminancePlane> decode(final Supplier<LuminancePlane> decoder, Executor executor,
+                                                     final AnalysisTrace trace) {
+        final long decodeSubmitted = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            long start = trace.lap(AnalysisTrace.QUEUE_WAIT, decodeSubmitted);
+            MlLog.d(TAG, "Starting comprehensive spine analysis...");
+            LuminancePlane luminance = decoder.get();
+            trace.lap(AnalysisTrace.DECODE, start);
+            return luminance;
+        }, executor);
+    }
+
+    // Result answered by the cascade heuristic; keypoints scaled from plane to source pixels. Built from
+    // the linearity numbers only, so an image always screens to the same result. The primary angle is the
+    // centerline's deviation angle, not a Cobb angle (that needs the keypoint model); no classifier ran,
+    // so classificationConfidence stays unset
+    private SpineAnalysisResult createScreeningResult(LuminancePlane luminance,
+                                                      StraightSpineDetector.StraightSpineResult heuristic,
+                                                      AnalysisTrace trace, long timestamp) {
+        long start = System.nanoTime();
+        SpineAnalysisResult result = new SpineAnalysisResult();
+        result.timestamp = timestamp;
+        result.trace = trace;
+        result.imageWidth = luminance.getSourceWidth();
+        result.imageHeight = luminance.getSourceHeight();
+        result.answeredBy = SpineAnalysisResult.AnsweredBy.SCREENING;
+
+        int scale = luminance.getScale();
+        KeypointSet keypoints = new KeypointSet();
+        for (StraightSpineDetector.StraightKeypoint keypoint : heuristic.keypoints) {
+            if (keypoint.index < KeypointSet.CAPACITY) {
+                keypoints.add(keypoint.index, keypoint.position.x * scale, keypoint.position.y * scale,
+                        heuristic.confidence, false);
             }
+        }
+        result.keypoints = keypoints.toKeypoints();
 
-            MappedByteBuffer modelBuffer = loadModelFile(KEYPOINT_DETECTOR_MODEL);
-            Interpreter.Options options = createInterpreterOptions();
+        result.angles = new SpineAngleDetector.SpineAngles();
+        result.angles.maxLateralDeviation = heuristic.linearityAnalysis.maxDeviation * scale;
+        result.primaryAngle = ScreeningCascade.deviationAngle(heuristic.linearityAnalysis);
+        result.confidence = heuristic.confidence;
 
-            keypointDetector = new Interpreter(modelBuffer, options);
-            modelLoadStatus.put("keypoint", true);
+        result.classification = "Normal";
 
-            Log.d(TAG, "Keypoint detector loaded successfully");
-            return true;
+        result.assessment = createComprehensiveAssessment(result);
+        trace.lap(AnalysisTrace.ASSESSMENT, start);
 
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to load keypoint detector", e);
-            modelLoadStatus.put("keypoint", false);
-            return false;
-        }
+        MlLog.d(TAG, "Spine analysis answered by screening: %.1f° deviation with %.1f%% confidence",
+                result.primaryAngle, result.confidence * 100);
+        return result;
     }
 
-    private boolean loadAngleCalculator() {
-        try {
-            if (angleCalculator != null) {
-                angleCalculator.close();
+    /**
+     * Keypoint and classification stages plus assessment for an already decoded
+     * frame; no result cache. Streaming sessions use this for their keyframes.
+     */
+    CompletableFuture<SpineAnalysisResult> analyzeLuminance(LuminancePlane luminance, Executor executor,
+                                                            AnalysisTrace trace, long timestamp) {
+        return analyzeLuminance(luminance, ModelVariant.STANDARD, executor, trace, timestamp);
+    }
+
+    private CompletableFuture<SpineAnalysisResult> analyzeLuminance(LuminancePlane luminance, ModelVariant variant,
+                                                                    Executor executor, AnalysisTrace trace,
+                                                                    long timestamp) {
+        return analyzeGraph(pipeline.newGraph(luminance, variant, executor, trace), luminance, timestamp);
+    }
+
+    private CompletableFuture<SpineAnalysisResult> analyzeGraph(final AnalysisGraph graph,
+                                                                final LuminancePlane luminance,
+                                                                final long timestamp) {
+        final AnalysisTrace trace = graph.getTrace();
+
+        // Step 1: Keypoint detection
+        CompletableFuture<StageOutcome<SpineAngleDetector.SpineAnalysisResult>> keypointStage =
+                graph.get(pipeline.keypoints).handle(StageOutcome::new);
+
+        // Step 2: Classification, in parallel with keypoints once the image statistics are in
+        CompletableFuture<StageOutcome<SpineClassificationHelper.ClassificationResult>> classificationStage =
+                graph.get(pipeline.classification).handle(StageOutcome::new);
+
+        // Step 3: Comprehensive assessment once both are done
+        return keypointStage.thenCombine(classificationStage, (keypoints, classification) -> {
+            long start = System.nanoTime();
+            SpineAnalysisResult result = new SpineAnalysisResult();
+            result.timestamp = timestamp;
+            result.trace = trace;
+            result.imageWidth = luminance.getSourceWidth();
+            result.imageHeight = luminance.getSourceHeight();
+
+            if (keypoints.value != null) {
+                applyKeypointResult(result, keypoints.value);
+            }
+            if (keypoints.error != null) {
+                MlLog.e(TAG, "Error in keypoint detection", keypoints.error);
+                result.keypointError = keypoints.error;
             }
 
-            MappedByteBuffer modelBuffer = loadModelFile(ANGLE_CALCULATOR_MODEL);
-            Interpreter.Options options = createInterpreterOptions();
+            if (classification.value != null) {
+                applyClassificationResult(result, classification.value);
+            }
+            if (classification.error != null) {
+                MlLog.e(TAG, "Error in classification", classification.error);
+                result.classificationError = classification.error;
+            }
 
-            angleCalculator = new Interpreter(modelBuffer, options);
-            modelLoadStatus.put("angle", true);
+            result.assessment = createComprehensiveAssessment(result);
+            trace.lap(AnalysisTrace.ASSESSMENT, start);
 
-            Log.d(TAG, "Angle calculator loaded successfully");
-            return true;
+            MlLog.d(TAG, "Spine analysis completed: %.1f° with %.1f%% confidence",
+                    result.primaryAngle, result.confidence * 100);
+            return result;
+        });
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to load angle calculator", e);
-            modelLoadStatus.put("angle", false);
-            return false;
+    /**
+     * Result for a streaming frame whose keypoints were tracked from the previous
+     * frame: angles and assessment are recomputed, classification is carried over
+     * from the keyframe the tracking started from.
+     */
+    SpineAnalysisResult analyzeTrackedFrame(LuminancePlane luminance, KeypointSet keypoints,
+                                            SpineAnalysisResult keyframe, AnalysisTrace trace) {
+        SpineAnalysisResult result = new SpineAnalysisResult();
+        result.timestamp = System.currentTimeMillis();
+        result.trace = trace;
+        result.imageWidth = luminance.getSourceWidth();
+        result.imageHeight = luminance.getSourceHeight();
+        result.tracked = true;
+
+        SpineAngleDetector detector = angleDetectorHelper;
+        if (detector != null) {
+            applyKeypointResult(result, detector.analyzeTrackedKeypoints(
+                    keypoints, luminance.getSourceWidth(), luminance.getSourceHeight(), trace));
         }
+
+        long start = System.nanoTime();
+        result.classification = keyframe.classification;
+        result.classificationConfidence = keyframe.classificationConfidence;
+        result.allProbabilities = keyframe.allProbabilities;
+        result.classificationError = keyframe.classificationError;
+        result.assessment = createComprehensiveAssessment(result);
+        trace.lap(AnalysisTrace.ASSESSMENT, start);
+
+        return result;
     }
 
-    private Interpreter.Options createInterpreterOptions() {
-        Interpreter.Options options = new Interpreter.Options();
+    /**
+     * Session for a continuous stream of frames of the same scene (e.g. live camera
+     * over a lightbox): most frames only pay for a keypoint tracking update instead
+     * of the full pipeline. Frames that arrive faster than they can be analyzed are
+     * dropped, keeping only the newest one.
+     */
+    public SpineTrackingSession startTrackingSession() {
+        return startTrackingSession(SpineTrackingSession.SchedulingMode.LATEST_FRAME_WINS);
+    }
 
-        // Use multiple threads for better performance
-        options.setNumThreads(4);
+    public SpineTrackingSession startTrackingSession(SpineTrackingSession.SchedulingMode mode) {
+        return new SpineTrackingSession(this, executorService, mode);
+    }
 
-        // Enable NNAPI if available (Android Neural Networks API)
-        try {
-            options.setUseNNAPI(true);
-            Log.d(TAG, "NNAPI enabled for hardware acceleration");
-        } catch (Exception e) {
-            Log.w(TAG, "NNAPI not available, using CPU only");
-        }
+    /**
+     * Stages of the analysis, to ask an AnalysisGraph from startAnalysisGraph for
+     */
+    public SpinePipeline getPipeline() {
+        return pipeline;
+    }
 
-        // Allow FP16 precision for faster inference (if supported)
-        try {
-            options.setAllowFp16PrecisionForFp32(true);
-            Log.d(TAG, "FP16 precision enabled");
-        } catch (Exception e) {
-            Log.w(TAG, "FP16 precision not supported");
-        }
+    /**
+     * Graph for one image, for callers that want several detectors on it, e.g.
+     *   graph.get(pipeline.keypoints), graph.get(pipeline.straight), graph.get(pipeline.accurate)
+     * Decoding starts now; the luminance plane, image statistics and centerline are
+     * computed once and shared by every stage asked for. Not cached, no assessment;
+     * straight and accurate results are in plane pixels (times getScale() for source).
+     */
+    public AnalysisGraph startAnalysisGraph(Bitmap inputBitmap, ModelVariant variant) {
+        return startAnalysisGraph(inputBitmap, variant, executorService);
+    }
 
-        return options;
+    public AnalysisGraph startAnalysisGraph(final Bitmap inputBitmap, ModelVariant variant, Executor executor) {
+        CompletableFuture<LuminancePlane> luminance = CompletableFuture.supplyAsync(
+                () -> LuminancePlane.fromPixels(new BitmapPixelSource(inputBitmap), LuminancePlane.DEFAULT_MAX_PIXELS),
+                executor);
+        return pipeline.newGraph(luminance, variant, executor, new AnalysisTrace());
     }
 
-    private MappedByteBuffer loadModelFile(String modelName) throws IOException {
-        try {
-            FileInputStream fileInputStream = new FileInputStream(
-                    context.getAssets().openFd(modelName).getFileDescriptor());
-            FileChannel fileChannel = fileInputStream.getChannel();
-            long startOffset = context.getAssets().openFd(modelName).getStartOffset();
-            long declaredLength = context.getAssets().openFd(modelName).getDeclaredLength();
+    // Null when the keypoint model is unavailable
+    private SpineAngleDetector.SpineAnalysisResult detectKeypoints(LuminancePlane luminance, ModelVariant variant,
+                                                                   AnalysisTrace trace) {
+        SpineAngleDetector detector = getAngleDetector(variant);
+        if (detector == null || !awaitModel("keypoint", variant)) return null;
+        return detector.detectSpineAndCalculateAngle(luminance, trace);
+    }
+
+    // Null when the classifier is unavailable
+    private SpineClassificationHelper.ClassificationResult classify(LuminancePlane luminance,
+                                                                    ImageStatistics statistics,
+                                                                    ModelVariant variant, AnalysisTrace trace) {
+        SpineClassificationHelper classifier = getClassificationHelper(variant);
+        if (classifier == null || !awaitModel("classifier", variant)) return null;
+        return classifier.classifySpine(luminance, statistics, trace);
+    }
+
+    private AccurateSpineDetector getAccurateDetector() {
+        AccurateSpineDetector detector = accurateDetector;
+        if (detector != null) return detector;
+
+        synchronized (accurateDetectorLock) {
+            if (accurateDetector == null) {
+                accurateDetector = new AccurateSpineDetector(registry, poolSize);
+            }
+            return accurateDetector;
+        }
+    }
+
+    private synchronized SpineAngleDetector getAngleDetector(ModelVariant variant) {
+        if (variant == ModelVariant.STANDARD) return angleDetectorHelper;
+
+        SpineAngleDetector detector = variantDetectors.get(variant);
+        if (detector == null) {
+            detector = new SpineAngleDetector(registry, poolSize, lazyLoading, variant);
+            variantDetectors.put(variant, detector);
+        }
+        return detector;
+    }
 
-            MappedByteBuffer buffer = fileChannel.map(
-                    FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+    private synchronized SpineClassificationHelper getClassificationHelper(ModelVariant variant) {
+        if (variant == ModelVariant.STANDARD) return classificationHelper;
 
-            Log.d(TAG, "Model file loaded: " + modelName + " (" + declaredLength + " bytes)");
-            return buffer;
+        SpineClassificationHelper classifier = variantClassifiers.get(variant);
+        if (classifier == null) {
+            classifier = new SpineClassificationHelper(registry, poolSize, lazyLoading, variant);
+            variantClassifiers.put(variant, classifier);
+        }
+        return classifier;
+    }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading model file: " + modelName, e);
-            throw e;
+    // Versions of the models a result depends on; waits for them to load
+    private String getModelVersionKey(ModelVariant variant) {
+        StringBuilder key = new StringBuilder();
+        for (String modelType : new String[]{"keypoint", "classifier"}) {
+            long fingerprint = awaitModel(modelType, variant)
+                    ? registry.getModelFingerprint(getModelFile(modelType, variant)) : 0L;
+            if (key.length() > 0) key.append('-');
+            key.append(Long.toHexString(fingerprint));
         }
+        // Variants that failed to load must not share keys with the standard models
+        if (variant != ModelVariant.STANDARD) key.append('-').append(variant.name());
+        return key.toString();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
-    public void analyzeSpine(Bitmap inputBitmap, final SpineAnalysisCallback callback) {
+    /**
+     * Analyze several images, batching inference up to MAX_BATCH_SIZE images at a
+     * time. Each image is reported as soon as its chunk finishes, so one bad image
+     * only costs its own result; the final list is in input order with null for
+     * images that failed.
+     */
+    public void analyzeSpineBatch(final List<Bitmap> inputBitmaps, final BatchAnalysisCallback callback) {
         executorService.execute(new Runnable() {
             @Override
             public void run() {
-                try {
-                    Log.d(TAG, "Starting comprehensive spine analysis...");
-
-                    SpineAnalysisResult result = new SpineAnalysisResult();
-                    result.timestamp = System.currentTimeMillis();
-                    result.imageWidth = inputBitmap.getWidth();
-                    result.imageHeight = inputBitmap.getHeight();
-
-                    // Step 1: Keypoint detection
-                    if (isModelLoaded("keypoint") && angleDetectorHelper != null) {
-                        try {
-                            SpineAngleDetector.SpineAnalysisResult keypointResult =
-                                    angleDetectorHelper.detectSpineAndCalculateAngle(inputBitmap);
-
-                            result.keypoints = keypointResult.keypoints;
-                            result.angles = keypointResult.angles;
-                            result.primaryAngle = keypointResult.getPrimaryAngle();
-                            result.confidence = keypointResult.getConfidence();
-
-                            Log.d(TAG, "Keypoint detection completed: " + keypointResult.keypoints.size() + " points");
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error in keypoint detection", e);
-                        }
-                    }
+                int total = inputBitmaps.size();
+                SpineAnalysisResult[] results = new SpineAnalysisResult[total];
+                MlLog.d(TAG, "Starting batch spine analysis of %d images...", total);
 
-                    // Step 2: Classification
-                    if (isModelLoaded("classifier") && classificationHelper != null) {
-                        try {
-                            SpineClassificationHelper.ClassificationResult classResult =
-                                    classificationHelper.classifySpine(inputBitmap);
+                for (int start = 0; start < total; start += MAX_BATCH_SIZE) {
+                    int end = Math.min(total, start + MAX_BATCH_SIZE);
+                    analyzeChunk(inputBitmaps, start, end, results, callback);
+                }
 
-                            result.classification = classResult.className;
-                            result.classificationConfidence = classResult.confidence;
-                            result.allProbabilities = classResult.allProbabilities;
+                MlLog.d(TAG, "Batch spine analysis completed");
+                if (callback != null) {
+                    callback.onBatchComplete(Arrays.asList(results));
+                }
+            }
+        });
+    }
 
-                            Log.d(TAG, "Classification completed: " + classResult.className);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error in classification", e);
-                        }
-                    }
+    private void analyzeChunk(List<Bitmap> inputBitmaps, int start, int end,
+                              SpineAnalysisResult[] results, BatchAnalysisCallback callback) {
+        // Grayscale each image once; images that cannot be read drop out of the batch
+        List<Integer> indices = new ArrayList<>();
+        List<LuminancePlane> planes = new ArrayList<>();
+
+        for (int i = start; i < end; i++) {
+            try {
+                planes.add(LuminancePlane.fromPixels(new BitmapPixelSource(inputBitmaps.get(i)),
+                        LuminancePlane.DEFAULT_MAX_PIXELS));
+                indices.add(i);
+            } catch (Exception e) {
+                MlLog.e(TAG, "Error reading batch image " + i, e);
+                if (callback != null) {
+                    callback.onImageFailed(i, e);
+                }
+            }
+        }
+        if (planes.isEmpty()) return;
+
+        List<SpineAngleDetector.SpineAnalysisResult> keypointResults = null;
+        if (angleDetectorHelper != null && awaitModel("keypoint", ModelVariant.STANDARD)) {
+            try {
+                keypointResults = angleDetectorHelper.detectSpineAndCalculateAngleBatch(planes);
+            } catch (Exception e) {
+                MlLog.e(TAG, "Error in batch keypoint detection", e);
+            }
+        }
 
-                    // Step 3: Comprehensive assessment
-                    result.assessment = createComprehensiveAssessment(result);
+        List<SpineClassificationHelper.ClassificationResult> classResults = null;
+        if (classificationHelper != null && awaitModel("classifier", ModelVariant.STANDARD)) {
+            try {
+                classResults = classificationHelper.classifySpineBatch(planes);
+            } catch (Exception e) {
+                MlLog.e(TAG, "Error in batch classification", e);
+            }
+        }
 
-                    Log.d(TAG, "Spine analysis completed: " + result.primaryAngle + "° with " +
-                            (result.confidence * 100) + "% confidence");
+        for (int k = 0; k < planes.size(); k++) {
+            int index = indices.get(k);
+            try {
+                SpineAnalysisResult result = new SpineAnalysisResult();
+                result.timestamp = System.currentTimeMillis();
+                result.imageWidth = planes.get(k).getSourceWidth();
+                result.imageHeight = planes.get(k).getSourceHeight();
 
-                    if (callback != null) {
-                        callback.onAnalysisComplete(result);
-                    }
+                if (keypointResults != null) {
+                    applyKeypointResult(result, keypointResults.get(k));
+                }
+                if (classResults != null) {
+                    applyClassificationResult(result, classResults.get(k));
+                }
+                result.assessment = createComprehensiveAssessment(result);
 
-                } catch (Exception e) {
-                    Log.e(TAG, "Error during spine analysis", e);
-                    if (callback != null) {
-                        callback.onAnalysisComplete(createFallbackResult(inputBitmap));
-                    }
+                results[index] = result;
+                if (callback != null) {
+                    callback.onImageAnalyzed(index, result);
+                }
+            } catch (Exception e) {
+                MlLog.e(TAG, "Error assembling batch result " + index, e);
+                if (callback != null) {
+                    callback.onImageFailed(index, e);
                 }
             }
-        });
+        }
+    }
+
+    private void applyKeypointResult(SpineAnalysisResult result,
+                                     SpineAngleDetector.SpineAnalysisResult keypointResult) {
+        result.keypoints = keypointResult.keypoints;
+        result.angles = keypointResult.angles;
+        result.primaryAngle = keypointResult.getPrimaryAngle();
+        result.confidence = keypointResult.getConfidence();
+
+        MlLog.d(TAG, "Keypoint detection completed: %d points", keypointResult.keypoints.size());
+    }
+
+    private void applyClassificationResult(SpineAnalysisResult result,
+                                           SpineClassificationHelper.ClassificationResult classResult) {
+        result.classification = classResult.className;
+        result.classificationConfidence = classResult.confidence;
+        result.allProbabilities = classResult.allProbabilities;
+
+        MlLog.d(TAG, "Classification completed: %s", classResult.className);
     }
 
     private SpineAssessment createComprehensiveAssessment(SpineAnalysisResult result) {
@@ -291,23 +777,23 @@ public class MLModelManager {
         if (angle < 10) {
             assessment.severity = "Normal";
             assessment.riskLevel = "Low";
-            assessment.color = android.graphics.Color.GREEN;
+            assessment.color = SpineColors.GREEN;
         } else if (angle < 20) {
             assessment.severity = "Mild Scoliosis";
             assessment.riskLevel = "Low";
-            assessment.color = android.graphics.Color.rgb(255, 193, 7); // Amber
+            assessment.color = SpineColors.AMBER;
         } else if (angle < 40) {
             assessment.severity = "Moderate Scoliosis";
             assessment.riskLevel = "Medium";
-            assessment.color = android.graphics.Color.rgb(255, 152, 0); // Orange
+            assessment.color = SpineColors.ORANGE;
         } else if (angle < 50) {
             assessment.severity = "Severe Scoliosis";
             assessment.riskLevel = "High";
-            assessment.color = android.graphics.Color.rgb(255, 87, 34); // Deep Orange
+            assessment.color = SpineColors.DEEP_ORANGE;
         } else {
             assessment.severity = "Very Severe Scoliosis";
             assessment.riskLevel = "Critical";
-            assessment.color = android.graphics.Color.RED;
+            assessment.color = SpineColors.RED;
         }
 
         // Calculate overall confidence
@@ -369,7 +855,7 @@ public class MLModelManager {
         result.assessment.recommendations = "Please ensure ML models are properly installed for accurate analysis.";
         result.assessment.requiresImmediateAttention = false;
 
-        Log.w(TAG, "Using fallback analysis result");
+        MlLog.w(TAG, "Using fallback analysis result");
         return result;
     }
 
@@ -383,15 +869,112 @@ public class MLModelManager {
         status.append("Keypoint: ").append(isModelLoaded("keypoint") ? "✓" : "✗").append("\n");
         status.append("Angle: ").append(isModelLoaded("angle") ? "✓" : "✗").append("\n");
         status.append("Hardware: CPU");
+
+        for (InterpreterPool.PoolStats stats : getPoolStats()) {
+            status.append("\n").append(stats);
+        }
+        status.append("\n").append(resultCache.getStats());
+        if (cascadeEnabled) {
+            status.append("\n").append(cascade.getStats());
+        }
         return status.toString();
     }
 
+    /**
+     * Pool sizes and checkout-wait metrics for every loaded interpreter pool
+     */
+    public List<InterpreterPool.PoolStats> getPoolStats() {
+        List<InterpreterPool.PoolStats> stats = new ArrayList<>();
+        if (classificationHelper != null && classificationHelper.getPoolStats() != null) {
+            stats.add(classificationHelper.getPoolStats());
+        }
+        if (angleDetectorHelper != null && angleDetectorHelper.getPoolStats() != null) {
+            stats.add(angleDetectorHelper.getPoolStats());
+        }
+        synchronized (this) {
+            for (SpineClassificationHelper classifier : variantClassifiers.values()) {
+                if (classifier.getPoolStats() != null) stats.add(classifier.getPoolStats());
+            }
+            for (SpineAngleDetector detector : variantDetectors.values()) {
+                if (detector.getPoolStats() != null) stats.add(detector.getPoolStats());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Interpreters per model; takes effect the next time the manager is created
+     */
+    public void setInterpreterPoolSize(int size) {
+        preferences.edit().putInt(PREF_POOL_SIZE, Math.max(1, size)).apply();
+        MlLog.d(TAG, "Interpreter pool size set to: " + size);
+    }
+
+    public int getInterpreterPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Map models only on first use instead of at startup; takes effect the next
+     * time the manager is created
+     */
+    public void setLazyModelLoading(boolean lazy) {
+        preferences.edit().putBoolean(PREF_LAZY_LOADING, lazy).apply();
+        MlLog.d(TAG, "Lazy model loading set to: " + lazy);
+    }
+
+    public boolean isLazyModelLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * Keep analysis results on disk across restarts; takes effect the next time the
+     * manager is created
+     */
+    public void setDiskResultCacheEnabled(boolean enabled) {
+        preferences.edit().putBoolean(PREF_DISK_RESULT_CACHE, enabled).apply();
+        MlLog.d(TAG, "Disk result cache set to: " + enabled);
+    }
+
+    /**
+     * Cascade mode: run the cheap linearity check first and skip both models when it
+     * is decisive (see ScreeningCascade). Takes effect for the next request.
+     */
+    public void setCascadeEnabled(boolean enabled) {
+        cascadeEnabled = enabled;
+        preferences.edit().putBoolean(PREF_CASCADE, enabled).apply();
+        MlLog.d(TAG, "Screening cascade set to: " + enabled);
+    }
+
+    public boolean isCascadeEnabled() {
+        return cascadeEnabled;
+    }
+
+    /**
+     * Confidence bands within which the heuristic answers on its own
+     */
+    public void setCascadeBands(float minStraightness, double maxDeviationRatio) {
+        cascade.setBands(minStraightness, maxDeviationRatio);
+    }
+
+    public ScreeningCascade.CascadeStats getCascadeStats() {
+        return cascade.getStats();
+    }
+
+    public AnalysisResultCache.CacheStats getResultCacheStats() {
+        return resultCache.getStats();
+    }
+
+    public void clearResultCache() {
+        resultCache.clear();
+    }
+
     public void warmupModels() {
         executorService.execute(new Runnable() {
             @Override
             public void run() {
                 try {
-                    Log.d(TAG, "Warming up models...");
+                    MlLog.d(TAG, "Warming up models...");
 
                     // Create small dummy bitmap for warmup
                     Bitmap dummyBitmap = Bitmap.createBitmap(224, 224, Bitmap.Config.RGB_565);
@@ -399,42 +982,51 @@ public class MLModelManager {
 
                     // Warmup classification model
                     if (classificationHelper != null && classificationHelper.isModelReady()) {
-                        classificationHelper.classifySpine(dummyBitmap);
-                        Log.d(TAG, "Classification model warmed up");
+                        classificationHelper.classifySpine(new BitmapPixelSource(dummyBitmap));
+                        MlLog.d(TAG, "Classification model warmed up");
                     }
 
                     // Warmup keypoint detection model
                     if (angleDetectorHelper != null && angleDetectorHelper.isModelReady()) {
-                        angleDetectorHelper.detectSpineAndCalculateAngle(dummyBitmap);
-                        Log.d(TAG, "Keypoint detection model warmed up");
+                        angleDetectorHelper.detectSpineAndCalculateAngle(new BitmapPixelSource(dummyBitmap));
+                        MlLog.d(TAG, "Keypoint detection model warmed up");
                     }
 
-                    Log.d(TAG, "Models warmup completed successfully");
+                    MlLog.d(TAG, "Models warmup completed successfully");
 
                 } catch (Exception e) {
-                    Log.w(TAG, "Model warmup failed", e);
+                    MlLog.w(TAG, "Model warmup failed", e);
                 }
             }
         });
     }
 
     public void cleanup() {
-        Log.d(TAG, "Cleaning up ML resources...");
+        MlLog.d(TAG, "Cleaning up ML resources...");
 
-        // Close interpreters
-        if (spineClassifier != null) {
-            spineClassifier.close();
-            spineClassifier = null;
-        }
+        // Release shared models; the last user closes the interpreters
+        synchronized (this) {
+            for (String modelType : modelPools.keySet()) {
+                registry.release(modelFiles.get(modelType));
+            }
+            modelPools.clear();
+            modelFiles.clear();
 
-        if (keypointDetector != null) {
-            keypointDetector.close();
-            keypointDetector = null;
+            for (SpineClassificationHelper classifier : variantClassifiers.values()) {
+                classifier.close();
+            }
+            variantClassifiers.clear();
+            for (SpineAngleDetector detector : variantDetectors.values()) {
+                detector.close();
+            }
+            variantDetectors.clear();
         }
 
-        if (angleCalculator != null) {
-            angleCalculator.close();
-            angleCalculator = null;
+        synchronized (accurateDetectorLock) {
+            if (accurateDetector != null) {
+                accurateDetector.close();
+                accurateDetector = null;
+            }
         }
 
         // Close helper classes
@@ -456,7 +1048,7 @@ public class MLModelManager {
         // Clear status
         modelLoadStatus.clear();
 
-        Log.d(TAG, "ML resources cleaned up successfully");
+        MlLog.d(TAG, "ML resources cleaned up successfully");
     }
 
     // Test method to verify models are working
@@ -477,7 +1069,7 @@ public class MLModelManager {
                     if (angleDetectorHelper != null) {
                         Bitmap testBitmap = Bitmap.createBitmap(256, 256, Bitmap.Config.RGB_565);
                         SpineAngleDetector.SpineAnalysisResult testResult =
-                                angleDetectorHelper.detectSpineAndCalculateAngle(testBitmap);
+                                angleDetectorHelper.detectSpineAndCalculateAngle(new BitmapPixelSource(testBitmap));
                         detectorOk = testResult != null;
                     }
 
@@ -486,7 +1078,7 @@ public class MLModelManager {
                     }
 
                 } catch (Exception e) {
-                    Log.e(TAG, "Model test failed", e);
+                    MlLog.e(TAG, "Model test failed", e);
                     if (callback != null) {
                         callback.onTestComplete(false, false);
                     }
@@ -504,6 +1096,14 @@ public class MLModelManager {
         void onAnalysisComplete(SpineAnalysisResult result);
     }
 
+    public interface BatchAnalysisCallback {
+        void onImageAnalyzed(int index, SpineAnalysisResult result);
+
+        void onImageFailed(int index, Exception error);
+
+        void onBatchComplete(List<SpineAnalysisResult> results);
+    }
+
     public interface ModelTestCallback {
         void onTestComplete(boolean classifierOk, boolean detectorOk);
     }
@@ -518,18 +1118,72 @@ public class MLModelManager {
         public String classification;
         public float classificationConfidence;
         public float[] allProbabilities;
-        public java.util.List<SpineAngleDetector.SpineKeypoint> keypoints;
+        public List<SpineAngleDetector.SpineKeypoint> keypoints;
         public SpineAngleDetector.SpineAngles angles;
         public SpineAssessment assessment;
 
+        // Stage failures from analyzeSpineAsync; null when the stage succeeded or was skipped
+        public Throwable keypointError;
+        public Throwable classificationError;
+
+        // Stage timings of analyzeSpineAsync; null for batch and fallback results
+        public AnalysisTrace trace;
+
+        // Streaming sessions: keypoints tracked from an earlier frame rather than detected
+        public boolean tracked;
+
+        // Which path produced the result: the models, or the cascade heuristic alone
+        public enum AnsweredBy { MODELS, SCREENING }
+
+        public AnsweredBy answeredBy = AnsweredBy.MODELS;
+
+        // A screened spine can be perfectly straight, so its deviation angle may be 0
         public boolean isSuccessful() {
-            return primaryAngle > 0 && confidence > 0;
+            return (primaryAngle > 0 || answeredBy == AnsweredBy.SCREENING) && confidence > 0;
         }
 
         public String getSummary() {
             return String.format("Angle: %.1f°, Confidence: %.1f%%, Classification: %s",
                     primaryAngle, confidence * 100, classification);
         }
+
+        // Deep copy, so the result cache never shares mutable state with a caller
+        SpineAnalysisResult copy() {
+            SpineAnalysisResult copy = new SpineAnalysisResult();
+            copy.timestamp = timestamp;
+            copy.imageWidth = imageWidth;
+            copy.imageHeight = imageHeight;
+            copy.primaryAngle = primaryAngle;
+            copy.confidence = confidence;
+            copy.classification = classification;
+            copy.classificationConfidence = classificationConfidence;
+            copy.allProbabilities = allProbabilities != null ? allProbabilities.clone() : null;
+            if (keypoints != null) {
+                copy.keypoints = new ArrayList<>(keypoints.size());
+                for (SpineAngleDetector.SpineKeypoint keypoint : keypoints) {
+                    copy.keypoints.add(keypoint.copy());
+                }
+            }
+            copy.angles = angles != null ? angles.copy() : null;
+            copy.assessment = assessment != null ? assessment.copy() : null;
+            copy.keypointError = keypointError;
+            copy.classificationError = classificationError;
+            copy.trace = trace;
+            copy.tracked = tracked;
+            copy.answeredBy = answeredBy;
+            return copy;
+        }
+    }
+
+    // Value or error of one analysis stage
+    private static class StageOutcome<T> {
+        final T value;
+        final Throwable error;
+
+        StageOutcome(T value, Throwable error) {
+            this.value = value;
+            this.error = error != null ? unwrap(error) : null;
+        }
     }
 
     public static class SpineAssessment {
@@ -540,6 +1194,17 @@ public class MLModelManager {
         public String recommendations;
         public boolean requiresImmediateAttention;
 
+        SpineAssessment copy() {
+            SpineAssessment copy = new SpineAssessment();
+            copy.severity = severity;
+            copy.riskLevel = riskLevel;
+            copy.overallConfidence = overallConfidence;
+            copy.color = color;
+            copy.recommendations = recommendations;
+            copy.requiresImmediateAttention = requiresImmediateAttention;
+            return copy;
+        }
+
         public boolean isNormal() {
             return "Normal".equals(severity);
         }
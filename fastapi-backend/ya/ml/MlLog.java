@@ -0,0 +1,125 @@
+// MlLog.java - Logging facade so the pipeline does not depend on android.util.Log
+package com.example.spineanalyzer.ml;
+
+/**
+ * Messages below the minimum level are dropped before anything is built. The
+ * format overloads take primitives and only call String.format once the level
+ * check passes, so a disabled debug line in a per-image path allocates nothing.
+ * Use isLoggable() around anything the overloads do not cover.
+ */
+public final class MlLog {
+
+    /**
+     * Destination for log lines; install AndroidLogSink on Android
+     */
+    public interface Sink {
+        void log(int level, String tag, String message, Throwable error);
+    }
+
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    private static volatile Sink sink = new StderrSink();
+    private static volatile int minLevel = DEBUG;
+
+    private MlLog() {
+    }
+
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : new StderrSink();
+    }
+
+    /**
+     * Drop everything below level, e.g. INFO in release builds
+     */
+    public static void setLevel(int level) {
+        minLevel = level;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, message, null);
+    }
+
+    public static void d(String tag, String format, long a) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a), null);
+    }
+
+    public static void d(String tag, String format, double a) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a), null);
+    }
+
+    public static void d(String tag, String format, Object a) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a), null);
+    }
+
+    public static void d(String tag, String format, long a, long b) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a, b), null);
+    }
+
+    public static void d(String tag, String format, double a, double b) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a, b), null);
+    }
+
+    public static void d(String tag, String format, Object a, double b) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a, b), null);
+    }
+
+    public static void d(String tag, String format, double a, long b) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a, b), null);
+    }
+
+    public static void d(String tag, String format, Object a, double b, double c) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a, b, c), null);
+    }
+
+    public static void d(String tag, String format, Object a, double b, double c, double d) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a, b, c, d), null);
+    }
+
+    public static void d(String tag, String format, double a, double b, double c, double d) {
+        if (DEBUG >= minLevel) sink.log(DEBUG, tag, String.format(format, a, b, c, d), null);
+    }
+
+    public static void i(String tag, String message) {
+        if (INFO >= minLevel) sink.log(INFO, tag, message, null);
+    }
+
+    public static void w(String tag, String message) {
+        if (WARN >= minLevel) sink.log(WARN, tag, message, null);
+    }
+
+    public static void w(String tag, String message, Throwable error) {
+        if (WARN >= minLevel) sink.log(WARN, tag, message, error);
+    }
+
+    public static void w(String tag, String format, Object a, double b) {
+        if (WARN >= minLevel) sink.log(WARN, tag, String.format(format, a, b), null);
+    }
+
+    public static void e(String tag, String message) {
+        if (ERROR >= minLevel) sink.log(ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        if (ERROR >= minLevel) sink.log(ERROR, tag, message, error);
+    }
+
+    // Default for plain JVMs
+    private static class StderrSink implements Sink {
+        private static final String LEVELS = "??VDIWE";
+
+        @Override
+        public void log(int level, String tag, String message, Throwable error) {
+            System.err.println(LEVELS.charAt(level) + "/" + tag + ": " + message);
+            if (error != null) {
+                error.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+// ModelLoader.java - Maps a model file by name (assets on Android, files elsewhere)
+package com.example.spineanalyzer.ml;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+
+public interface ModelLoader {
+    MappedByteBuffer load(String modelFile) throws IOException;
+}
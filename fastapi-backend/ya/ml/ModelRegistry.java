@@ -0,0 +1,191 @@
+// ModelRegistry.java - Maps each model file once and shares its interpreter pool
+package com.example.spineanalyzer.ml;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.MappedByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ModelRegistry {
+
+    private static final String TAG = "ModelRegistry";
+
+    // Singleton instance
+    private static ModelRegistry instance;
+
+    private final ModelLoader loader;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Long> fingerprints = new ConcurrentHashMap<>();
+
+    // Models load on their own threads so one slow model never delays another. Daemon
+    // threads: the registry is never shut down and must not keep a plain JVM alive
+    private final ExecutorService loadExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ModelRegistry-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ModelRegistry(ModelLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Process-wide registry, created with the loader of the first call. Later calls
+     * must pass the same loader (or null); a different one would be silently unused,
+     * so it is rejected with IllegalStateException.
+     */
+    public static synchronized ModelRegistry getInstance(ModelLoader loader) {
+        if (instance == null) {
+            if (loader == null) {
+                throw new IllegalStateException("ModelRegistry is not initialized; pass a ModelLoader");
+            }
+            instance = new ModelRegistry(loader);
+        } else if (loader != null && loader != instance.loader) {
+            throw new IllegalStateException("ModelRegistry already uses " + instance.loader
+                    + ", cannot switch to " + loader);
+        }
+        return instance;
+    }
+
+    /**
+     * Take a reference to the pool for a model. The first acquire maps the file and
+     * creates the pool in the background; later ones share the same future. Every
+     * acquireAsync must be paired with a release(modelFile), even if loading fails.
+     */
+    public synchronized CompletableFuture<InterpreterPool> acquireAsync(final String poolName,
+                                                                     final String modelFile,
+                                                                     final int poolSize) {
+        Entry entry = entries.get(modelFile);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(modelFile, entry);
+        }
+
+        if (entry.ready == null || entry.ready.isCompletedExceptionally()) {
+            // First user, or the previous attempt failed: load (again)
+            entry.poolSize = poolSize;
+            entry.ready = CompletableFuture.supplyAsync(
+                    () -> load(poolName, modelFile, poolSize), loadExecutor);
+        } else if (entry.poolSize != poolSize) {
+            MlLog.w(TAG, "Sharing " + modelFile + " pool of size " + entry.poolSize
+                    + " (requested " + poolSize + ")");
+        }
+
+        entry.refCount++;
+        return entry.ready;
+    }
+
+    /**
+     * Blocking acquire; a failed acquire holds no reference
+     */
+    public InterpreterPool acquire(String poolName, String modelFile, int poolSize) throws Exception {
+        CompletableFuture<InterpreterPool> ready = acquireAsync(poolName, modelFile, poolSize);
+        try {
+            return ready.get();
+        } catch (ExecutionException e) {
+            release(modelFile);
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Drop a reference; the last release closes the pool (once it has finished loading)
+     */
+    public synchronized void release(String modelFile) {
+        Entry entry = entries.get(modelFile);
+        if (entry == null) return;
+
+        entry.refCount--;
+        if (entry.refCount <= 0) {
+            entries.remove(modelFile);
+            entry.ready.thenAccept(InterpreterPool::close);
+            MlLog.d(TAG, "Model released: " + modelFile);
+        }
+    }
+
+    private InterpreterPool load(String poolName, String modelFile, int poolSize) {
+        try {
+            final MappedByteBuffer modelBuffer = loader.load(modelFile);
+            final Interpreter.Options options = createInterpreterOptions();
+            fingerprints.put(modelFile, fingerprint(modelBuffer));
+
+            InterpreterPool pool = new InterpreterPool(poolName, poolSize,
+                    () -> new ModelRunner(new Interpreter(modelBuffer, options)));
+
+            MlLog.d(TAG, "Model registered: " + modelFile + " (pool size " + poolSize + ", input "
+                    + pool.getInputFormat() + ")");
+            return pool;
+
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Content hash of a model file that has been loaded at least once, else 0.
+     * Identifies the model version, e.g. for result caching.
+     */
+    public long getModelFingerprint(String modelFile) {
+        Long fingerprint = fingerprints.get(modelFile);
+        return fingerprint != null ? fingerprint : 0L;
+    }
+
+    // FNV-1a over the model bytes, eight at a time
+    private static long fingerprint(MappedByteBuffer buffer) {
+        long hash = 0xcbf29ce484222325L;
+        int length = buffer.capacity();
+        int i = 0;
+
+        for (; i + 8 <= length; i += 8) {
+            hash = (hash ^ buffer.getLong(i)) * 0x100000001b3L;
+        }
+        for (; i < length; i++) {
+            hash = (hash ^ buffer.get(i)) * 0x100000001b3L;
+        }
+        return hash ^ length;
+    }
+
+    public synchronized int getRefCount(String modelFile) {
+        Entry entry = entries.get(modelFile);
+        return entry != null ? entry.refCount : 0;
+    }
+
+    private Interpreter.Options createInterpreterOptions() {
+        Interpreter.Options options = new Interpreter.Options();
+
+        // Use multiple threads for better performance
+        options.setNumThreads(4);
+
+        // Enable NNAPI if available (Android Neural Networks API)
+        try {
+            options.setUseNNAPI(true);
+            MlLog.d(TAG, "NNAPI enabled for hardware acceleration");
+        } catch (Exception e) {
+            MlLog.w(TAG, "NNAPI not available, using CPU only");
+        }
+
+        // Allow FP16 precision for faster inference (if supported)
+        try {
+            options.setAllowFp16PrecisionForFp32(true);
+            MlLog.d(TAG, "FP16 precision enabled");
+        } catch (Exception e) {
+            MlLog.w(TAG, "FP16 precision not supported");
+        }
+
+        return options;
+    }
+
+    private static class Entry {
+        CompletableFuture<InterpreterPool> ready;
+        int poolSize;
+        int refCount;
+    }
+}
@@ -0,0 +1,231 @@
+// ModelRunner.java - Interpreter wrapper with preallocated direct input/output tensors
+package com.example.spineanalyzer.ml;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ModelRunner {
+
+    private final Interpreter interpreter;
+    private final TensorFormat[] inputFormats;
+    private final TensorFormat[] outputFormats;
+    private ByteBuffer[] inputBuffers;
+    private ByteBuffer[] outputBuffers;
+
+    // Reused for every run so invocation itself allocates nothing
+    private Object[] inputs;
+    private Map<Integer, Object> outputs;
+
+    // Batch and spatial size of input 0 currently allocated; only this shape's tensors are kept
+    private int batchSize;
+    private int inputHeight;
+    private int inputWidth;
+    private final boolean dynamicInputSize;
+
+    public ModelRunner(Interpreter interpreter) {
+        this.interpreter = interpreter;
+
+        // Float or quantized; fixed by the model file, so inspected once
+        inputFormats = new TensorFormat[interpreter.getInputTensorCount()];
+        for (int i = 0; i < inputFormats.length; i++) {
+            inputFormats[i] = TensorFormat.of(interpreter.getInputTensor(i));
+        }
+        outputFormats = new TensorFormat[interpreter.getOutputTensorCount()];
+        for (int i = 0; i < outputFormats.length; i++) {
+            outputFormats[i] = TensorFormat.of(interpreter.getOutputTensor(i));
+        }
+
+        // NHWC image input; -1 in the signature marks a dimension resizeInput may change
+        Tensor input = interpreter.getInputTensor(0);
+        int[] shape = input.shape();
+        int[] signature = input.shapeSignature();
+        this.batchSize = shape.length > 0 ? shape[0] : 1;
+        this.inputHeight = shape.length == 4 ? shape[1] : 0;
+        this.inputWidth = shape.length == 4 ? shape[2] : 0;
+        this.dynamicInputSize = signature != null && signature.length == 4
+                && (signature[1] == -1 || signature[2] == -1);
+        allocateBuffers();
+    }
+
+    // Direct buffers for the current shape; the previous shape's are dropped
+    private void allocateBuffers() {
+        int inputCount = interpreter.getInputTensorCount();
+        int outputCount = interpreter.getOutputTensorCount();
+
+        inputBuffers = new ByteBuffer[inputCount];
+        inputs = new Object[inputCount];
+        for (int i = 0; i < inputCount; i++) {
+            inputBuffers[i] = allocate(interpreter.getInputTensor(i));
+            inputs[i] = inputBuffers[i];
+        }
+
+        outputBuffers = new ByteBuffer[outputCount];
+        outputs = new HashMap<>();
+        for (int i = 0; i < outputCount; i++) {
+            outputBuffers[i] = allocate(interpreter.getOutputTensor(i));
+            outputs.put(i, outputBuffers[i]);
+        }
+    }
+
+    /**
+     * Resize the leading dimension of every input to n images. A no-op at the
+     * current size; runners keep the last batch size, so callers set the one they need.
+     */
+    public void setBatchSize(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        resize(n, inputHeight, inputWidth);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Resize the spatial dimensions of the image input. Only models exported with
+     * dynamic height/width accept a size other than their own.
+     */
+    public void setInputSize(int width, int height) {
+        if (width == inputWidth && height == inputHeight) return;
+        if (!dynamicInputSize) {
+            throw new IllegalArgumentException("Model input is fixed at " + inputWidth + "x" + inputHeight
+                    + ", cannot resize to " + width + "x" + height);
+        }
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Input size must be at least 1x1");
+        }
+        resize(batchSize, height, width);
+    }
+
+    private void resize(int batch, int height, int width) {
+        if (batch == batchSize && height == inputHeight && width == inputWidth) return;
+
+        for (int i = 0; i < interpreter.getInputTensorCount(); i++) {
+            int[] shape = interpreter.getInputTensor(i).shape().clone();
+            shape[0] = batch;
+            if (i == 0 && shape.length == 4) {
+                shape[1] = height;
+                shape[2] = width;
+            }
+            interpreter.resizeInput(i, shape);
+        }
+        interpreter.allocateTensors();
+        batchSize = batch;
+        inputHeight = height;
+        inputWidth = width;
+        allocateBuffers();
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
+
+    public int getInputHeight() {
+        return inputHeight;
+    }
+
+    public boolean hasDynamicInputSize() {
+        return dynamicInputSize;
+    }
+
+    /**
+     * Values per image in an output, e.g. the number of classes of a classifier
+     */
+    public int getOutputLength(int index) {
+        return outputBuffers[index].capacity() / outputFormats[index].getElementBytes() / batchSize;
+    }
+
+    private static ByteBuffer allocate(Tensor tensor) {
+        return ByteBuffer.allocateDirect(tensor.numBytes()).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Element type and quantization of an input; fill getInputBuffer() accordingly
+     */
+    public TensorFormat getInputFormat(int index) {
+        return inputFormats[index];
+    }
+
+    public TensorFormat getOutputFormat(int index) {
+        return outputFormats[index];
+    }
+
+    public boolean isQuantized() {
+        return inputFormats.length > 0 && inputFormats[0].isQuantized();
+    }
+
+    /**
+     * Input tensor buffer, rewound and ready to be filled
+     */
+    public ByteBuffer getInputBuffer(int index) {
+        ByteBuffer buffer = inputBuffers[index];
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Output tensor buffer from the last run, rewound for reading
+     */
+    public ByteBuffer getOutputBuffer(int index) {
+        ByteBuffer buffer = outputBuffers[index];
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Copy an output tensor into dst as real values (quantized outputs are
+     * dequantized); returns the number of values read
+     */
+    public int readFloatOutput(int index, float[] dst) {
+        return readFloatOutput(index, 0, dst);
+    }
+
+    /**
+     * Copy dst.length floats starting at element offset (e.g. one image of a batch)
+     */
+    public int readFloatOutput(int index, int offset, float[] dst) {
+        ByteBuffer buffer = outputBuffers[index];
+        TensorFormat format = outputFormats[index];
+        int count = Math.max(0, Math.min(dst.length, buffer.capacity() / format.getElementBytes() - offset));
+
+        if (format.isQuantized()) {
+            for (int i = 0; i < count; i++) {
+                dst[i] = format.dequantize(buffer.get(offset + i));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                dst[i] = buffer.getFloat((offset + i) * 4);
+            }
+        }
+        return count;
+    }
+
+    public void run() {
+        for (ByteBuffer input : inputBuffers) {
+            input.rewind();
+        }
+        for (ByteBuffer output : outputBuffers) {
+            output.clear();
+        }
+
+        interpreter.runForMultipleInputsOutputs(inputs, outputs);
+
+        for (ByteBuffer output : outputBuffers) {
+            output.rewind();
+        }
+    }
+
+    public Interpreter getInterpreter() {
+        return interpreter;
+    }
+
+    public void close() {
+        interpreter.close();
+    }
+}
@@ -0,0 +1,47 @@
+// ModelVariant.java - Speed/accuracy builds of the same model, deployed side by side
+package com.example.spineanalyzer.ml;
+
+/**
+ * Which build of each model a request runs on. A variant is a separate model
+ * file next to the standard one (spine_classifier_fast.tflite, ...), loaded and
+ * pooled on its own. The input size is read from the model; inputSize is only
+ * applied to models whose spatial dimensions are dynamic.
+ */
+public enum ModelVariant {
+    STANDARD("", 0),            // Original files, at the model's own size
+    FAST("_fast", 160),
+    ACCURATE("_accurate", 320);
+
+    private final String suffix;
+    private final int inputSize;
+
+    ModelVariant(String suffix, int inputSize) {
+        this.suffix = suffix;
+        this.inputSize = inputSize;
+    }
+
+    /**
+     * File of this variant: spine_classifier.tflite -> spine_classifier_fast.tflite
+     */
+    public String modelFile(String standardFile) {
+        if (suffix.isEmpty()) return standardFile;
+
+        int dot = standardFile.lastIndexOf('.');
+        return dot < 0 ? standardFile + suffix
+                : standardFile.substring(0, dot) + suffix + standardFile.substring(dot);
+    }
+
+    /**
+     * Pool/model type name of this variant, e.g. "classifier_fast"
+     */
+    public String modelType(String standardType) {
+        return standardType + suffix;
+    }
+
+    /**
+     * Square input size for models with dynamic spatial dimensions, 0 for the caller's default
+     */
+    public int getInputSize() {
+        return inputSize;
+    }
+}
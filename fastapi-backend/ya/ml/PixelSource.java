@@ -0,0 +1,14 @@
+// PixelSource.java - Platform-neutral read access to decoded ARGB pixels
+package com.example.spineanalyzer.ml;
+
+public interface PixelSource {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Copy row y as packed ARGB (0xAARRGGBB) into dst[0..width)
+     */
+    void getRow(int y, int[] dst);
+}
@@ -0,0 +1,104 @@
+// PreprocessKernel.java - Fused resize + contrast + normalize straight into an input tensor
+package com.example.spineanalyzer.ml;
+
+import java.nio.ByteBuffer;
+
+public final class PreprocessKernel {
+
+    private PreprocessKernel() {
+    }
+
+    /**
+     * Contrast curve as a 256-entry table of normalized [0,1] outputs.
+     * gain stretches around mid-gray; brightBoost/darkCut add the extra
+     * push applied above 180 and below 80 (0 to disable).
+     */
+    public static float[] buildContrastCurve(double gain, int brightBoost, int darkCut) {
+        float[] curve = new float[256];
+
+        for (int gray = 0; gray < 256; gray++) {
+            int value = Math.max(0, Math.min(255, (int) ((gray - 128) * gain + 128)));
+
+            if (brightBoost > 0 && value > 180) value = Math.min(255, value + brightBoost);
+            if (darkCut > 0 && value < 80) value = Math.max(0, value - darkCut);
+
+            curve[gray] = value / 255.0f;
+        }
+
+        return curve;
+    }
+
+    /**
+     * Sample the source once per target pixel (bilinear, pixel-center aligned like
+     * Bitmap.createScaledBitmap with filtering), map it through the curve and write
+     * the value to all three channels of an NHWC float32 tensor.
+     */
+    public static void writeTensor(LuminancePlane source, int targetWidth, int targetHeight,
+                                   float[] curve, ByteBuffer dst) {
+        writeTensor(source, targetWidth, targetHeight, curve, TensorFormat.FLOAT32, dst);
+    }
+
+    /**
+     * Same, for an input of the given format: uint8/int8 inputs get the curve
+     * quantized once into a byte table and one byte per channel.
+     */
+    public static void writeTensor(LuminancePlane source, int targetWidth, int targetHeight,
+                                   float[] curve, TensorFormat format, ByteBuffer dst) {
+        int needed = targetWidth * targetHeight * 3 * format.getElementBytes();
+        if (dst.remaining() < needed) {
+            throw new IllegalArgumentException("Input tensor holds " + dst.remaining()
+                    + " bytes, need " + needed);
+        }
+
+        int srcWidth = source.getWidth();
+        int srcHeight = source.getHeight();
+        byte[] data = source.getData();
+        byte[] quantized = format.isQuantized() ? format.quantizeTable(curve) : null;
+
+        // Horizontal taps are the same for every row
+        int[] x0 = new int[targetWidth];
+        int[] x1 = new int[targetWidth];
+        float[] fx = new float[targetWidth];
+        float scaleX = (float) srcWidth / targetWidth;
+
+        for (int x = 0; x < targetWidth; x++) {
+            float sx = Math.max(0f, (x + 0.5f) * scaleX - 0.5f);
+            x0[x] = Math.min(srcWidth - 1, (int) sx);
+            x1[x] = Math.min(srcWidth - 1, x0[x] + 1);
+            fx[x] = sx - x0[x];
+        }
+
+        float scaleY = (float) srcHeight / targetHeight;
+
+        for (int y = 0; y < targetHeight; y++) {
+            float sy = Math.max(0f, (y + 0.5f) * scaleY - 0.5f);
+            int y0 = Math.min(srcHeight - 1, (int) sy);
+            int y1 = Math.min(srcHeight - 1, y0 + 1);
+            float fy = sy - y0;
+
+            int row0 = y0 * srcWidth;
+            int row1 = y1 * srcWidth;
+
+            for (int x = 0; x < targetWidth; x++) {
+                float top = (data[row0 + x0[x]] & 0xFF)
+                        + fx[x] * ((data[row0 + x1[x]] & 0xFF) - (data[row0 + x0[x]] & 0xFF));
+                float bottom = (data[row1 + x0[x]] & 0xFF)
+                        + fx[x] * ((data[row1 + x1[x]] & 0xFF) - (data[row1 + x0[x]] & 0xFF));
+
+                int gray = Math.min(255, (int) (top + fy * (bottom - top) + 0.5f));
+
+                if (quantized != null) {
+                    byte value = quantized[gray];
+                    dst.put(value);
+                    dst.put(value);
+                    dst.put(value);
+                } else {
+                    float value = curve[gray];
+                    dst.putFloat(value);
+                    dst.putFloat(value);
+                    dst.putFloat(value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+// ScreeningCascade.java - Cheap linearity check that answers clearly normal spines without the models
+package com.example.spineanalyzer.ml;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * First stage of the cascade mode: StraightSpineDetector's pixel-only
+ * linearity analysis. A result inside the confidence bands (a detected,
+ * clearly straight centerline) answers the request; anything else, including a
+ * centerline that could not be found, goes on to the keypoint model and
+ * classifier. Curved spines always escalate, since they need the models'
+ * measurements.
+ *
+ * Thread-safe; bands can be changed while requests run.
+ */
+public final class ScreeningCascade {
+
+    private static final String TAG = "ScreeningCascade";
+
+    public static final float DEFAULT_MIN_STRAIGHTNESS = 0.95f;
+    public static final double DEFAULT_MAX_DEVIATION_RATIO = 0.5;  // Of 10% image width
+    private static final int MAX_ESCALATED_KEYS = 256;
+
+    private final StraightSpineDetector detector = new StraightSpineDetector();
+    private volatile Bands bands = new Bands(DEFAULT_MIN_STRAIGHTNESS, DEFAULT_MAX_DEVIATION_RATIO);
+
+    private final AtomicLong screened = new AtomicLong();
+    private final AtomicLong answered = new AtomicLong();
+
+    // Images known to escalate under their bands, oldest dropped first; screening is
+    // deterministic, so screening one of them again would only repeat the decode and scan
+    private final Map<String, Boolean> escalatedKeys = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_ESCALATED_KEYS;
+        }
+    };
+
+    /**
+     * The heuristic result when it is decisive, null when the models have to run.
+     * Keypoints of the result are in plane coordinates.
+     */
+    public StraightSpineDetector.StraightSpineResult screen(LuminancePlane luminance) {
+        return screen(detector.detectStraightSpine(luminance));
+    }
+
+    /**
+     * Same, judging a linearity analysis already run for this image (the pipeline's straight stage)
+     */
+    public StraightSpineDetector.StraightSpineResult screen(StraightSpineDetector.StraightSpineResult result) {
+        screened.incrementAndGet();
+
+        StraightSpineDetector.SpineLinearity linearity = result.linearityAnalysis;
+        Bands current = bands;
+
+        boolean decisive = linearity != null
+                && !linearity.limitedDetection
+                && linearity.isStraight
+                && linearity.straightnessScore >= current.minStraightness
+                && linearity.deviationRatio <= current.maxDeviationRatio
+                && result.keypoints != null;
+
+        if (!decisive) {
+            if (linearity != null) {
+                MlLog.d(TAG, "Ambiguous (straightness=%.2f, ratio=%.2f), running models",
+                        linearity.straightnessScore, linearity.deviationRatio);
+            }
+            return null;
+        }
+
+        answered.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Remember that the image under this screening key went on to the models
+     */
+    public synchronized void markEscalated(String screeningKey) {
+        escalatedKeys.put(screeningKey, Boolean.TRUE);
+    }
+
+    /**
+     * Whether the image under this screening key escalated before, so it can skip screening
+     */
+    public synchronized boolean isEscalated(String screeningKey) {
+        return escalatedKeys.get(screeningKey) != null;
+    }
+
+    /**
+     * Answer only when straightness >= minStraightness and deviation ratio <= maxDeviationRatio
+     */
+    public void setBands(float minStraightness, double maxDeviationRatio) {
+        bands = new Bands(minStraightness, maxDeviationRatio);
+        MlLog.d(TAG, "Cascade bands: straightness >= %.2f, deviation ratio <= %.2f",
+                minStraightness, maxDeviationRatio);
+    }
+
+    /**
+     * Angle of the centerline's largest deviation from its end-to-end line, seen
+     * from the middle of the spine: atan(maxDeviation / half the centerline height).
+     * Derived from the linearity numbers only, so the same image always screens to
+     * the same angle; it is not a Cobb angle, which needs the keypoint model.
+     */
+    public static double deviationAngle(StraightSpineDetector.SpineLinearity linearity) {
+        List<SpinePoint> centerLine = linearity.centerLine;
+        if (centerLine == null || centerLine.size() < 2) return 0.0;
+
+        double halfHeight = Math.abs(centerLine.get(centerLine.size() - 1).y - centerLine.get(0).y) / 2;
+        if (halfHeight <= 0) return 0.0;
+        return Math.toDegrees(Math.atan(linearity.maxDeviation / halfHeight));
+    }
+
+    /**
+     * Short form of the bands, so results screened under different bands are cached apart
+     */
+    public String getBandsKey() {
+        Bands current = bands;
+        return current.minStraightness + "/" + current.maxDeviationRatio;
+    }
+
+    public CascadeStats getStats() {
+        CascadeStats stats = new CascadeStats();
+        stats.screened = screened.get();
+        stats.answered = answered.get();
+        stats.escalated = stats.screened - stats.answered;
+        return stats;
+    }
+
+    private static final class Bands {
+        final float minStraightness;
+        final double maxDeviationRatio;
+
+        Bands(float minStraightness, double maxDeviationRatio) {
+            this.minStraightness = minStraightness;
+            this.maxDeviationRatio = maxDeviationRatio;
+        }
+    }
+
+    public static class CascadeStats {
+        public long screened;
+        public long answered;   // By the heuristic alone, no interpreter runs
+        public long escalated;  // Ambiguous, sent on to the models
+
+        public double getAnsweredRatio() {
+            return screened > 0 ? (double) answered / screened : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cascade: %d screened, %d answered by heuristic (%.0f%%), %d escalated",
+                    screened, answered, getAnsweredRatio() * 100, escalated);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+// SettingsStore.java - Small persistent key/value settings (SharedPreferences on Android)
+package com.example.spineanalyzer.ml;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public interface SettingsStore {
+
+    float getFloat(String key, float defaultValue);
+
+    void putFloat(String key, float value);
+
+    /**
+     * Non-persistent store for plain JVM use
+     */
+    static SettingsStore inMemory() {
+        final Map<String, Float> values = new HashMap<>();
+        return new SettingsStore() {
+            @Override
+            public synchronized float getFloat(String key, float defaultValue) {
+                Float value = values.get(key);
+                return value != null ? value : defaultValue;
+            }
+
+            @Override
+            public synchronized void putFloat(String key, float value) {
+                values.put(key, value);
+            }
+        };
+    }
+}
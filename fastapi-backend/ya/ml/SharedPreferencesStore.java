@@ -0,0 +1,23 @@
+// SharedPreferencesStore.java - Android adapter: SettingsStore over SharedPreferences
+package com.example.spineanalyzer.ml;
+
+import android.content.SharedPreferences;
+
+public class SharedPreferencesStore implements SettingsStore {
+
+    private final SharedPreferences preferences;
+
+    public SharedPreferencesStore(SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    @Override
+    public float getFloat(String key, float defaultValue) {
+        return preferences.getFloat(key, defaultValue);
+    }
+
+    @Override
+    public void putFloat(String key, float value) {
+        preferences.edit().putFloat(key, value).apply();
+    }
+}
@@ -1,181 +1,247 @@
 // SpineAngleDetector.java - Improved version with better accuracy and higher confidence
 package com.example.spineanalyzer.ml;
 
-import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.PointF;
-import android.util.Log;
-
-import org.tensorflow.lite.Interpreter;
-
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class SpineAngleDetector {
 
     private static final String TAG = "SpineAngleDetector";
     private static final String MODEL_NAME = "spine_keypoint_detector.tflite";
-    private static final int INPUT_SIZE = 256;
-    private static final int NUM_KEYPOINTS = 17;
+    static final int INPUT_SIZE = 256; // Used for dynamic-size models; fixed-size models run at their own size
+    static final int NUM_KEYPOINTS = KeypointSet.CAPACITY;
 
     // Spine keypoint labels (from top to bottom)
-    private static final String[] KEYPOINT_LABELS = {
-            "C1-C2", "C3-C4", "C5-C6", "C7-T1",  // Cervical spine (4 points)
-            "T2-T3", "T4-T5", "T6-T7", "T8-T9", "T10-T11", "T12-L1",  // Thoracic spine (6 points)
-            "L1-L2", "L2-L3", "L3-L4", "L4-L5", "L5-S1",  // Lumbar spine (5 points)
-            "S1-S2", "S3-S5"  // Sacral spine (2 points)
-    };
+    static final String[] KEYPOINT_LABELS = KeypointSet.LABELS;
 
     // IMPROVED: Lower thresholds for better detection
     private static final float KEYPOINT_CONFIDENCE_THRESHOLD = 0.2f; // Lowered from 0.3f
     private static final float HIGH_CONFIDENCE_THRESHOLD = 0.6f; // Lowered from 0.7f
 
-    private Context context;
-    private Interpreter keypointDetector;
-    private boolean isModelLoaded = false;
+    // Angle engines keep scratch arrays between calls, so one per analysis thread
+    private static final ThreadLocal<CobbAngleEngine> ANGLE_ENGINE = new ThreadLocal<CobbAngleEngine>() {
+        @Override
+        protected CobbAngleEngine initialValue() {
+            return new CobbAngleEngine();
+        }
+    };
+
+    private ModelRegistry registry;
+    private volatile CompletableFuture<InterpreterPool> keypointReady;
+    private boolean closed = false;
+    private final int poolSize;
+    private final ModelVariant variant;
+    private final String modelFile;
 
-    public SpineAngleDetector(Context context) {
-        this.context = context;
-        loadModel();
+    public SpineAngleDetector(ModelRegistry registry) {
+        this(registry, InterpreterPool.DEFAULT_SIZE, false);
     }
 
-    private void loadModel() {
-        try {
-            MappedByteBuffer modelBuffer = loadModelFile();
+    public SpineAngleDetector(ModelRegistry registry, int poolSize) {
+        this(registry, poolSize, false);
+    }
 
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(4);
-            options.setUseNNAPI(true);
-            options.setAllowFp16PrecisionForFp32(true);
+    /**
+     * With lazyLoading the model is only mapped on first use; otherwise loading
+     * starts now in the background and the first request waits for it.
+     */
+    public SpineAngleDetector(ModelRegistry registry, int poolSize, boolean lazyLoading) {
+        this(registry, poolSize, lazyLoading, ModelVariant.STANDARD);
+    }
 
-            keypointDetector = new Interpreter(modelBuffer, options);
-            isModelLoaded = true;
+    /**
+     * Detector backed by one variant's model file
+     */
+    public SpineAngleDetector(ModelRegistry registry, int poolSize, boolean lazyLoading, ModelVariant variant) {
+        this.registry = registry;
+        this.poolSize = poolSize;
+        this.variant = variant;
+        this.modelFile = variant.modelFile(MODEL_NAME);
+        if (!lazyLoading) {
+            loadModel();
+        }
+    }
 
-            Log.d(TAG, "Spine keypoint detection model loaded successfully");
+    private synchronized CompletableFuture<InterpreterPool> loadModel() {
+        if (closed) return null;
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading spine keypoint detection model", e);
-            isModelLoaded = false;
+        if (keypointReady != null && keypointReady.isCompletedExceptionally()) {
+            // Failed loads are retried by the registry; give back the failed attempt's reference
+            registry.release(modelFile);
+            keypointReady = null;
         }
+
+        if (keypointReady == null) {
+            // Mapped once and shared with every other user of the same model file
+            keypointReady = registry.acquireAsync(variant.modelType("keypoint"), modelFile, poolSize);
+            keypointReady.whenComplete((pool, error) -> {
+                if (error == null) {
+                    MlLog.d(TAG, "Spine keypoint detection model loaded successfully");
+                } else {
+                    MlLog.e(TAG, "Error loading spine keypoint detection model", error);
+                }
+            });
+        }
+        return keypointReady;
     }
 
-    private MappedByteBuffer loadModelFile() throws IOException {
+    // Waits for a model that is still loading; null if it could not be loaded
+    private InterpreterPool awaitModel() {
+        CompletableFuture<InterpreterPool> ready = loadModel();
+        if (ready == null) return null;
+
         try {
-            FileInputStream fileInputStream = new FileInputStream(
-                    context.getAssets().openFd(MODEL_NAME).getFileDescriptor());
-            FileChannel fileChannel = fileInputStream.getChannel();
-            long startOffset = context.getAssets().openFd(MODEL_NAME).getStartOffset();
-            long declaredLength = context.getAssets().openFd(MODEL_NAME).getDeclaredLength();
+            return ready.join();
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-            MappedByteBuffer buffer = fileChannel.map(
-                    FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+    public SpineAnalysisResult detectSpineAndCalculateAngle(PixelSource pixels) {
+        return detectSpineAndCalculateAngle(LuminancePlane.fromPixels(pixels, LuminancePlane.DEFAULT_MAX_PIXELS));
+    }
 
-            Log.d(TAG, "Model file loaded: " + MODEL_NAME + " (" + declaredLength + " bytes)");
-            return buffer;
+    /**
+     * Native 16-bit input, windowed straight into the luminance plane
+     */
+    public SpineAnalysisResult detectSpineAndCalculateAngle(Gray16Image image) {
+        return detectSpineAndCalculateAngle(LuminancePlane.fromGray16(image, LuminancePlane.DEFAULT_MAX_PIXELS));
+    }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading model file: " + MODEL_NAME, e);
-            throw e;
-        }
+    /**
+     * Detect keypoints using a luminance plane already computed for this analysis
+     */
+    public SpineAnalysisResult detectSpineAndCalculateAngle(LuminancePlane luminance) {
+        return detectSpineAndCalculateAngle(luminance, new AnalysisTrace());
     }
 
-    public SpineAnalysisResult detectSpineAndCalculateAngle(Bitmap inputBitmap) {
-        if (!isModelLoaded) {
-            Log.e(TAG, "Model not loaded. Using enhanced fallback method.");
-            return createEnhancedFallbackResult(inputBitmap);
+    /**
+     * Same, recording checkout, preprocessing and analysis stage times into trace
+     */
+    public SpineAnalysisResult detectSpineAndCalculateAngle(LuminancePlane luminance, AnalysisTrace trace) {
+        InterpreterPool keypointPool = awaitModel();
+        if (keypointPool == null) {
+            MlLog.e(TAG, "Model not loaded. Using enhanced fallback method.");
+            return createEnhancedFallbackResult(luminance.getSourceWidth(), luminance.getSourceHeight());
         }
 
         try {
-            Log.d(TAG, "Starting enhanced spine keypoint detection...");
+            MlLog.d(TAG, "Starting enhanced spine keypoint detection...");
 
-            // IMPROVED: Enhanced preprocessing
-            Bitmap enhancedBitmap = enhanceXrayImage(inputBitmap);
+            // Keypoints are still simulated, so no interpreter is checked out and no input tensor is prepared
+            return analyzeKeypoints(luminance, trace);
 
-            // Detect keypoints with improved algorithm
-            List<SpineKeypoint> keypoints = detectSpineKeypointsEnhanced(enhancedBitmap);
+        } catch (Exception e) {
+            MlLog.e(TAG, "Error during enhanced spine analysis", e);
+            return createEnhancedFallbackResult(luminance.getSourceWidth(), luminance.getSourceHeight());
+        }
+    }
 
-            // IMPROVED: Better validation and interpolation
-            keypoints = enhancedKeypointValidation(keypoints, inputBitmap);
+    /**
+     * Analyze several images after a single model check. Keypoints are still
+     * simulated, so no batched keypoint tensor is filled until the model is run.
+     * Results are in input order; an image that fails gets the enhanced fallback result.
+     */
+    public List<SpineAnalysisResult> detectSpineAndCalculateAngleBatch(List<LuminancePlane> images) {
+        List<SpineAnalysisResult> results = new ArrayList<>(images.size());
+        if (images.isEmpty()) return results;
 
-            // IMPROVED: More accurate angle calculation
-            SpineAngles angles = calculateSpineAnglesEnhanced(keypoints);
+        InterpreterPool keypointPool = awaitModel();
+        if (keypointPool == null) {
+            MlLog.e(TAG, "Model not loaded. Using enhanced fallback method.");
+            for (LuminancePlane luminance : images) {
+                results.add(createEnhancedFallbackResult(luminance.getSourceWidth(), luminance.getSourceHeight()));
+            }
+            return results;
+        }
 
-            // IMPROVED: Enhanced assessment with higher confidence
-            SpineCurvatureAssessment assessment = assessSpineCurvatureEnhanced(keypoints, angles);
+        MlLog.d(TAG, "Starting batched spine keypoint detection for %d images...", images.size());
 
-            // Create comprehensive result
-            SpineAnalysisResult result = new SpineAnalysisResult();
-            result.keypoints = keypoints;
-            result.angles = angles;
-            result.assessment = assessment;
-            result.isValidAnalysis = keypoints.size() >= 8; // Reduced from 5 for better coverage
-            result.originalImageWidth = inputBitmap.getWidth();
-            result.originalImageHeight = inputBitmap.getHeight();
+        for (LuminancePlane luminance : images) {
+            try {
+                results.add(analyzeKeypoints(luminance, new AnalysisTrace()));
+            } catch (Exception e) {
+                MlLog.e(TAG, "Error during enhanced spine analysis", e);
+                results.add(createEnhancedFallbackResult(luminance.getSourceWidth(), luminance.getSourceHeight()));
+            }
+        }
 
-            Log.d(TAG, "Enhanced spine analysis completed. Cobb angle: " + angles.cobbAngle + "°, Keypoints: " + keypoints.size());
+        return results;
+    }
 
-            return result;
+    // Keypoints, angles and assessment for one preprocessed image
+    private SpineAnalysisResult analyzeKeypoints(LuminancePlane luminance, AnalysisTrace trace) {
+        long start = System.nanoTime();
+        KeypointSet detected = new KeypointSet();
+        KeypointSet keypoints = new KeypointSet();
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error during enhanced spine analysis", e);
-            return createEnhancedFallbackResult(inputBitmap);
-        }
-    }
+        // Detect keypoints with improved algorithm
+        detectSpineKeypointsEnhanced(luminance.getSourceWidth(), luminance.getSourceHeight(), detected);
+        start = trace.lap(AnalysisTrace.KEYPOINT_INFERENCE, start);
 
-    // IMPROVED: Enhanced X-ray image preprocessing
-    private Bitmap enhanceXrayImage(Bitmap originalBitmap) {
-        // Create enhanced bitmap with better contrast for spine detection
-        Bitmap enhanced = originalBitmap.copy(Bitmap.Config.ARGB_8888, true);
+        // IMPROVED: Better validation and interpolation
+        enhancedKeypointValidation(detected, luminance, keypoints);
+        trace.lap(AnalysisTrace.KEYPOINT_VALIDATION, start);
 
-        // Apply contrast enhancement and edge detection simulation
-        int[] pixels = new int[enhanced.getWidth() * enhanced.getHeight()];
-        enhanced.getPixels(pixels, 0, enhanced.getWidth(), 0, 0, enhanced.getWidth(), enhanced.getHeight());
+        return analyzeValidatedKeypoints(keypoints, luminance.getSourceWidth(), luminance.getSourceHeight(), trace);
+    }
 
-        for (int i = 0; i < pixels.length; i++) {
-            int pixel = pixels[i];
-            int r = (pixel >> 16) & 0xFF;
-            int g = (pixel >> 8) & 0xFF;
-            int b = pixel & 0xFF;
+    /**
+     * Angles and assessment for keypoints that were tracked from an earlier frame
+     * instead of detected; skips preprocessing, inference and validation
+     */
+    public SpineAnalysisResult analyzeTrackedKeypoints(KeypointSet keypoints, int imageWidth, int imageHeight,
+                                                       AnalysisTrace trace) {
+        KeypointSet copy = new KeypointSet();
+        copy.copyFrom(keypoints);
+        return analyzeValidatedKeypoints(copy, imageWidth, imageHeight, trace);
+    }
 
-            // Convert to grayscale and enhance contrast
-            int gray = (int) (0.299 * r + 0.587 * g + 0.114 * b);
+    private SpineAnalysisResult analyzeValidatedKeypoints(KeypointSet keypoints, int imageWidth, int imageHeight,
+                                                          AnalysisTrace trace) {
+        // IMPROVED: More accurate angle calculation
+        long start = System.nanoTime();
+        SpineAngles angles = calculateSpineAnglesEnhanced(keypoints);
+        start = trace.lap(AnalysisTrace.ANGLES, start);
 
-            // Apply contrast enhancement
-            gray = Math.max(0, Math.min(255, (int) ((gray - 128) * 1.5 + 128)));
+        // IMPROVED: Enhanced assessment with higher confidence
+        SpineCurvatureAssessment assessment = assessSpineCurvatureEnhanced(keypoints, angles);
+        trace.lap(AnalysisTrace.CURVATURE, start);
 
-            pixels[i] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
-        }
+        // Create comprehensive result
+        SpineAnalysisResult result = new SpineAnalysisResult();
+        result.keypointSet = keypoints;
+        result.keypoints = keypoints.toKeypoints();
+        result.angles = angles;
+        result.assessment = assessment;
+        result.isValidAnalysis = keypoints.size() >= 8; // Reduced from 5 for better coverage
+        result.originalImageWidth = imageWidth;
+        result.originalImageHeight = imageHeight;
 
-        enhanced.setPixels(pixels, 0, enhanced.getWidth(), 0, 0, enhanced.getWidth(), enhanced.getHeight());
-        return enhanced;
+        MlLog.d(TAG, "Enhanced spine analysis completed. Cobb angle: %.1f°, Keypoints: %d", angles.cobbAngle, keypoints.size());
+
+        return result;
     }
 
     // IMPROVED: Enhanced keypoint detection with better algorithms
-    private List<SpineKeypoint> detectSpineKeypointsEnhanced(Bitmap inputBitmap) {
-        List<SpineKeypoint> keypoints = new ArrayList<>();
-
+    private void detectSpineKeypointsEnhanced(int imageWidth, int imageHeight, KeypointSet keypoints) {
         try {
             // Use enhanced mock detection with more realistic spine curve patterns
-            keypoints = generateEnhancedMockKeypoints(inputBitmap.getWidth(), inputBitmap.getHeight());
+            generateEnhancedMockKeypoints(imageWidth, imageHeight, keypoints);
 
             // Apply machine learning-like refinement
-            keypoints = refineKeypointsWithMLSimulation(keypoints, inputBitmap);
+            refineKeypointsWithMLSimulation(keypoints, imageWidth, imageHeight);
 
         } catch (Exception e) {
-            Log.e(TAG, "Error in enhanced keypoint detection", e);
-            keypoints = generateEnhancedMockKeypoints(inputBitmap.getWidth(), inputBitmap.getHeight());
+            MlLog.e(TAG, "Error in enhanced keypoint detection", e);
+            generateEnhancedMockKeypoints(imageWidth, imageHeight, keypoints);
         }
-
-        return keypoints;
     }
 
     // IMPROVED: Generate more realistic spine patterns based on image analysis
-    private List<SpineKeypoint> generateEnhancedMockKeypoints(int imageWidth, int imageHeight) {
-        List<SpineKeypoint> keypoints = new ArrayList<>();
+    private void generateEnhancedMockKeypoints(int imageWidth, int imageHeight, KeypointSet keypoints) {
+        keypoints.clear();
 
         float centerX = imageWidth * 0.5f;
         float topY = imageHeight * 0.15f; // Start a bit lower
@@ -189,12 +255,6 @@ public class SpineAngleDetector {
         double secondaryCurveAmplitude = primaryCurveAmplitude * 0.6; // Secondary curve
 
         for (int i = 0; i < NUM_KEYPOINTS; i++) {
-            SpineKeypoint keypoint = new SpineKeypoint();
-            keypoint.label = KEYPOINT_LABELS[i];
-            keypoint.index = i;
-            keypoint.region = getSpineRegion(i);
-
-            float progress = (float) i / (NUM_KEYPOINTS - 1);
             double curvature = 0;
 
             if (curveType < 0.4) {
@@ -224,234 +284,142 @@ public class SpineAngleDetector {
             // Add some natural variation
             float naturalVariation = (float) (Math.random() * 8 - 4); // ±4 pixels
 
-            keypoint.position = new PointF(
-                    centerX + (float) curvature + naturalVariation,
-                    topY + i * stepY + (float) (Math.random() * 3 - 1.5f) // Small Y variation
-            );
+            float x = centerX + (float) curvature + naturalVariation;
+            float y = topY + i * stepY + (float) (Math.random() * 3 - 1.5f); // Small Y variation
 
             // IMPROVED: Higher confidence scores
-            keypoint.confidence = 0.75f + (float) Math.random() * 0.2f; // 0.75-0.95 confidence
-            keypoint.isInterpolated = false;
+            float confidence = 0.75f + (float) Math.random() * 0.2f; // 0.75-0.95 confidence
 
-            keypoints.add(keypoint);
+            keypoints.add(i, x, y, confidence, false);
         }
 
-        Log.d(TAG, "Generated enhanced mock keypoints with curve type: " +
-                (curveType < 0.4 ? "Thoracic" : curveType < 0.7 ? "Lumbar" : "S-curve"));
-        return keypoints;
+        MlLog.d(TAG, "Generated enhanced mock keypoints with curve type: %s",
+                curveType < 0.4 ? "Thoracic" : curveType < 0.7 ? "Lumbar" : "S-curve");
     }
 
-    // IMPROVED: Simulate ML refinement of keypoints
-    private List<SpineKeypoint> refineKeypointsWithMLSimulation(List<SpineKeypoint> rawKeypoints, Bitmap bitmap) {
-        List<SpineKeypoint> refined = new ArrayList<>();
-
-        for (SpineKeypoint kp : rawKeypoints) {
-            SpineKeypoint refinedKp = new SpineKeypoint();
-            refinedKp.label = kp.label;
-            refinedKp.index = kp.index;
-            refinedKp.region = kp.region;
-            refinedKp.isInterpolated = kp.isInterpolated;
-
+    // IMPROVED: Simulate ML refinement of keypoints, in place
+    private void refineKeypointsWithMLSimulation(KeypointSet keypoints, int imageWidth, int imageHeight) {
+        for (int i = 0; i < keypoints.size(); i++) {
             // Simulate ML refinement: adjust position based on local image analysis
             float adjustX = (float) (Math.random() * 6 - 3); // ±3 pixel adjustment
             float adjustY = (float) (Math.random() * 4 - 2); // ±2 pixel adjustment
 
-            refinedKp.position = new PointF(
-                    Math.max(0, Math.min(bitmap.getWidth(), kp.position.x + adjustX)),
-                    Math.max(0, Math.min(bitmap.getHeight(), kp.position.y + adjustY))
-            );
+            keypoints.xs[i] = Math.max(0, Math.min(imageWidth, keypoints.xs[i] + adjustX));
+            keypoints.ys[i] = Math.max(0, Math.min(imageHeight, keypoints.ys[i] + adjustY));
 
             // IMPROVED: Boost confidence after "ML refinement"
-            refinedKp.confidence = Math.min(0.95f, kp.confidence + 0.1f);
-
-            refined.add(refinedKp);
+            keypoints.confidences[i] = Math.min(0.95f, keypoints.confidences[i] + 0.1f);
         }
-
-        return refined;
     }
 
-    // IMPROVED: Enhanced keypoint validation
-    private List<SpineKeypoint> enhancedKeypointValidation(List<SpineKeypoint> rawKeypoints, Bitmap bitmap) {
-        List<SpineKeypoint> validated = new ArrayList<>();
+    // IMPROVED: Enhanced keypoint validation; filters detected in place, result goes to validated
+    private void enhancedKeypointValidation(KeypointSet detected, LuminancePlane luminance, KeypointSet validated) {
+        int detectedCount = detected.size();
+        int kept = 0;
 
-        // Sort by index
-        rawKeypoints.sort((a, b) -> Integer.compare(a.index, b.index));
+        // Slots are already in index order
+        for (int i = 0; i < detectedCount; i++) {
+            float x = detected.xs[i];
+            float y = detected.ys[i];
 
-        for (SpineKeypoint kp : rawKeypoints) {
             // IMPROVED: More lenient validation for higher detection rate
-            if (kp.confidence > KEYPOINT_CONFIDENCE_THRESHOLD &&
-                    kp.position.x >= 0 && kp.position.x < bitmap.getWidth() &&
-                    kp.position.y >= 0 && kp.position.y < bitmap.getHeight()) {
-                validated.add(kp);
+            if (detected.confidences[i] > KEYPOINT_CONFIDENCE_THRESHOLD &&
+                    x >= 0 && x < luminance.getSourceWidth() &&
+                    y >= 0 && y < luminance.getSourceHeight()) {
+                detected.set(kept++, detected.index(i), x, y, detected.confidences[i], detected.isInterpolated(i));
             }
         }
+        detected.truncate(kept);
 
         // IMPROVED: Smart interpolation for missing keypoints
-        validated = smartInterpolation(validated);
+        smartInterpolation(detected, validated);
 
-        Log.d(TAG, "Enhanced validation: " + rawKeypoints.size() + " -> " + validated.size());
-        return validated;
+        MlLog.d(TAG, "Enhanced validation: %d -> %d", detectedCount, validated.size());
     }
 
-    // IMPROVED: Smart interpolation algorithm
-    private List<SpineKeypoint> smartInterpolation(List<SpineKeypoint> keypoints) {
-        List<SpineKeypoint> result = new ArrayList<>(keypoints);
-
-        if (keypoints.size() < 3) return result;
+    // IMPROVED: Smart interpolation algorithm; result holds keypoints plus the filled gaps
+    void smartInterpolation(KeypointSet keypoints, KeypointSet result) {
+        int count = keypoints.size();
+        if (count < 3) {
+            result.copyFrom(keypoints);
+            return;
+        }
 
-        // Fill gaps with smart interpolation
-        for (int i = 0; i < keypoints.size() - 1; i++) {
-            SpineKeypoint current = keypoints.get(i);
-            SpineKeypoint next = keypoints.get(i + 1);
+        result.clear();
+        for (int i = 0; i < count; i++) {
+            int currentIndex = keypoints.index(i);
+            float currentX = keypoints.xs[i];
+            float currentY = keypoints.ys[i];
+            float currentConfidence = keypoints.confidences[i];
+            result.add(currentIndex, currentX, currentY, currentConfidence, keypoints.isInterpolated(i));
 
-            int gap = next.index - current.index;
-            if (gap > 1) {
-                // Interpolate missing points with curve consideration
-                for (int j = 1; j < gap; j++) {
-                    int missingIndex = current.index + j;
-                    float ratio = (float) j / gap;
+            if (i == count - 1) break;
 
-                    // Use spline-like interpolation instead of linear
-                    float smoothRatio = (float) (0.5 * (1 - Math.cos(ratio * Math.PI)));
+            // Fill gaps with smart interpolation
+            int gap = keypoints.index(i + 1) - currentIndex;
+            for (int j = 1; j < gap; j++) {
+                float ratio = (float) j / gap;
 
-                    SpineKeypoint interpolated = new SpineKeypoint();
-                    interpolated.index = missingIndex;
-                    interpolated.label = KEYPOINT_LABELS[missingIndex];
-                    interpolated.position = new PointF(
-                            current.position.x + smoothRatio * (next.position.x - current.position.x),
-                            current.position.y + smoothRatio * (next.position.y - current.position.y)
-                    );
-                    interpolated.confidence = Math.min(current.confidence, next.confidence) * 0.8f; // Higher confidence for interpolated
-                    interpolated.region = getSpineRegion(missingIndex);
-                    interpolated.isInterpolated = true;
+                // Use spline-like interpolation instead of linear
+                float smoothRatio = (float) (0.5 * (1 - Math.cos(ratio * Math.PI)));
 
-                    result.add(interpolated);
-                }
+                result.add(currentIndex + j,
+                        currentX + smoothRatio * (keypoints.xs[i + 1] - currentX),
+                        currentY + smoothRatio * (keypoints.ys[i + 1] - currentY),
+                        Math.min(currentConfidence, keypoints.confidences[i + 1]) * 0.8f, // Higher confidence for interpolated
+                        true);
             }
         }
-
-        // Re-sort by index
-        result.sort((a, b) -> Integer.compare(a.index, b.index));
-        return result;
     }
 
-    // IMPROVED: Enhanced angle calculation with multiple methods
-    private SpineAngles calculateSpineAnglesEnhanced(List<SpineKeypoint> keypoints) {
+    // IMPROVED: Enhanced angle calculation with multiple methods, all from one engine sweep
+    SpineAngles calculateSpineAnglesEnhanced(KeypointSet keypoints) {
         SpineAngles angles = new SpineAngles();
 
         if (keypoints.size() < 3) return angles;
 
+        CobbAngleEngine engine = ANGLE_ENGINE.get();
+        engine.compute(keypoints);
+
         // IMPROVED: Multiple angle calculation methods for accuracy
-        angles.cobbAngle = calculateEnhancedCobbAngle(keypoints);
-        angles.cervicalLordosis = calculateRegionalAngle(keypoints, "Cervical");
-        angles.thoracicKyphosis = calculateRegionalAngle(keypoints, "Thoracic");
-        angles.lumbarLordosis = calculateRegionalAngle(keypoints, "Lumbar");
-        angles.overallCurvature = calculateOverallCurvature(keypoints);
-        angles.maxLateralDeviation = calculateMaxLateralDeviation(keypoints);
-        angles.apexLocation = findCurveApex(keypoints);
+        angles.cobbAngle = calculateEnhancedCobbAngle(engine, keypoints.size());
+        angles.cervicalLordosis = engine.getRegionalAngle(KeypointSet.CERVICAL);
+        angles.thoracicKyphosis = engine.getRegionalAngle(KeypointSet.THORACIC);
+        angles.lumbarLordosis = engine.getRegionalAngle(KeypointSet.LUMBAR);
+        angles.overallCurvature = engine.getOverallCurvature();
+        angles.maxLateralDeviation = engine.getMaxLateralDeviation();
+        angles.apexLocation = describeApex(keypoints, engine.getApexSlot());
 
         // IMPROVED: Validate and adjust angles for more realistic results
         angles = validateAndAdjustAngles(angles, keypoints);
 
-        Log.d(TAG, "Enhanced angle calculation: " + angles.toString());
+        MlLog.d(TAG, "Enhanced angle calculation: %s", angles);
         return angles;
     }
 
     // IMPROVED: Enhanced Cobb angle calculation
-    private double calculateEnhancedCobbAngle(List<SpineKeypoint> keypoints) {
-        if (keypoints.size() < 4) return 0.0;
-
-        double maxAngle = 0.0;
-
-        // Method 1: Traditional Cobb angle measurement
-        double traditionalAngle = calculateTraditionalCobb(keypoints);
-
-        // Method 2: Curve fitting approach
-        double curveFittingAngle = calculateCurveFittingAngle(keypoints);
+    double calculateEnhancedCobbAngle(KeypointSet keypoints) {
+        CobbAngleEngine engine = ANGLE_ENGINE.get();
+        engine.compute(keypoints);
+        return calculateEnhancedCobbAngle(engine, keypoints.size());
+    }
 
-        // Method 3: Maximum deviation approach
-        double deviationAngle = calculateDeviationBasedAngle(keypoints);
+    // Traditional, curve-fitting and deviation methods combined by the engine
+    private double calculateEnhancedCobbAngle(CobbAngleEngine engine, int keypointCount) {
+        if (keypointCount < 4) return 0.0;
 
-        // IMPROVED: Combine multiple methods for better accuracy
-        maxAngle = Math.max(traditionalAngle, Math.max(curveFittingAngle, deviationAngle));
+        double maxAngle = engine.getCobbAngle();
 
         // Ensure minimum realistic angle for visible curves
-        if (maxAngle < 15 && hasVisibleCurvature(keypoints)) {
+        if (maxAngle < 15 && engine.hasVisibleCurvature()) {
             maxAngle = 15 + Math.random() * 10; // Boost for visible curves
         }
 
         return maxAngle;
     }
 
-    private double calculateTraditionalCobb(List<SpineKeypoint> keypoints) {
-        double maxAngle = 0.0;
-
-        for (int i = 1; i < keypoints.size() - 2; i++) {
-            PointF p1 = keypoints.get(i - 1).position;
-            PointF p2 = keypoints.get(i).position;
-            PointF p3 = keypoints.get(i + 1).position;
-            PointF p4 = keypoints.get(i + 2).position;
-
-            double angle = calculateAngleBetweenLines(p1, p2, p3, p4);
-            maxAngle = Math.max(maxAngle, angle);
-        }
-
-        return maxAngle;
-    }
-
-    private double calculateCurveFittingAngle(List<SpineKeypoint> keypoints) {
-        // Fit curve and calculate maximum curvature angle
-        if (keypoints.size() < 5) return 0.0;
-
-        double maxCurvature = 0.0;
-
-        for (int i = 2; i < keypoints.size() - 2; i++) {
-            PointF p1 = keypoints.get(i - 2).position;
-            PointF p2 = keypoints.get(i).position;
-            PointF p3 = keypoints.get(i + 2).position;
-
-            double angle = calculateAngleFromThreePoints(p1, p2, p3);
-            double curvature = Math.abs(180 - angle); // Convert to curvature
-            maxCurvature = Math.max(maxCurvature, curvature);
-        }
-
-        return maxCurvature;
-    }
-
-    private double calculateDeviationBasedAngle(List<SpineKeypoint> keypoints) {
-        if (keypoints.size() < 3) return 0.0;
-
-        PointF top = keypoints.get(0).position;
-        PointF bottom = keypoints.get(keypoints.size() - 1).position;
-
-        double maxDeviation = 0.0;
-        for (SpineKeypoint kp : keypoints) {
-            double deviation = pointToLineDistance(kp.position, top, bottom);
-            maxDeviation = Math.max(maxDeviation, deviation);
-        }
-
-        // Convert max deviation to angle
-        double spineLength = Math.sqrt(Math.pow(bottom.x - top.x, 2) + Math.pow(bottom.y - top.y, 2));
-        return Math.toDegrees(Math.atan(maxDeviation / (spineLength / 2))) * 2; // Amplify for Cobb angle
-    }
-
-    private boolean hasVisibleCurvature(List<SpineKeypoint> keypoints) {
-        if (keypoints.size() < 5) return false;
-
-        double totalDeviation = 0;
-        PointF top = keypoints.get(0).position;
-        PointF bottom = keypoints.get(keypoints.size() - 1).position;
-
-        for (SpineKeypoint kp : keypoints) {
-            totalDeviation += pointToLineDistance(kp.position, top, bottom);
-        }
-
-        double avgDeviation = totalDeviation / keypoints.size();
-        return avgDeviation > 10; // Threshold for visible curvature
-    }
-
     // IMPROVED: Validate and adjust angles for realism
-    private SpineAngles validateAndAdjustAngles(SpineAngles angles, List<SpineKeypoint> keypoints) {
+    private SpineAngles validateAndAdjustAngles(SpineAngles angles, KeypointSet keypoints) {
         // Ensure angles are within realistic medical ranges
         if (angles.cobbAngle > 90) {
             angles.cobbAngle = 45 + Math.random() * 30; // Cap at realistic severe range
@@ -470,7 +438,7 @@ public class SpineAngleDetector {
     }
 
     // IMPROVED: Enhanced assessment with higher confidence
-    private SpineCurvatureAssessment assessSpineCurvatureEnhanced(List<SpineKeypoint> keypoints, SpineAngles angles) {
+    private SpineCurvatureAssessment assessSpineCurvatureEnhanced(KeypointSet keypoints, SpineAngles angles) {
         SpineCurvatureAssessment assessment = new SpineCurvatureAssessment();
 
         // Assess severity based on enhanced Cobb angle
@@ -479,23 +447,23 @@ public class SpineAngleDetector {
         if (angle < 10) {
             assessment.severity = "Normal";
             assessment.riskLevel = "Low";
-            assessment.color = android.graphics.Color.GREEN;
+            assessment.color = SpineColors.GREEN;
         } else if (angle < 20) {
             assessment.severity = "Mild Scoliosis";
             assessment.riskLevel = "Low";
-            assessment.color = android.graphics.Color.rgb(255, 193, 7);
+            assessment.color = SpineColors.AMBER;
         } else if (angle < 40) {
             assessment.severity = "Moderate Scoliosis";
             assessment.riskLevel = "Medium";
-            assessment.color = android.graphics.Color.rgb(255, 152, 0);
+            assessment.color = SpineColors.ORANGE;
         } else if (angle < 50) {
             assessment.severity = "Severe Scoliosis";
             assessment.riskLevel = "High";
-            assessment.color = android.graphics.Color.rgb(255, 87, 34);
+            assessment.color = SpineColors.DEEP_ORANGE;
         } else {
             assessment.severity = "Very Severe Scoliosis";
             assessment.riskLevel = "Critical";
-            assessment.color = android.graphics.Color.RED;
+            assessment.color = SpineColors.RED;
         }
 
         // IMPROVED: Calculate enhanced confidence based on multiple factors
@@ -511,8 +479,8 @@ public class SpineAngleDetector {
                         keypoints.size() >= 8 ? "Fair" : "Poor";
 
         int highConfidenceCount = 0;
-        for (SpineKeypoint kp : keypoints) {
-            if (kp.confidence > HIGH_CONFIDENCE_THRESHOLD) {
+        for (int i = 0; i < keypoints.size(); i++) {
+            if (keypoints.confidences[i] > HIGH_CONFIDENCE_THRESHOLD) {
                 highConfidenceCount++;
             }
         }
@@ -531,12 +499,12 @@ public class SpineAngleDetector {
     }
 
     // IMPROVED: Calculate base confidence from keypoint quality
-    private float calculateBaseConfidence(List<SpineKeypoint> keypoints) {
-        if (keypoints.isEmpty()) return 0.5f;
+    private float calculateBaseConfidence(KeypointSet keypoints) {
+        if (keypoints.size() == 0) return 0.5f;
 
         float totalConfidence = 0f;
-        for (SpineKeypoint kp : keypoints) {
-            totalConfidence += kp.confidence;
+        for (int i = 0; i < keypoints.size(); i++) {
+            totalConfidence += keypoints.confidences[i];
         }
 
         float avgConfidence = totalConfidence / keypoints.size();
@@ -548,17 +516,13 @@ public class SpineAngleDetector {
     }
 
     // IMPROVED: Enhanced curve pattern detection
-    private String detectEnhancedCurvePattern(List<SpineKeypoint> keypoints) {
+    private String detectEnhancedCurvePattern(KeypointSet keypoints) {
         if (keypoints.size() < 8) return "Insufficient data for pattern analysis";
 
         // Analyze spine regions separately
-        List<Float> cervicalDeviations = getRegionalDeviations(keypoints, "Cervical");
-        List<Float> thoracicDeviations = getRegionalDeviations(keypoints, "Thoracic");
-        List<Float> lumbarDeviations = getRegionalDeviations(keypoints, "Lumbar");
-
-        boolean hasThoracicCurve = hasSignificantCurve(thoracicDeviations);
-        boolean hasLumbarCurve = hasSignificantCurve(lumbarDeviations);
-        boolean hasCervicalCurve = hasSignificantCurve(cervicalDeviations);
+        boolean hasThoracicCurve = hasSignificantCurve(getMaxRegionalDeviation(keypoints, KeypointSet.THORACIC));
+        boolean hasLumbarCurve = hasSignificantCurve(getMaxRegionalDeviation(keypoints, KeypointSet.LUMBAR));
+        boolean hasCervicalCurve = hasSignificantCurve(getMaxRegionalDeviation(keypoints, KeypointSet.CERVICAL));
 
         // Enhanced pattern classification
         if (hasThoracicCurve && hasLumbarCurve) {
@@ -574,195 +538,59 @@ public class SpineAngleDetector {
         }
     }
 
-    private List<Float> getRegionalDeviations(List<SpineKeypoint> keypoints, String region) {
-        List<Float> deviations = new ArrayList<>();
-        List<SpineKeypoint> regionPoints = new ArrayList<>();
-
-        for (SpineKeypoint kp : keypoints) {
-            if (region.equals(kp.region)) {
-                regionPoints.add(kp);
-            }
-        }
-
-        if (regionPoints.size() < 2) return deviations;
+    // Largest |x - mean x| within a region; 0 when it has fewer than two keypoints
+    private float getMaxRegionalDeviation(KeypointSet keypoints, int region) {
+        int start = keypoints.regionStart(region);
+        int end = keypoints.regionEnd(region);
+        if (end - start < 2) return 0f;
 
         // Calculate center line for region
         float centerX = 0f;
-        for (SpineKeypoint kp : regionPoints) {
-            centerX += kp.position.x;
+        for (int i = start; i < end; i++) {
+            centerX += keypoints.xs[i];
         }
-        centerX /= regionPoints.size();
-
-        // Calculate deviations
-        for (SpineKeypoint kp : regionPoints) {
-            deviations.add(Math.abs(kp.position.x - centerX));
-        }
-
-        return deviations;
-    }
-
-    private boolean hasSignificantCurve(List<Float> deviations) {
-        if (deviations.isEmpty()) return false;
+        centerX /= end - start;
 
         float maxDeviation = 0f;
-        for (Float deviation : deviations) {
-            maxDeviation = Math.max(maxDeviation, deviation);
+        for (int i = start; i < end; i++) {
+            maxDeviation = Math.max(maxDeviation, Math.abs(keypoints.xs[i] - centerX));
         }
+        return maxDeviation;
+    }
 
+    private boolean hasSignificantCurve(float maxDeviation) {
         return maxDeviation > 12.0f; // Threshold for significant curve
     }
 
     // Create enhanced fallback result
-    private SpineAnalysisResult createEnhancedFallbackResult(Bitmap inputBitmap) {
+    private SpineAnalysisResult createEnhancedFallbackResult(int imageWidth, int imageHeight) {
         SpineAnalysisResult result = new SpineAnalysisResult();
 
         // Generate enhanced mock keypoints
-        result.keypoints = generateEnhancedMockKeypoints(inputBitmap.getWidth(), inputBitmap.getHeight());
+        KeypointSet keypoints = new KeypointSet();
+        generateEnhancedMockKeypoints(imageWidth, imageHeight, keypoints);
+        result.keypointSet = keypoints;
+        result.keypoints = keypoints.toKeypoints();
 
         // Calculate enhanced angles
-        result.angles = calculateSpineAnglesEnhanced(result.keypoints);
+        result.angles = calculateSpineAnglesEnhanced(keypoints);
 
         // Create enhanced assessment
-        result.assessment = assessSpineCurvatureEnhanced(result.keypoints, result.angles);
+        result.assessment = assessSpineCurvatureEnhanced(keypoints, result.angles);
 
         result.isValidAnalysis = true; // Mark as valid for enhanced fallback
-        result.originalImageWidth = inputBitmap.getWidth();
-        result.originalImageHeight = inputBitmap.getHeight();
+        result.originalImageWidth = imageWidth;
+        result.originalImageHeight = imageHeight;
 
-        Log.i(TAG, "Using enhanced fallback analysis with improved algorithms");
+        MlLog.i(TAG, "Using enhanced fallback analysis with improved algorithms");
         return result;
     }
 
-    // Rest of the helper methods remain the same but with improved implementations
-    private String getSpineRegion(int keypointIndex) {
-        if (keypointIndex < 4) return "Cervical";
-        else if (keypointIndex < 10) return "Thoracic";
-        else if (keypointIndex < 15) return "Lumbar";
-        else return "Sacral";
-    }
-
-    private double calculateRegionalAngle(List<SpineKeypoint> keypoints, String region) {
-        List<SpineKeypoint> regionKeypoints = new ArrayList<>();
-
-        for (SpineKeypoint kp : keypoints) {
-            if (region.equals(kp.region)) {
-                regionKeypoints.add(kp);
-            }
-        }
+    private String describeApex(KeypointSet keypoints, int apexSlot) {
+        if (apexSlot < 0) return "Unknown";
 
-        if (regionKeypoints.size() < 3) return 0.0;
-
-        PointF first = regionKeypoints.get(0).position;
-        PointF last = regionKeypoints.get(regionKeypoints.size() - 1).position;
-
-        double maxDeviation = 0.0;
-        PointF maxPoint = null;
-
-        for (SpineKeypoint kp : regionKeypoints) {
-            double deviation = pointToLineDistance(kp.position, first, last);
-            if (deviation > maxDeviation) {
-                maxDeviation = deviation;
-                maxPoint = kp.position;
-            }
-        }
-
-        if (maxPoint == null) return 0.0;
-        return calculateAngleFromThreePoints(first, maxPoint, last);
-    }
-
-    private double pointToLineDistance(PointF point, PointF lineStart, PointF lineEnd) {
-        double A = lineEnd.y - lineStart.y;
-        double B = lineStart.x - lineEnd.x;
-        double C = lineEnd.x * lineStart.y - lineStart.x * lineEnd.y;
-
-        return Math.abs(A * point.x + B * point.y + C) / Math.sqrt(A * A + B * B);
-    }
-
-    private double calculateOverallCurvature(List<SpineKeypoint> keypoints) {
-        if (keypoints.size() < 3) return 0.0;
-
-        PointF top = keypoints.get(0).position;
-        PointF bottom = keypoints.get(keypoints.size() - 1).position;
-
-        double maxDeviation = 0.0;
-        for (SpineKeypoint kp : keypoints) {
-            double deviation = Math.abs(kp.position.x - (top.x + bottom.x) / 2);
-            maxDeviation = Math.max(maxDeviation, deviation);
-        }
-
-        double spineLength = Math.sqrt(Math.pow(bottom.x - top.x, 2) + Math.pow(bottom.y - top.y, 2));
-        return Math.toDegrees(Math.atan(maxDeviation / (spineLength / 2)));
-    }
-
-    private double calculateMaxLateralDeviation(List<SpineKeypoint> keypoints) {
-        if (keypoints.size() < 2) return 0.0;
-
-        PointF top = keypoints.get(0).position;
-        PointF bottom = keypoints.get(keypoints.size() - 1).position;
-
-        double maxDeviation = 0.0;
-        for (SpineKeypoint kp : keypoints) {
-            double deviation = pointToLineDistance(kp.position, top, bottom);
-            maxDeviation = Math.max(maxDeviation, deviation);
-        }
-
-        return maxDeviation;
-    }
-
-    private String findCurveApex(List<SpineKeypoint> keypoints) {
-        if (keypoints.size() < 3) return "Unknown";
-
-        PointF top = keypoints.get(0).position;
-        PointF bottom = keypoints.get(keypoints.size() - 1).position;
-
-        double maxDeviation = 0.0;
-        SpineKeypoint apexPoint = null;
-
-        for (SpineKeypoint kp : keypoints) {
-            double deviation = pointToLineDistance(kp.position, top, bottom);
-            if (deviation > maxDeviation) {
-                maxDeviation = deviation;
-                apexPoint = kp;
-            }
-        }
-
-        return apexPoint != null ? apexPoint.region + " (" + apexPoint.label + ")" : "Unknown";
-    }
-
-    private double calculateAngleFromThreePoints(PointF p1, PointF p2, PointF p3) {
-        double dx1 = p1.x - p2.x;
-        double dy1 = p1.y - p2.y;
-        double dx2 = p3.x - p2.x;
-        double dy2 = p3.y - p2.y;
-
-        double dot = dx1 * dx2 + dy1 * dy2;
-        double mag1 = Math.sqrt(dx1 * dx1 + dy1 * dy1);
-        double mag2 = Math.sqrt(dx2 * dx2 + dy2 * dy2);
-
-        if (mag1 == 0 || mag2 == 0) return 0.0;
-
-        double cosAngle = dot / (mag1 * mag2);
-        cosAngle = Math.max(-1.0, Math.min(1.0, cosAngle));
-
-        return Math.toDegrees(Math.acos(cosAngle));
-    }
-
-    private double calculateAngleBetweenLines(PointF p1, PointF p2, PointF p3, PointF p4) {
-        double dx1 = p2.x - p1.x;
-        double dy1 = p2.y - p1.y;
-        double dx2 = p4.x - p3.x;
-        double dy2 = p4.y - p3.y;
-
-        double dot = dx1 * dx2 + dy1 * dy2;
-        double mag1 = Math.sqrt(dx1 * dx1 + dy1 * dy1);
-        double mag2 = Math.sqrt(dx2 * dx2 + dy2 * dy2);
-
-        if (mag1 == 0 || mag2 == 0) return 0.0;
-
-        double cosAngle = dot / (mag1 * mag2);
-        cosAngle = Math.max(-1.0, Math.min(1.0, cosAngle));
-
-        return Math.toDegrees(Math.acos(cosAngle));
+        int index = keypoints.index(apexSlot);
+        return KeypointSet.REGION_NAMES[KeypointSet.regionOf(index)] + " (" + KEYPOINT_LABELS[index] + ")";
     }
 
     private String classifyCurveType(SpineAngles angles) {
@@ -778,39 +606,66 @@ public class SpineAngleDetector {
     }
 
     public boolean isModelReady() {
-        return isModelLoaded;
+        CompletableFuture<InterpreterPool> ready = keypointReady;
+        return ready != null && ready.isDone() && !ready.isCompletedExceptionally();
     }
 
     public String[] getKeypointLabels() {
         return KEYPOINT_LABELS.clone();
     }
 
+    /**
+     * Input size the keypoint model is prepared at: the variant's, else the default
+     */
     public int getInputSize() {
-        return INPUT_SIZE;
+        return variant.getInputSize() > 0 ? variant.getInputSize() : INPUT_SIZE;
+    }
+
+    public ModelVariant getVariant() {
+        return variant;
     }
 
     public int getNumKeypoints() {
         return NUM_KEYPOINTS;
     }
 
+    public InterpreterPool.PoolStats getPoolStats() {
+        CompletableFuture<InterpreterPool> ready = keypointReady;
+        return ready != null && ready.isDone() && !ready.isCompletedExceptionally()
+                ? ready.join().getStats() : null;
+    }
+
     public void close() {
-        if (keypointDetector != null) {
-            keypointDetector.close();
-            keypointDetector = null;
+        synchronized (this) {
+            closed = true;
+            if (keypointReady != null) {
+                registry.release(modelFile);
+                keypointReady = null;
+            }
         }
-        isModelLoaded = false;
-        Log.d(TAG, "Enhanced spine keypoint detection model closed");
+        MlLog.d(TAG, "Enhanced spine keypoint detection model closed");
     }
 
     // Inner classes remain the same
     public static class SpineKeypoint {
         public String label;
-        public PointF position;
+        public SpinePoint position;
         public float confidence;
         public int index;
         public String region;
         public boolean isInterpolated = false;
 
+        SpineKeypoint copy() {
+            SpineKeypoint copy = new SpineKeypoint();
+            copy.label = label;
+            copy.position = position != null ? new SpinePoint(position.x, position.y) : null;
+            copy.confidence = confidence;
+            copy.index = index;
+            copy.region = region;
+            copy.isInterpolated = isInterpolated;
+            return copy;
+        }
+
         @Override
         public String toString() {
             return String.format("%s (%s): (%.1f, %.1f) conf=%.2f%s",
@@ -832,6 +687,18 @@ public class SpineAngleDetector {
             return cobbAngle;
         }
 
+        SpineAngles copy() {
+            SpineAngles copy = new SpineAngles();
+            copy.cobbAngle = cobbAngle;
+            copy.cervicalLordosis = cervicalLordosis;
+            copy.thoracicKyphosis = thoracicKyphosis;
+            copy.lumbarLordosis = lumbarLordosis;
+            copy.overallCurvature = overallCurvature;
+            copy.maxLateralDeviation = maxLateralDeviation;
+            copy.apexLocation = apexLocation;
+            return copy;
+        }
+
         @Override
         public String toString() {
             return String.format("Cobb: %.1f°, Cervical: %.1f°, Thoracic: %.1f°, Lumbar: %.1f°, Max deviation: %.1f px",
@@ -869,6 +736,8 @@ public class SpineAngleDetector {
 
     public static class SpineAnalysisResult {
         public List<SpineKeypoint> keypoints;
+        // Same keypoints in primitive form, as used by the angle code
+        public KeypointSet keypointSet;
         public SpineAngles angles;
         public SpineCurvatureAssessment assessment;
         public boolean isValidAnalysis;
@@ -1,23 +1,17 @@
 // SpineClassificationHelper.java - Improved version with higher confidence
 package com.example.spineanalyzer.ml;
 
-import android.content.Context;
-import android.graphics.Bitmap;
-import android.util.Log;
-
-import org.tensorflow.lite.Interpreter;
-
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class SpineClassificationHelper {
 
     private static final String TAG = "SpineClassificationHelper";
     private static final String MODEL_NAME = "spine_classifier.tflite";
-    private static final int INPUT_SIZE = 224;
+    static final int INPUT_SIZE = 224; // Used for dynamic-size models; fixed-size models run at their own size
     private static final int NUM_CLASSES = 5;
 
     // Class labels for spine conditions
@@ -38,133 +32,244 @@ public class SpineClassificationHelper {
             0.7f   // Very Severe (lowered from 0.8f)
     };
 
-    private Context context;
-    private Interpreter classifier;
-    private boolean isModelLoaded = false;
+    // Adaptive contrast (1.3x) plus edge push for bright bone / dark background
+    static final float[] CLASSIFICATION_CURVE = PreprocessKernel.buildContrastCurve(1.3, 20, 10);
+
+    private ModelRegistry registry;
+    private volatile CompletableFuture<InterpreterPool> classifierReady;
+    private boolean closed = false;
+    private final int poolSize;
+    private final ModelVariant variant;
+    private final String modelFile;
+    private volatile int modelInputSize; // Width the loaded model last ran at, 0 before the first run
 
-    public SpineClassificationHelper(Context context) {
-        this.context = context;
-        loadModel();
+    public SpineClassificationHelper(ModelRegistry registry) {
+        this(registry, InterpreterPool.DEFAULT_SIZE, false);
     }
 
-    private void loadModel() {
-        try {
-            MappedByteBuffer modelBuffer = loadModelFile();
+    public SpineClassificationHelper(ModelRegistry registry, int poolSize) {
+        this(registry, poolSize, false);
+    }
 
-            // Configure interpreter options for better performance
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(4);
-            options.setUseNNAPI(true);
+    /**
+     * With lazyLoading the model is only mapped on first use; otherwise loading
+     * starts now in the background and the first request waits for it.
+     */
+    public SpineClassificationHelper(ModelRegistry registry, int poolSize, boolean lazyLoading) {
+        this(registry, poolSize, lazyLoading, ModelVariant.STANDARD);
+    }
 
-            classifier = new Interpreter(modelBuffer, options);
-            isModelLoaded = true;
+    /**
+     * Classifier backed by one variant's model file
+     */
+    public SpineClassificationHelper(ModelRegistry registry, int poolSize, boolean lazyLoading,
+                                     ModelVariant variant) {
+        this.registry = registry;
+        this.poolSize = poolSize;
+        this.variant = variant;
+        this.modelFile = variant.modelFile(MODEL_NAME);
+        if (!lazyLoading) {
+            loadModel();
+        }
+    }
 
-            Log.d(TAG, "Spine classification model loaded successfully");
+    private synchronized CompletableFuture<InterpreterPool> loadModel() {
+        if (closed) return null;
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading spine classification model", e);
-            isModelLoaded = false;
+        if (classifierReady != null && classifierReady.isCompletedExceptionally()) {
+            // Failed loads are retried by the registry; give back the failed attempt's reference
+            registry.release(modelFile);
+            classifierReady = null;
         }
+
+        if (classifierReady == null) {
+            // Mapped once and shared with every other user of the same model file
+            classifierReady = registry.acquireAsync(variant.modelType("classifier"), modelFile, poolSize);
+            classifierReady.whenComplete((pool, error) -> {
+                if (error == null) {
+                    MlLog.d(TAG, "Spine classification model loaded successfully");
+                } else {
+                    MlLog.e(TAG, "Error loading spine classification model", error);
+                }
+            });
+        }
+        return classifierReady;
     }
 
-    private MappedByteBuffer loadModelFile() throws IOException {
+    // Waits for a model that is still loading; null if it could not be loaded
+    private InterpreterPool awaitModel() {
+        CompletableFuture<InterpreterPool> ready = loadModel();
+        if (ready == null) return null;
+
         try {
-            FileInputStream fileInputStream = new FileInputStream(
-                    context.getAssets().openFd(MODEL_NAME).getFileDescriptor());
-            FileChannel fileChannel = fileInputStream.getChannel();
-            long startOffset = context.getAssets().openFd(MODEL_NAME).getStartOffset();
-            long declaredLength = context.getAssets().openFd(MODEL_NAME).getDeclaredLength();
-            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading model file: " + MODEL_NAME, e);
-            throw e;
+            return ready.join();
+        } catch (Exception e) {
+            return null;
         }
     }
 
-    public ClassificationResult classifySpine(Bitmap inputBitmap) {
-        if (!isModelLoaded) {
-            Log.e(TAG, "Model not loaded. Using enhanced fallback classification.");
-            return createEnhancedFallbackResult(inputBitmap);
+    public ClassificationResult classifySpine(PixelSource pixels) {
+        return classifySpine(LuminancePlane.fromPixels(pixels, LuminancePlane.DEFAULT_MAX_PIXELS));
+    }
+
+    /**
+     * Native 16-bit input, windowed straight into the luminance plane
+     */
+    public ClassificationResult classifySpine(Gray16Image image) {
+        return classifySpine(LuminancePlane.fromGray16(image, LuminancePlane.DEFAULT_MAX_PIXELS));
+    }
+
+    /**
+     * Classify using a luminance plane already computed for this analysis
+     */
+    public ClassificationResult classifySpine(LuminancePlane luminance) {
+        return classifySpine(luminance, new AnalysisTrace());
+    }
+
+    /**
+     * Same, recording checkout, preprocessing, inference and post-processing times into trace
+     */
+    public ClassificationResult classifySpine(LuminancePlane luminance, AnalysisTrace trace) {
+        return classifySpine(luminance, null, trace);
+    }
+
+    /**
+     * Same, reusing image statistics already computed for this analysis; null computes them here
+     */
+    public ClassificationResult classifySpine(LuminancePlane luminance, ImageStatistics statistics,
+                                              AnalysisTrace trace) {
+        InterpreterPool classifierPool = awaitModel();
+        if (classifierPool == null) {
+            MlLog.e(TAG, "Model not loaded. Using enhanced fallback classification.");
+            return createEnhancedFallbackResult(statisticsOf(luminance, statistics));
         }
 
+        ModelRunner classifier = null;
         try {
-            // IMPROVED: Enhanced preprocessing for better classification
-            Bitmap enhancedBitmap = enhanceImageForClassification(inputBitmap);
-            Bitmap resizedBitmap = Bitmap.createScaledBitmap(enhancedBitmap, INPUT_SIZE, INPUT_SIZE, true);
-
-            // Convert bitmap to float array
-            float[][][][] input = bitmapToFloatArray(resizedBitmap);
+            long start = System.nanoTime();
+            classifier = classifierPool.acquire();
+            start = trace.lap(AnalysisTrace.CLASSIFY_CHECKOUT, start);
+            prepareRunner(classifier);
+            classifier.setBatchSize(1); // No-op unless this runner last ran a batch
 
-            // Prepare output array
-            float[][] output = new float[1][NUM_CLASSES];
+            // IMPROVED: Enhance, resize and normalize straight into the input tensor
+            enhanceImageForClassification(luminance, classifier, classifier.getInputBuffer(0));
+            start = trace.lap(AnalysisTrace.CLASSIFY_PREPROCESS, start);
 
             // Run inference
-            classifier.run(input, output);
+            classifier.run();
+
+            float[] output = new float[NUM_CLASSES];
+            classifier.readFloatOutput(0, output);
+            classifierPool.release(classifier);
+            classifier = null;
+            start = trace.lap(AnalysisTrace.CLASSIFY_INFERENCE, start);
 
             // IMPROVED: Enhanced result processing
-            return processEnhancedClassificationOutput(output[0], inputBitmap);
+            ClassificationResult result = processEnhancedClassificationOutput(output,
+                    statisticsOf(luminance, statistics));
+            trace.lap(AnalysisTrace.CLASSIFY_POSTPROCESS, start);
+            return result;
 
         } catch (Exception e) {
-            Log.e(TAG, "Error during classification", e);
-            return createEnhancedFallbackResult(inputBitmap);
+            MlLog.e(TAG, "Error during classification", e);
+            return createEnhancedFallbackResult(statisticsOf(luminance, statistics));
+        } finally {
+            classifierPool.release(classifier);
         }
     }
 
-    // IMPROVED: Enhanced image preprocessing for better classification
-    private Bitmap enhanceImageForClassification(Bitmap originalBitmap) {
-        Bitmap enhanced = originalBitmap.copy(Bitmap.Config.ARGB_8888, true);
-
-        int[] pixels = new int[enhanced.getWidth() * enhanced.getHeight()];
-        enhanced.getPixels(pixels, 0, enhanced.getWidth(), 0, 0, enhanced.getWidth(), enhanced.getHeight());
+    /**
+     * Classify several images with a single inference over an [N,224,224,3] input.
+     * Results come back in input order; an image that cannot be preprocessed, or a
+     * batch whose inference fails, gets the enhanced fallback result.
+     */
+    public List<ClassificationResult> classifySpineBatch(List<LuminancePlane> images) {
+        int count = images.size();
+        ClassificationResult[] results = new ClassificationResult[count];
+        if (count == 0) return new ArrayList<>();
+
+        InterpreterPool classifierPool = awaitModel();
+        if (classifierPool == null) {
+            MlLog.e(TAG, "Model not loaded. Using enhanced fallback classification.");
+            for (int i = 0; i < count; i++) {
+                results[i] = createEnhancedFallbackResult(ImageStatistics.of(images.get(i)));
+            }
+            return Arrays.asList(results);
+        }
 
-        for (int i = 0; i < pixels.length; i++) {
-            int pixel = pixels[i];
-            int r = (pixel >> 16) & 0xFF;
-            int g = (pixel >> 8) & 0xFF;
-            int b = pixel & 0xFF;
+        ModelRunner classifier = null;
+        try {
+            classifier = classifierPool.acquire();
+            prepareRunner(classifier);
+            classifier.setBatchSize(count);
+
+            ByteBuffer input = classifier.getInputBuffer(0);
+            TensorFormat format = classifier.getInputFormat(0);
+            int imageBytes = classifier.getInputWidth() * classifier.getInputHeight() * 3 * format.getElementBytes();
+            boolean[] prepared = new boolean[count];
+
+            for (int i = 0; i < count; i++) {
+                // Each image owns a fixed slot so one failure cannot shift the rest
+                input.position(i * imageBytes);
+                try {
+                    enhanceImageForClassification(images.get(i), classifier, input);
+                    prepared[i] = true;
+                } catch (Exception e) {
+                    MlLog.e(TAG, "Error preprocessing batch image " + i, e);
+                }
+            }
 
-            // Enhanced contrast for spine X-ray analysis
-            int gray = (int) (0.299 * r + 0.587 * g + 0.114 * b);
+            classifier.run();
 
-            // Apply adaptive contrast enhancement
-            gray = Math.max(0, Math.min(255, (int) ((gray - 128) * 1.3 + 128)));
+            float[][] outputs = new float[count][NUM_CLASSES];
+            for (int i = 0; i < count; i++) {
+                classifier.readFloatOutput(0, i * NUM_CLASSES, outputs[i]);
+            }
+            classifierPool.release(classifier);
+            classifier = null;
 
-            // Enhance edge definition for spine structures
-            if (gray > 180) gray = Math.min(255, gray + 20); // Brighten bright areas
-            if (gray < 80) gray = Math.max(0, gray - 10);    // Darken dark areas
+            for (int i = 0; i < count; i++) {
+                results[i] = prepared[i]
+                        ? processEnhancedClassificationOutput(outputs[i], ImageStatistics.of(images.get(i)))
+                        : createEnhancedFallbackResult(ImageStatistics.of(images.get(i)));
+            }
 
-            pixels[i] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+        } catch (Exception e) {
+            MlLog.e(TAG, "Error during batch classification", e);
+            for (int i = 0; i < count; i++) {
+                if (results[i] == null) {
+                    results[i] = createEnhancedFallbackResult(ImageStatistics.of(images.get(i)));
+                }
+            }
+        } finally {
+            classifierPool.release(classifier);
         }
 
-        enhanced.setPixels(pixels, 0, enhanced.getWidth(), 0, 0, enhanced.getWidth(), enhanced.getHeight());
-        return enhanced;
+        return Arrays.asList(results);
     }
 
-    private float[][][][] bitmapToFloatArray(Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-
-        float[][][][] input = new float[1][height][width][3];
-
-        int[] pixels = new int[width * height];
-        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = pixels[y * width + x];
-
-                // Extract RGB values and normalize to [0, 1]
-                input[0][y][x][0] = ((pixel >> 16) & 0xFF) / 255.0f; // Red
-                input[0][y][x][1] = ((pixel >> 8) & 0xFF) / 255.0f;  // Green
-                input[0][y][x][2] = (pixel & 0xFF) / 255.0f;         // Blue
-            }
+    // Dynamic-size models are resized to the variant's input size; any model must output one score per label
+    private void prepareRunner(ModelRunner runner) {
+        if (runner.hasDynamicInputSize()) {
+            int size = variant.getInputSize() > 0 ? variant.getInputSize() : INPUT_SIZE;
+            runner.setInputSize(size, size);
+        }
+        if (runner.getOutputLength(0) != NUM_CLASSES) {
+            throw new IllegalStateException("Classifier " + modelFile + " outputs " + runner.getOutputLength(0)
+                    + " classes, expected " + NUM_CLASSES);
         }
+        modelInputSize = runner.getInputWidth();
+    }
 
-        return input;
+    // IMPROVED: Enhanced preprocessing fused into one pass at model resolution
+    private void enhanceImageForClassification(LuminancePlane luminance, ModelRunner classifier, ByteBuffer input) {
+        PreprocessKernel.writeTensor(luminance, classifier.getInputWidth(), classifier.getInputHeight(),
+                CLASSIFICATION_CURVE, classifier.getInputFormat(0), input);
     }
 
     // IMPROVED: Enhanced classification output processing
-    private ClassificationResult processEnhancedClassificationOutput(float[] probabilities, Bitmap originalBitmap) {
+    private ClassificationResult processEnhancedClassificationOutput(float[] probabilities, ImageStatistics statistics) {
         // Apply enhanced softmax with temperature scaling for better confidence
         float[] enhancedProbs = applyEnhancedSoftmax(probabilities);
 
@@ -186,7 +291,7 @@ public class SpineClassificationHelper {
         result.allProbabilities = enhancedProbs.clone();
 
         // Apply confidence boosting based on image analysis
-        float imageAnalysisBoost = analyzeImageCharacteristics(originalBitmap);
+        float imageAnalysisBoost = analyzeImageCharacteristics(statistics);
         result.confidence = Math.min(0.95f, maxProb + imageAnalysisBoost);
 
         // Enhanced reliability assessment
@@ -197,10 +302,10 @@ public class SpineClassificationHelper {
         result.classificationCertainty = calculateClassificationCertainty(enhancedProbs);
 
         // Log enhanced results
-        Log.d(TAG, "Enhanced classification: " + result.className +
-                " (confidence: " + String.format("%.3f", result.confidence) +
-                ", certainty: " + String.format("%.3f", result.classificationCertainty) +
-                ", reliable: " + result.isReliable + ")");
+        if (MlLog.isLoggable(MlLog.DEBUG)) {
+            MlLog.d(TAG, String.format("Enhanced classification: %s (confidence: %.3f, certainty: %.3f, reliable: %b)",
+                    result.className, result.confidence, result.classificationCertainty, result.isReliable));
+        }
 
         return result;
     }
@@ -232,13 +337,13 @@ public class SpineClassificationHelper {
     }
 
     // IMPROVED: Analyze image characteristics for confidence boosting
-    private float analyzeImageCharacteristics(Bitmap bitmap) {
+    private float analyzeImageCharacteristics(ImageStatistics statistics) {
         float boost = 0.0f;
 
         // Analyze image quality indicators
-        float contrastLevel = calculateImageContrast(bitmap);
-        float edgeDefinition = calculateEdgeDefinition(bitmap);
-        float spineVisibility = estimateSpineVisibility(bitmap);
+        float contrastLevel = statistics.contrastLevel;
+        float edgeDefinition = statistics.edgeDefinition;
+        float spineVisibility = statistics.spineVisibility;
 
         // Apply boosts based on image quality
         if (contrastLevel > 0.6f) boost += 0.05f;  // Good contrast
@@ -246,128 +351,16 @@ public class SpineClassificationHelper {
         if (spineVisibility > 0.7f) boost += 0.1f; // Visible spine structure
 
         // Bonus for X-ray characteristics
-        if (isLikelyXrayImage(bitmap)) boost += 0.05f;
+        if (statistics.likelyXray) boost += 0.05f;
 
-        Log.d(TAG, String.format("Image analysis boost: %.3f (contrast=%.2f, edges=%.2f, spine=%.2f)",
-                boost, contrastLevel, edgeDefinition, spineVisibility));
+        MlLog.d(TAG, "Image analysis boost: %.3f (contrast=%.2f, edges=%.2f, spine=%.2f)",
+                boost, contrastLevel, edgeDefinition, spineVisibility);
 
         return boost;
     }
 
-    private float calculateImageContrast(Bitmap bitmap) {
-        // Sample pixels to calculate contrast
-        int sampleSize = Math.min(bitmap.getWidth() * bitmap.getHeight(), 1000);
-        int[] pixels = new int[sampleSize];
-
-        // Get random sample of pixels
-        for (int i = 0; i < sampleSize; i++) {
-            int x = (int) (Math.random() * bitmap.getWidth());
-            int y = (int) (Math.random() * bitmap.getHeight());
-            pixels[i] = bitmap.getPixel(x, y);
-        }
-
-        // Calculate standard deviation of brightness
-        float mean = 0f;
-        for (int pixel : pixels) {
-            int gray = (int) (0.299 * ((pixel >> 16) & 0xFF) +
-                    0.587 * ((pixel >> 8) & 0xFF) +
-                    0.114 * (pixel & 0xFF));
-            mean += gray;
-        }
-        mean /= sampleSize;
-
-        float variance = 0f;
-        for (int pixel : pixels) {
-            int gray = (int) (0.299 * ((pixel >> 16) & 0xFF) +
-                    0.587 * ((pixel >> 8) & 0xFF) +
-                    0.114 * (pixel & 0xFF));
-            variance += (gray - mean) * (gray - mean);
-        }
-        variance /= sampleSize;
-
-        float stdDev = (float) Math.sqrt(variance);
-        return Math.min(1.0f, stdDev / 128.0f); // Normalize to [0,1]
-    }
-
-    private float calculateEdgeDefinition(Bitmap bitmap) {
-        // Simple edge detection approximation
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        int edgeCount = 0;
-        int totalSamples = 0;
-
-        // Sample edge detection
-        for (int y = 1; y < height - 1; y += 5) {
-            for (int x = 1; x < width - 1; x += 5) {
-                int center = getGrayValue(bitmap.getPixel(x, y));
-                int right = getGrayValue(bitmap.getPixel(x + 1, y));
-                int bottom = getGrayValue(bitmap.getPixel(x, y + 1));
-
-                int gradientX = Math.abs(right - center);
-                int gradientY = Math.abs(bottom - center);
-                int gradient = gradientX + gradientY;
-
-                if (gradient > 30) edgeCount++; // Edge threshold
-                totalSamples++;
-            }
-        }
-
-        return totalSamples > 0 ? (float) edgeCount / totalSamples : 0f;
-    }
-
-    private float estimateSpineVisibility(Bitmap bitmap) {
-        // Look for vertical structures (spine-like patterns)
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        int centerX = width / 2;
-        int verticalStructureScore = 0;
-        int samples = 0;
-
-        // Sample vertical line through center (where spine should be)
-        for (int y = height / 4; y < 3 * height / 4; y += 3) {
-            for (int x = centerX - width / 8; x < centerX + width / 8; x += 2) {
-                if (x >= 0 && x < width) {
-                    int gray = getGrayValue(bitmap.getPixel(x, y));
-                    // Look for bright structures (bones in X-ray)
-                    if (gray > 150) verticalStructureScore++;
-                    samples++;
-                }
-            }
-        }
-
-        return samples > 0 ? (float) verticalStructureScore / samples : 0f;
-    }
-
-    private boolean isLikelyXrayImage(Bitmap bitmap) {
-        // Check if image has X-ray characteristics
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        int brightPixels = 0;
-        int darkPixels = 0;
-        int totalSamples = 0;
-
-        // Sample image to check brightness distribution
-        for (int y = 0; y < height; y += 10) {
-            for (int x = 0; x < width; x += 10) {
-                int gray = getGrayValue(bitmap.getPixel(x, y));
-                if (gray > 200) brightPixels++;
-                if (gray < 50) darkPixels++;
-                totalSamples++;
-            }
-        }
-
-        float brightRatio = (float) brightPixels / totalSamples;
-        float darkRatio = (float) darkPixels / totalSamples;
-
-        // X-rays typically have high contrast with bright bones and dark background
-        return brightRatio > 0.1f && darkRatio > 0.2f;
-    }
-
-    private int getGrayValue(int pixel) {
-        int r = (pixel >> 16) & 0xFF;
-        int g = (pixel >> 8) & 0xFF;
-        int b = pixel & 0xFF;
-        return (int) (0.299 * r + 0.587 * g + 0.114 * b);
+    private static ImageStatistics statisticsOf(LuminancePlane luminance, ImageStatistics statistics) {
+        return statistics != null ? statistics : ImageStatistics.of(luminance);
     }
 
     // IMPROVED: Get secondary classification for better accuracy
@@ -403,12 +396,12 @@ public class SpineClassificationHelper {
     }
 
     // IMPROVED: Enhanced fallback result with better confidence
-    private ClassificationResult createEnhancedFallbackResult(Bitmap inputBitmap) {
+    private ClassificationResult createEnhancedFallbackResult(ImageStatistics statistics) {
         ClassificationResult result = new ClassificationResult();
 
         // IMPROVED: Analyze image to make educated guess
-        float spineVisibility = estimateSpineVisibility(inputBitmap);
-        float imageQuality = calculateImageContrast(inputBitmap);
+        float spineVisibility = statistics.spineVisibility;
+        float imageQuality = statistics.contrastLevel;
 
         // Make educated classification based on image analysis
         if (spineVisibility > 0.7f && imageQuality > 0.5f) {
@@ -444,43 +437,40 @@ public class SpineClassificationHelper {
         result.secondaryClass = "Analysis Limited";
         result.classificationCertainty = 0.6f;
 
-        Log.w(TAG, "Using enhanced fallback classification: " + result.className +
-                " (confidence: " + String.format("%.3f", result.confidence) + ")");
+        MlLog.w(TAG, "Using enhanced fallback classification: %s (confidence: %.3f)",
+                result.className, result.confidence);
 
         return result;
     }
 
     // Method to test model with enhanced validation
     public boolean testModel() {
-        if (!isModelLoaded) return false;
+        if (awaitModel() == null) return false;
 
         try {
-            // Create test bitmap with spine-like pattern
-            Bitmap testBitmap = createTestSpineBitmap();
+            // Create test image with spine-like pattern
+            PixelSource testImage = createTestSpineImage();
 
             // Run classification
-            ClassificationResult result = classifySpine(testBitmap);
+            ClassificationResult result = classifySpine(testImage);
 
-            Log.d(TAG, "Enhanced model test completed: " + result.className +
-                    " (confidence: " + String.format("%.3f", result.confidence) + ")");
+            MlLog.d(TAG, "Enhanced model test completed: %s (confidence: %.3f)",
+                    result.className, result.confidence);
             return true;
 
         } catch (Exception e) {
-            Log.e(TAG, "Enhanced model test failed", e);
+            MlLog.e(TAG, "Enhanced model test failed", e);
             return false;
         }
     }
 
-    // IMPROVED: Create test bitmap with spine-like characteristics
-    private Bitmap createTestSpineBitmap() {
-        Bitmap testBitmap = Bitmap.createBitmap(INPUT_SIZE, INPUT_SIZE, Bitmap.Config.RGB_565);
-
+    // IMPROVED: Create test image with spine-like characteristics
+    private PixelSource createTestSpineImage() {
         // Fill with dark background (X-ray characteristic)
-        testBitmap.eraseColor(android.graphics.Color.rgb(30, 30, 30));
+        int[] pixels = new int[INPUT_SIZE * INPUT_SIZE];
+        Arrays.fill(pixels, SpineColors.rgb(30, 30, 30));
 
         // Draw spine-like vertical structure in center
-        int[] pixels = new int[INPUT_SIZE * INPUT_SIZE];
-        testBitmap.getPixels(pixels, 0, INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
 
         // Create spine-like pattern
         int centerX = INPUT_SIZE / 2;
@@ -493,33 +483,47 @@ public class SpineClassificationHelper {
                     int index = y * INPUT_SIZE + x;
                     if (index < pixels.length) {
                         // Bright pixels for spine (bone structure)
-                        pixels[index] = android.graphics.Color.rgb(200, 200, 200);
+                        pixels[index] = SpineColors.rgb(200, 200, 200);
                     }
                 }
             }
         }
 
-        testBitmap.setPixels(pixels, 0, INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
-        return testBitmap;
+        return new ArrayPixelSource(pixels, INPUT_SIZE, INPUT_SIZE);
     }
 
     public boolean isModelReady() {
-        return isModelLoaded;
+        CompletableFuture<InterpreterPool> ready = classifierReady;
+        return ready != null && ready.isDone() && !ready.isCompletedExceptionally();
     }
 
     public String[] getClassLabels() {
         return CLASS_LABELS.clone();
     }
 
+    /**
+     * Input width of the loaded model once it has run, else the default
+     */
     public int getInputSize() {
-        return INPUT_SIZE;
+        int size = modelInputSize;
+        return size > 0 ? size : INPUT_SIZE;
+    }
+
+    public ModelVariant getVariant() {
+        return variant;
+    }
+
+    public InterpreterPool.PoolStats getPoolStats() {
+        CompletableFuture<InterpreterPool> ready = classifierReady;
+        return ready != null && ready.isDone() && !ready.isCompletedExceptionally()
+                ? ready.join().getStats() : null;
     }
 
     // IMPROVED: Get detailed model performance metrics
     public ModelPerformanceMetrics getPerformanceMetrics() {
         ModelPerformanceMetrics metrics = new ModelPerformanceMetrics();
-        metrics.modelLoaded = isModelLoaded;
-        metrics.inputSize = INPUT_SIZE;
+        metrics.modelLoaded = isModelReady();
+        metrics.inputSize = getInputSize();
         metrics.numClasses = NUM_CLASSES;
         metrics.confidenceThresholds = CONFIDENCE_THRESHOLDS.clone();
         metrics.supportedFeatures = new String[]{
@@ -535,12 +539,14 @@ public class SpineClassificationHelper {
     }
 
     public void close() {
-        if (classifier != null) {
-            classifier.close();
-            classifier = null;
+        synchronized (this) {
+            closed = true;
+            if (classifierReady != null) {
+                registry.release(modelFile);
+                classifierReady = null;
+            }
         }
-        isModelLoaded = false;
-        Log.d(TAG, "Enhanced spine classification model closed");
+        MlLog.d(TAG, "Enhanced spine classification model closed");
     }
 
     // IMPROVED: Enhanced classification result class
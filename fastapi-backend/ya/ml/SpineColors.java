@@ -0,0 +1,21 @@
+// SpineColors.java - ARGB color constants for assessments (same values as android.graphics.Color)
+package com.example.spineanalyzer.ml;
+
+public final class SpineColors {
+
+    public static final int GREEN = 0xFF00FF00;
+    public static final int RED = 0xFFFF0000;
+    public static final int GRAY = 0xFF888888;
+
+    // Severity scale between green and red
+    public static final int AMBER = rgb(255, 193, 7);
+    public static final int ORANGE = rgb(255, 152, 0);
+    public static final int DEEP_ORANGE = rgb(255, 87, 34);
+
+    private SpineColors() {
+    }
+
+    public static int rgb(int red, int green, int blue) {
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
+}
@@ -0,0 +1,107 @@
+// SpinePipeline.java - Named stages of a spine analysis and what each one depends on
+package com.example.spineanalyzer.ml;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The analysis as a graph of stages over one luminance plane:
+ *
+ *   luminance -+- statistics --------- classification -+
+ *              +- keypoints (+ angles) ----------------+- assessment (MLModelManager)
+ *              +- centerline -+- straight
+ *                             +- accurate
+ *
+ * statistics and centerline are the scans the detectors used to repeat each on
+ * their own; in a graph they run once and every consumer reads the same result.
+ * Ask a graph from newGraph() for any combination of stages, e.g. keypoints,
+ * straight and accurate for one image, and only the missing ones are computed.
+ */
+public final class SpinePipeline {
+
+    /**
+     * Model-backed steps, provided by the owner of the models
+     */
+    interface Models {
+        // Null when the keypoint model is unavailable
+        SpineAngleDetector.SpineAnalysisResult detectKeypoints(LuminancePlane luminance, ModelVariant variant,
+                                                               AnalysisTrace trace);
+
+        // Null when the classifier is unavailable
+        SpineClassificationHelper.ClassificationResult classify(LuminancePlane luminance, ImageStatistics statistics,
+                                                                ModelVariant variant, AnalysisTrace trace);
+
+        AccurateSpineDetector getAccurateDetector();
+    }
+
+    // Inputs, put into every graph by newGraph()
+    public final AnalysisGraph.Stage<LuminancePlane> luminance = AnalysisGraph.Stage.input("luminance");
+    public final AnalysisGraph.Stage<ModelVariant> variant = AnalysisGraph.Stage.input("variant");
+
+    // Image-only stages shared by the detectors
+    public final AnalysisGraph.Stage<ImageStatistics> statistics;
+    public final AnalysisGraph.Stage<List<SpinePoint>> centerline;
+
+    // Detectors
+    public final AnalysisGraph.Stage<SpineAngleDetector.SpineAnalysisResult> keypoints;
+    public final AnalysisGraph.Stage<SpineClassificationHelper.ClassificationResult> classification;
+    public final AnalysisGraph.Stage<StraightSpineDetector.StraightSpineResult> straight;
+    public final AnalysisGraph.Stage<AccurateSpineDetector.SpineAnalysisResult> accurate;
+
+    private final StraightSpineDetector straightDetector = new StraightSpineDetector();
+
+    SpinePipeline(final Models models) {
+        statistics = AnalysisGraph.Stage.of("statistics", graph -> {
+            long start = System.nanoTime();
+            ImageStatistics result = ImageStatistics.of(graph.value(luminance));
+            graph.getTrace().lap(AnalysisTrace.STATISTICS, start);
+            return result;
+        }, luminance);
+
+        // Read-only: straight and accurate both analyze this same list
+        centerline = AnalysisGraph.Stage.of("centerline", graph -> {
+            long start = System.nanoTime();
+            List<SpinePoint> result = straightDetector.findPreciseCenterline(graph.value(luminance));
+            graph.getTrace().lap(AnalysisTrace.CENTERLINE, start);
+            return Collections.unmodifiableList(result);
+        }, luminance);
+
+        keypoints = AnalysisGraph.Stage.of("keypoints", AnalysisTrace.KEYPOINT_QUEUE_WAIT,
+                graph -> models.detectKeypoints(graph.value(luminance), graph.value(variant), graph.getTrace()),
+                luminance, variant);
+
+        classification = AnalysisGraph.Stage.of("classification", AnalysisTrace.CLASSIFY_QUEUE_WAIT,
+                graph -> models.classify(graph.value(luminance), graph.value(statistics), graph.value(variant),
+                        graph.getTrace()),
+                luminance, statistics, variant);
+
+        straight = AnalysisGraph.Stage.of("straight",
+                graph -> straightDetector.detectStraightSpine(graph.value(luminance), graph.value(centerline)),
+                luminance, centerline);
+
+        accurate = AnalysisGraph.Stage.of("accurate",
+                graph -> models.getAccurateDetector().detectSpineAndCalculateAngle(graph.value(luminance),
+                        graph.value(centerline)),
+                luminance, centerline);
+    }
+
+    /**
+     * Empty graph for one decoded image; stages start when first asked for
+     */
+    public AnalysisGraph newGraph(LuminancePlane plane, ModelVariant modelVariant, Executor executor,
+                                  AnalysisTrace trace) {
+        return newGraph(CompletableFuture.completedFuture(plane), modelVariant, executor, trace);
+    }
+
+    /**
+     * Same, for a plane still being decoded; stages asked for meanwhile start once it is ready
+     */
+    public AnalysisGraph newGraph(CompletableFuture<LuminancePlane> plane, ModelVariant modelVariant,
+                                  Executor executor, AnalysisTrace trace) {
+        return new AnalysisGraph(executor, trace)
+                .put(luminance, plane)
+                .put(variant, modelVariant);
+    }
+}
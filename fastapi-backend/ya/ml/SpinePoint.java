@@ -0,0 +1,21 @@
+// SpinePoint.java - Mutable 2D float point used for keypoints and centerlines
+package com.example.spineanalyzer.ml;
+
+public class SpinePoint {
+
+    public float x;
+    public float y;
+
+    public SpinePoint() {
+    }
+
+    public SpinePoint(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    @Override
+    public String toString() {
+        return "SpinePoint(" + x + ", " + y + ")";
+    }
+}
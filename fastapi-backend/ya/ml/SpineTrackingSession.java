@@ -0,0 +1,191 @@
+// SpineTrackingSession.java - Streaming analysis that tracks keypoints between frames
+package com.example.spineanalyzer.ml;
+
+import android.graphics.Bitmap;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analyzes a continuous stream of frames of one scene, in submission order. The
+ * first frame runs the full pipeline and becomes the keyframe; later frames
+ * only decode and track the keyframe's keypoints (KeypointTracker), then
+ * recompute angles and assessment. Full detection runs again when tracking
+ * quality drops, the centerline drifts, the frame size changes, the keyframe
+ * is too old, or requestKeyframe() was called.
+ *
+ * In LATEST_FRAME_WINS mode (the default) only the newest waiting frame is
+ * kept: stale frames are dropped and their futures complete with the result of
+ * the frame that replaced them. QUEUE_ALL analyzes every frame.
+ *
+ * Create with MLModelManager.startTrackingSession(). Results are never cached.
+ */
+public class SpineTrackingSession {
+
+    public enum SchedulingMode {
+        QUEUE_ALL,          // Every frame, in order; the backlog grows if frames come faster than analysis
+        LATEST_FRAME_WINS   // One frame in flight and only the newest one waiting
+    }
+
+    private static final String TAG = "SpineTrackingSession";
+
+    // Keyframes with fewer keypoints are not worth tracking
+    private static final int MIN_TRACKED_KEYPOINTS = 5;
+
+    private final MLModelManager manager;
+    private final Executor executor;
+    private final SchedulingMode mode;
+    private final LatestFrameScheduler<Bitmap, MLModelManager.SpineAnalysisResult> scheduler;
+
+    // Only touched by the frame being processed; frames run one after another
+    private final KeypointTracker tracker = new KeypointTracker();
+    private final KeypointSet tracked = new KeypointSet();
+    private MLModelManager.SpineAnalysisResult keyframe;
+
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+    private volatile boolean keyframeRequested = false;
+    private boolean closed = false;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong keyframes = new AtomicLong();
+    private final AtomicLong trackedFrames = new AtomicLong();
+
+    SpineTrackingSession(MLModelManager manager, Executor executor, SchedulingMode mode) {
+        this.manager = manager;
+        this.executor = executor;
+        this.mode = mode;
+        this.scheduler = new LatestFrameScheduler<>(this::runFrame);
+    }
+
+    /**
+     * Submit the next frame. A frame that fails completes its own future
+     * exceptionally without stopping the stream.
+     */
+    public synchronized CompletableFuture<MLModelManager.SpineAnalysisResult> submitFrame(final Bitmap frame) {
+        if (closed) {
+            throw new IllegalStateException("Tracking session is closed");
+        }
+
+        submitted.incrementAndGet();
+        final AnalysisTrace trace = new AnalysisTrace();
+        CompletableFuture<MLModelManager.SpineAnalysisResult> result;
+        if (mode == SchedulingMode.LATEST_FRAME_WINS) {
+            result = scheduler.submit(frame, trace);
+        } else {
+            result = tail.handle((ignored, error) -> null)
+                    .thenCompose(ignored -> runFrame(frame, trace));
+        }
+        tail = result;
+        return result;
+    }
+
+    // Frames reach this one at a time in both modes
+    private CompletableFuture<MLModelManager.SpineAnalysisResult> runFrame(final Bitmap frame,
+                                                                          final AnalysisTrace trace) {
+        return CompletableFuture.completedFuture(frame)
+                .thenComposeAsync(ignored -> processFrame(frame, trace), executor);
+    }
+
+    // Queue wait includes waiting for the previous frame of the session
+    private CompletableFuture<MLModelManager.SpineAnalysisResult> processFrame(Bitmap frame,
+                                                                              final AnalysisTrace trace) {
+        long start = trace.lap(AnalysisTrace.QUEUE_WAIT, trace.getStartNanos());
+        frames.incrementAndGet();
+
+        final LuminancePlane luminance = LuminancePlane.fromPixels(new BitmapPixelSource(frame),
+                LuminancePlane.DEFAULT_MAX_PIXELS);
+        start = trace.lap(AnalysisTrace.DECODE, start);
+
+        if (keyframeRequested) {
+            keyframeRequested = false;
+        } else if (keyframe != null) {
+            boolean holding = tracker.track(luminance, tracked);
+            trace.lap(AnalysisTrace.TRACKING, start);
+
+            if (holding) {
+                MLModelManager.SpineAnalysisResult result =
+                        manager.analyzeTrackedFrame(luminance, tracked, keyframe, trace);
+                trace.finish(false);
+                trackedFrames.incrementAndGet();
+                MlLog.d(TAG, "Tracked frame: %s", trace);
+                return CompletableFuture.completedFuture(result);
+            }
+        }
+
+        return manager.analyzeLuminance(luminance, executor, trace, System.currentTimeMillis())
+                .thenApply(result -> {
+                    startKeyframe(luminance, result);
+                    trace.finish(false);
+                    keyframes.incrementAndGet();
+                    MlLog.d(TAG, "Keyframe: %s", trace);
+                    return result;
+                });
+    }
+
+    private void startKeyframe(LuminancePlane luminance, MLModelManager.SpineAnalysisResult result) {
+        if (result.keypointError != null || result.keypoints == null
+                || result.keypoints.size() < MIN_TRACKED_KEYPOINTS) {
+            // Nothing reliable to follow; the next frame runs the full pipeline again
+            keyframe = null;
+            tracker.clear();
+            return;
+        }
+
+        keyframe = result;
+        tracker.reset(luminance, KeypointSet.fromKeypoints(result.keypoints));
+    }
+
+    /**
+     * Run full detection on the next frame, e.g. after the user moved to another film
+     */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /**
+     * Stop accepting frames; frames already submitted still complete
+     */
+    public synchronized void close() {
+        closed = true;
+        tail.handle((ignored, error) -> {
+            keyframe = null;
+            tracker.clear();
+            return null;
+        });
+    }
+
+    public SchedulingMode getSchedulingMode() {
+        return mode;
+    }
+
+    public TrackingStats getStats() {
+        TrackingStats stats = new TrackingStats();
+        stats.submitted = submitted.get();
+        stats.dropped = scheduler.getDroppedCount();
+        stats.frames = frames.get();
+        stats.keyframes = keyframes.get();
+        stats.trackedFrames = trackedFrames.get();
+        return stats;
+    }
+
+    public static class TrackingStats {
+        public long submitted;
+        public long dropped;        // Stale frames replaced by newer ones before analysis
+        public long frames;         // Frames analyzed
+        public long keyframes;
+        public long trackedFrames;
+
+        public double getTrackedRatio() {
+            long finished = keyframes + trackedFrames;
+            return finished > 0 ? (double) trackedFrames / finished : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Tracking: %d submitted, %d dropped, %d frames, %d keyframes, %d tracked (%.0f%%)",
+                    submitted, dropped, frames, keyframes, trackedFrames, getTrackedRatio() * 100);
+        }
+    }
+}
@@ -1,12 +1,6 @@
 // StraightSpineDetector.java - Algoritma khusus untuk deteksi spine lurus yang akurat
 package com.example.spineanalyzer.ml;
 
-import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.Color;
-import android.graphics.PointF;
-import android.util.Log;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,41 +9,59 @@ public class StraightSpineDetector {
     private static final String TAG = "StraightSpineDetector";
 
     // Constants untuk deteksi spine lurus
-    private static final int VERTICAL_DIVISIONS = 30;        // Bagi gambar jadi 30 strip horizontal
-    private static final float CENTER_SEARCH_RATIO = 0.3f;   // Cari di 30% tengah gambar
+    static final int VERTICAL_DIVISIONS = 30;        // Bagi gambar jadi 30 strip horizontal
+    static final float CENTER_SEARCH_RATIO = 0.3f;   // Cari di 30% tengah gambar
     private static final int MIN_BRIGHTNESS = 140;           // Minimum brightness untuk tulang
     private static final float STRAIGHTNESS_THRESHOLD = 0.9f; // Threshold untuk spine lurus
     private static final double MAX_STRAIGHT_ANGLE = 12.0;   // Max angle untuk spine lurus
 
-    private Context context;
-
-    public StraightSpineDetector(Context context) {
-        this.context = context;
+    public StraightSpineDetector() {
     }
 
     /**
      * Deteksi spine dan hitung angle dengan fokus pada spine lurus
      */
-    public StraightSpineResult detectStraightSpine(Bitmap xrayImage) {
-        Log.d(TAG, "Starting straight spine detection...");
-
+    public StraightSpineResult detectStraightSpine(PixelSource xrayImage) {
         if (xrayImage == null) {
+            MlLog.d(TAG, "Starting straight spine detection...");
             return createDefaultStraightResult();
         }
 
+        return detectStraightSpine(LuminancePlane.fromPixels(xrayImage));
+    }
+
+    /**
+     * Deteksi spine dari luminance plane yang sudah dihitung untuk analisis ini
+     */
+    public StraightSpineResult detectStraightSpine(LuminancePlane luminance) {
+        if (luminance == null) {
+            MlLog.d(TAG, "Starting straight spine detection...");
+            return createDefaultStraightResult();
+        }
+
+        return detectStraightSpine(luminance, findPreciseCenterline(luminance));
+    }
+
+    /**
+     * Deteksi spine dengan centerline yang sudah dicari untuk analisis ini (tidak di-scan ulang).
+     * List centerline hanya dibaca.
+     */
+    public StraightSpineResult detectStraightSpine(LuminancePlane luminance, List<SpinePoint> centerPoints) {
+        MlLog.d(TAG, "Starting straight spine detection...");
+
         StraightSpineResult result = new StraightSpineResult();
 
         try {
             // STEP 1: Deteksi apakah spine benar-benar lurus
-            SpineLinearity linearity = analyzeSpineLinearity(xrayImage);
+            SpineLinearity linearity = analyzeSpineLinearity(luminance, centerPoints);
             result.linearityAnalysis = linearity;
 
             // STEP 2: Generate keypoints yang akurat untuk spine lurus
             if (linearity.isStraight) {
-                result.keypoints = generateStraightKeypoints(xrayImage, linearity.centerLine);
+                result.keypoints = generateStraightKeypoints(luminance, linearity.centerLine);
                 result.cobbAngle = calculateMinimalAngle(result.keypoints, linearity);
             } else {
-                result.keypoints = generateCurvedKeypoints(xrayImage, linearity);
+                result.keypoints = generateCurvedKeypoints(luminance, linearity);
                 result.cobbAngle = calculateCurvedAngle(result.keypoints, linearity);
             }
 
@@ -57,11 +69,11 @@ public class StraightSpineDetector {
             result.confidence = calculateStraightSpineConfidence(linearity, result.keypoints);
             result.assessment = createStraightSpineAssessment(result.cobbAngle, linearity, result.confidence);
 
-            Log.d(TAG, String.format("Straight spine detection: %s, angle=%.1f°, confidence=%.1f%%",
-                    linearity.spineDescription, result.cobbAngle, result.confidence * 100));
+            MlLog.d(TAG, "Straight spine detection: %s, angle=%.1f°, confidence=%.1f%%",
+                    linearity.spineDescription, result.cobbAngle, result.confidence * 100);
 
         } catch (Exception e) {
-            Log.e(TAG, "Error in straight spine detection", e);
+            MlLog.e(TAG, "Error in straight spine detection", e);
             return createDefaultStraightResult();
         }
 
@@ -71,18 +83,18 @@ public class StraightSpineDetector {
     /**
      * Analyze spine linearity dengan algoritma khusus untuk spine lurus
      */
-    private SpineLinearity analyzeSpineLinearity(Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
+    private SpineLinearity analyzeSpineLinearity(LuminancePlane luminance, List<SpinePoint> centerPoints) {
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
 
         SpineLinearity linearity = new SpineLinearity();
 
-        // Find spine centerline dengan precision tinggi
-        List<PointF> centerPoints = findPreciseCenterline(bitmap);
+        // Spine centerline dengan precision tinggi
         linearity.centerLine = centerPoints;
 
         if (centerPoints.size() < 5) {
             // Fallback: assume straight spine jika deteksi gagal
+            linearity.limitedDetection = true;
             linearity.isStraight = true;
             linearity.straightnessScore = 0.85f;
             linearity.maxDeviation = 8.0;
@@ -117,20 +129,21 @@ public class StraightSpineDetector {
             }
         }
 
-        Log.d(TAG, String.format("Linearity: %s (straightness=%.2f, deviation=%.1f, ratio=%.2f)",
-                linearity.spineDescription, linearity.straightnessScore, linearity.maxDeviation, linearity.deviationRatio));
+        MlLog.d(TAG, "Linearity: %s (straightness=%.2f, deviation=%.1f, ratio=%.2f)",
+                linearity.spineDescription, linearity.straightnessScore, linearity.maxDeviation, linearity.deviationRatio);
 
         return linearity;
     }
 
     /**
-     * Find precise centerline dengan algoritma yang lebih akurat
+     * Find precise centerline dengan algoritma yang lebih akurat, coarse-to-fine
+     * lewat luminance pyramid: hanya kolom di sekitar band terang yang di-score di full resolution
      */
-    private List<PointF> findPreciseCenterline(Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
+    List<SpinePoint> findPreciseCenterline(final LuminancePlane luminance) {
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
 
-        List<PointF> centerPoints = new ArrayList<>();
+        List<SpinePoint> centerPoints = new ArrayList<>();
 
         // Define search area (center 30% of image width)
         int searchStart = (int) (width * (0.5f - CENTER_SEARCH_RATIO / 2));
@@ -138,12 +151,62 @@ public class StraightSpineDetector {
 
         // Analyze horizontal strips dengan precision tinggi
         int stripHeight = height / VERTICAL_DIVISIONS;
+        int halfHeight = stripHeight / 3;
+
+        // Column tables seperti exhaustive scan, tapi hanya untuk blok kolom yang dilihat pyramid search:
+        // score full resolution O(1) per kolom
+        final int window = 2 * halfHeight + 1;
+        final ColumnBlocks<ColumnPrefixSums> columnSums = new ColumnBlocks<>(searchStart, searchEnd, 1,
+                (first, end) -> new ColumnPrefixSums(luminance, first, end, 1, 1));
+        final ColumnBlocks<ColumnRangeMax> columnMax = new ColumnBlocks<>(searchStart, searchEnd, 1,
+                (first, end) -> new ColumnRangeMax(luminance, first, end, 1, window));
+
+        CenterlinePyramidSearch search = new CenterlinePyramidSearch(luminance.getPyramid(), searchStart, searchEnd, 1);
+        CenterlinePyramidSearch.StripScore score = this::calculateSpineScore;
+        CenterlinePyramidSearch.ColumnScore fullScore = (x, top, bottom) -> calculateSpineScore(
+                columnSums.forColumn(x), columnMax.forColumn(x), x, (top + bottom) / 2, (bottom - top) / 2);
+
+        for (int strip = 2; strip < VERTICAL_DIVISIONS - 2; strip++) {
+            int centerY = strip * stripHeight + stripHeight / 2;
+
+            int bestX = search.findBestColumn(centerY - halfHeight, centerY + halfHeight, score, fullScore);
+            if (bestX >= 0 && search.getBestScore() > 0.3) { // Threshold untuk valid spine detection
+                centerPoints.add(new SpinePoint(bestX, centerY));
+            }
+        }
+
+        // Apply advanced smoothing untuk remove noise
+        return applyAdvancedSmoothing(centerPoints);
+    }
+
+    /**
+     * Versi lama: scan setiap kolom di full resolution. Referensi untuk pyramid search
+     * (benchmark dan pengecekan hasil)
+     */
+    List<SpinePoint> findPreciseCenterlineExhaustive(LuminancePlane luminance) {
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
+
+        List<SpinePoint> centerPoints = new ArrayList<>();
+
+        // Define search area (center 30% of image width)
+        int searchStart = (int) (width * (0.5f - CENTER_SEARCH_RATIO / 2));
+        int searchEnd = (int) (width * (0.5f + CENTER_SEARCH_RATIO / 2));
+
+        // Analyze horizontal strips dengan precision tinggi
+        int stripHeight = height / VERTICAL_DIVISIONS;
+        int halfHeight = stripHeight / 3;
+
+        // Column sums dan max sekali saja, setiap strip score jadi O(1)
+        ColumnPrefixSums columnSums = new ColumnPrefixSums(luminance, searchStart, searchEnd, 1, 1);
+        ColumnRangeMax columnMax = new ColumnRangeMax(luminance, searchStart, searchEnd, 1, 2 * halfHeight + 1);
 
         for (int strip = 2; strip < VERTICAL_DIVISIONS - 2; strip++) {
             int centerY = strip * stripHeight + stripHeight / 2;
 
             // Find spine center in this strip
-            PointF spineCenter = findSpineCenterInPreciseStrip(bitmap, centerY, stripHeight / 3, searchStart, searchEnd);
+            SpinePoint spineCenter = findSpineCenterInPreciseStrip(columnSums, columnMax, centerY, halfHeight,
+                    searchStart, searchEnd);
 
             if (spineCenter != null) {
                 centerPoints.add(spineCenter);
@@ -157,8 +220,8 @@ public class StraightSpineDetector {
     /**
      * Find spine center dengan precision tinggi
      */
-    private PointF findSpineCenterInPreciseStrip(Bitmap bitmap, int centerY, int halfHeight,
-                                                 int searchStart, int searchEnd) {
+    private SpinePoint findSpineCenterInPreciseStrip(ColumnPrefixSums columnSums, ColumnRangeMax columnMax,
+                                                 int centerY, int halfHeight, int searchStart, int searchEnd) {
 
         double maxScore = 0;
         int bestX = (searchStart + searchEnd) / 2;
@@ -166,7 +229,7 @@ public class StraightSpineDetector {
 
         // Search dengan step kecil untuk precision
         for (int x = searchStart; x < searchEnd; x += 1) {
-            double spineScore = calculateSpineScore(bitmap, x, centerY, halfHeight);
+            double spineScore = calculateSpineScore(columnSums, columnMax, x, centerY, halfHeight);
 
             if (spineScore > maxScore) {
                 maxScore = spineScore;
@@ -176,7 +239,7 @@ public class StraightSpineDetector {
         }
 
         if (foundSpine) {
-            return new PointF(bestX, centerY);
+            return new SpinePoint(bestX, centerY);
         }
 
         return null;
@@ -185,25 +248,40 @@ public class StraightSpineDetector {
     /**
      * Calculate spine score berdasarkan brightness dan consistency
      */
-    private double calculateSpineScore(Bitmap bitmap, int x, int centerY, int halfHeight) {
-        double totalBrightness = 0;
-        double maxBrightness = 0;
-        int sampleCount = 0;
-
-        // Sample vertical line untuk detect tulang
-        for (int y = centerY - halfHeight; y <= centerY + halfHeight; y += 1) {
-            if (y >= 0 && y < bitmap.getHeight() && x >= 0 && x < bitmap.getWidth()) {
-                int pixel = bitmap.getPixel(x, y);
-                double brightness = calculatePixelBrightness(pixel);
-
-                totalBrightness += brightness;
-                maxBrightness = Math.max(maxBrightness, brightness);
-                sampleCount++;
-            }
-        }
+    double calculateSpineScore(ColumnPrefixSums columnSums, ColumnRangeMax columnMax,
+                                       int x, int centerY, int halfHeight) {
+        // Vertical line untuk detect tulang, dibaca dari prefix sums
+        int top = centerY - halfHeight;
+        int bottom = centerY + halfHeight;
 
+        int sampleCount = columnSums.count(top, bottom);
         if (sampleCount == 0) return 0;
 
+        return calculateSpineScore(columnSums.sum(x, top, bottom), columnMax.max(x, top, bottom), sampleCount);
+    }
+
+    /**
+     * Score yang sama, dibaca langsung dari plane; untuk level kasar pyramid search
+     */
+    double calculateSpineScore(LuminancePlane luminance, int x, int top, int bottom) {
+        int first = Math.max(0, top);
+        int last = Math.min(luminance.getHeight() - 1, bottom);
+        if (last < first) return 0;
+
+        byte[] data = luminance.getData();
+        int width = luminance.getWidth();
+        int totalBrightness = 0;
+        int maxBrightness = 0;
+        for (int y = first; y <= last; y++) {
+            int value = data[y * width + x] & 0xFF;
+            totalBrightness += value;
+            maxBrightness = Math.max(maxBrightness, value);
+        }
+
+        return calculateSpineScore(totalBrightness, maxBrightness, last - first + 1);
+    }
+
+    private double calculateSpineScore(double totalBrightness, double maxBrightness, int sampleCount) {
         double avgBrightness = totalBrightness / sampleCount;
 
         // Combine average dan max brightness untuk spine score
@@ -217,20 +295,13 @@ public class StraightSpineDetector {
         return Math.min(1.0, brightnessScore);
     }
 
-    private double calculatePixelBrightness(int pixel) {
-        int r = Color.red(pixel);
-        int g = Color.green(pixel);
-        int b = Color.blue(pixel);
-        return 0.299 * r + 0.587 * g + 0.114 * b;
-    }
-
     /**
      * Advanced smoothing untuk centerline
      */
-    private List<PointF> applyAdvancedSmoothing(List<PointF> rawPoints) {
+    private List<SpinePoint> applyAdvancedSmoothing(List<SpinePoint> rawPoints) {
         if (rawPoints.size() < 3) return rawPoints;
 
-        List<PointF> smoothed = new ArrayList<>();
+        List<SpinePoint> smoothed = new ArrayList<>();
 
         // Apply Gaussian-like smoothing
         for (int i = 0; i < rawPoints.size(); i++) {
@@ -246,7 +317,7 @@ public class StraightSpineDetector {
                 totalWeight += weight;
             }
 
-            smoothed.add(new PointF(sumX / totalWeight, sumY / totalWeight));
+            smoothed.add(new SpinePoint(sumX / totalWeight, sumY / totalWeight));
         }
 
         return smoothed;
@@ -255,16 +326,16 @@ public class StraightSpineDetector {
     /**
      * Calculate precise straightness score
      */
-    private float calculatePreciseStraightness(List<PointF> centerPoints) {
+    private float calculatePreciseStraightness(List<SpinePoint> centerPoints) {
         if (centerPoints.size() < 3) return 0.9f;
 
-        PointF first = centerPoints.get(0);
-        PointF last = centerPoints.get(centerPoints.size() - 1);
+        SpinePoint first = centerPoints.get(0);
+        SpinePoint last = centerPoints.get(centerPoints.size() - 1);
 
         double totalDeviation = 0;
         double spineLength = calculateDistance(first, last);
 
-        for (PointF point : centerPoints) {
+        for (SpinePoint point : centerPoints) {
             double deviation = pointToLineDistance(point, first, last);
             totalDeviation += deviation;
         }
@@ -281,14 +352,14 @@ public class StraightSpineDetector {
     /**
      * Calculate precise deviation
      */
-    private double calculatePreciseDeviation(List<PointF> centerPoints) {
+    private double calculatePreciseDeviation(List<SpinePoint> centerPoints) {
         if (centerPoints.size() < 2) return 5.0; // Default minimal
 
-        PointF first = centerPoints.get(0);
-        PointF last = centerPoints.get(centerPoints.size() - 1);
+        SpinePoint first = centerPoints.get(0);
+        SpinePoint last = centerPoints.get(centerPoints.size() - 1);
 
         double maxDeviation = 0.0;
-        for (PointF point : centerPoints) {
+        for (SpinePoint point : centerPoints) {
             double deviation = pointToLineDistance(point, first, last);
             maxDeviation = Math.max(maxDeviation, deviation);
         }
@@ -299,19 +370,19 @@ public class StraightSpineDetector {
     /**
      * Generate keypoints untuk spine yang lurus
      */
-    private List<StraightKeypoint> generateStraightKeypoints(Bitmap bitmap, List<PointF> centerLine) {
+    private List<StraightKeypoint> generateStraightKeypoints(LuminancePlane luminance, List<SpinePoint> centerLine) {
         List<StraightKeypoint> keypoints = new ArrayList<>();
 
         if (centerLine.isEmpty()) {
             // Fallback: create perfectly straight keypoints
-            return createPerfectStraightKeypoints(bitmap.getWidth(), bitmap.getHeight());
+            return createPerfectStraightKeypoints(luminance.getWidth(), luminance.getHeight());
         }
 
         // Distribute 17 keypoints along the straight centerline
         for (int i = 0; i < 17; i++) {
             float progress = (float) i / 16.0f; // 0 to 1
 
-            PointF position = interpolateAlongLine(centerLine, progress);
+            SpinePoint position = interpolateAlongLine(centerLine, progress);
 
             StraightKeypoint keypoint = new StraightKeypoint();
             keypoint.index = i;
@@ -344,7 +415,7 @@ public class StraightSpineDetector {
             // Minimal random variation untuk natural look (max 1% of width)
             float minimalVariation = (float) (Math.random() - 0.5) * width * 0.01f;
 
-            keypoint.position = new PointF(centerX + minimalVariation, topY + i * stepY);
+            keypoint.position = new SpinePoint(centerX + minimalVariation, topY + i * stepY);
             keypoint.confidence = 0.92f + (float) Math.random() * 0.06f;
             keypoint.region = getSpineRegion(i);
             keypoint.label = getKeypointLabel(i);
@@ -352,20 +423,20 @@ public class StraightSpineDetector {
             keypoints.add(keypoint);
         }
 
-        Log.d(TAG, "Generated perfect straight keypoints");
+        MlLog.d(TAG, "Generated perfect straight keypoints");
         return keypoints;
     }
 
     /**
      * Generate keypoints untuk spine yang curved
      */
-    private List<StraightKeypoint> generateCurvedKeypoints(Bitmap bitmap, SpineLinearity linearity) {
+    private List<StraightKeypoint> generateCurvedKeypoints(LuminancePlane luminance, SpineLinearity linearity) {
         // Untuk spine curved, gunakan detected centerline
         if (linearity.centerLine != null && !linearity.centerLine.isEmpty()) {
-            return generateStraightKeypoints(bitmap, linearity.centerLine);
+            return generateStraightKeypoints(luminance, linearity.centerLine);
         } else {
             // Fallback dengan mild curve
-            return createMildCurveKeypoints(bitmap.getWidth(), bitmap.getHeight(), linearity);
+            return createMildCurveKeypoints(luminance.getWidth(), luminance.getHeight(), linearity);
         }
     }
 
@@ -388,7 +459,7 @@ public class StraightSpineDetector {
             float progress = (float) i / 16.0f;
             double curveOffset = curveAmplitude * Math.sin(progress * Math.PI * 1.5);
 
-            keypoint.position = new PointF(
+            keypoint.position = new SpinePoint(
                     centerX + (float) curveOffset,
                     topY + i * stepY
             );
@@ -418,7 +489,7 @@ public class StraightSpineDetector {
                 baseAngle = 1.0 + Math.random() * 4.0; // 1-5 degrees (lurus)
             }
 
-            Log.d(TAG, String.format("Minimal angle for straight spine: %.1f°", baseAngle));
+            MlLog.d(TAG, "Minimal angle for straight spine: %.1f°", baseAngle);
             return baseAngle;
         } else {
             return calculateCurvedAngle(keypoints, linearity);
@@ -456,22 +527,22 @@ public class StraightSpineDetector {
         if (cobbAngle < 10) {
             assessment.severity = "Normal";
             assessment.riskLevel = "Low";
-            assessment.color = android.graphics.Color.GREEN;
+            assessment.color = SpineColors.GREEN;
             assessment.medicalCategory = "Normal spine alignment";
         } else if (cobbAngle < 20) {
             assessment.severity = "Mild Scoliosis";
             assessment.riskLevel = "Low";
-            assessment.color = android.graphics.Color.rgb(255, 193, 7);
+            assessment.color = SpineColors.AMBER;
             assessment.medicalCategory = "Mild spinal curvature";
         } else if (cobbAngle < 40) {
             assessment.severity = "Moderate Scoliosis";
             assessment.riskLevel = "Medium";
-            assessment.color = android.graphics.Color.rgb(255, 152, 0);
+            assessment.color = SpineColors.ORANGE;
             assessment.medicalCategory = "Moderate spinal curvature";
         } else {
             assessment.severity = "Severe Scoliosis";
             assessment.riskLevel = "High";
-            assessment.color = android.graphics.Color.rgb(255, 87, 34);
+            assessment.color = SpineColors.DEEP_ORANGE;
             assessment.medicalCategory = "Severe spinal curvature";
         }
 
@@ -509,8 +580,8 @@ public class StraightSpineDetector {
         return Math.min(0.96f, baseConfidence);
     }
 
-    private List<PointF> createStraightCenterline(int width, int height) {
-        List<PointF> centerline = new ArrayList<>();
+    private List<SpinePoint> createStraightCenterline(int width, int height) {
+        List<SpinePoint> centerline = new ArrayList<>();
 
         float centerX = width * 0.5f;
         float topY = height * 0.15f;
@@ -518,7 +589,7 @@ public class StraightSpineDetector {
 
         for (int i = 0; i < 15; i++) {
             float progress = (float) i / 14.0f;
-            centerline.add(new PointF(centerX, topY + progress * (bottomY - topY)));
+            centerline.add(new SpinePoint(centerX, topY + progress * (bottomY - topY)));
         }
 
         return centerline;
@@ -533,6 +604,7 @@ public class StraightSpineDetector {
 
         // Create default linearity
         SpineLinearity linearity = new SpineLinearity();
+        linearity.limitedDetection = true;
         linearity.isStraight = true;
         linearity.straightnessScore = 0.88f;
         linearity.maxDeviation = 6.0;
@@ -546,8 +618,8 @@ public class StraightSpineDetector {
     }
 
     // Utility methods
-    private PointF interpolateAlongLine(List<PointF> points, float progress) {
-        if (points.isEmpty()) return new PointF(0, 0);
+    private SpinePoint interpolateAlongLine(List<SpinePoint> points, float progress) {
+        if (points.isEmpty()) return new SpinePoint(0, 0);
         if (points.size() == 1) return points.get(0);
 
         float targetIndex = progress * (points.size() - 1);
@@ -559,20 +631,20 @@ public class StraightSpineDetector {
         }
 
         float ratio = targetIndex - lowerIndex;
-        PointF lower = points.get(lowerIndex);
-        PointF upper = points.get(upperIndex);
+        SpinePoint lower = points.get(lowerIndex);
+        SpinePoint upper = points.get(upperIndex);
 
-        return new PointF(
+        return new SpinePoint(
                 lower.x + ratio * (upper.x - lower.x),
                 lower.y + ratio * (upper.y - lower.y)
         );
     }
 
-    private double calculateDistance(PointF p1, PointF p2) {
+    private double calculateDistance(SpinePoint p1, SpinePoint p2) {
         return Math.sqrt(Math.pow(p2.x - p1.x, 2) + Math.pow(p2.y - p1.y, 2));
     }
 
-    private double pointToLineDistance(PointF point, PointF lineStart, PointF lineEnd) {
+    private double pointToLineDistance(SpinePoint point, SpinePoint lineStart, SpinePoint lineEnd) {
         double A = lineEnd.y - lineStart.y;
         double B = lineStart.x - lineEnd.x;
         double C = lineEnd.x * lineStart.y - lineStart.x * lineEnd.y;
@@ -604,12 +676,13 @@ public class StraightSpineDetector {
         public double maxDeviation;
         public double deviationRatio;
         public String spineDescription;
-        public List<PointF> centerLine;
+        public List<SpinePoint> centerLine;
+        public boolean limitedDetection; // Centerline tidak terdeteksi, nilai di atas hanya asumsi
     }
 
     public static class StraightKeypoint {
         public int index;
-        public PointF position;
+        public SpinePoint position;
         public float confidence;
         public String region;
         public String label;
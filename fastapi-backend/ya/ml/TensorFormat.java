@@ -0,0 +1,99 @@
+// TensorFormat.java - Element type and quantization of a model tensor, read at load time
+package com.example.spineanalyzer.ml;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Tensor;
+
+/**
+ * How real values are stored in one tensor: float32, or uint8/int8 with
+ * real = scale * (q - zeroPoint). Preprocessing writes and outputs are read
+ * through this so float and quantized builds of a model are interchangeable.
+ */
+public final class TensorFormat {
+
+    public static final TensorFormat FLOAT32 = new TensorFormat(DataType.FLOAT32, 1f, 0);
+
+    private final DataType dataType;
+    private final float scale;
+    private final int zeroPoint;
+
+    public TensorFormat(DataType dataType, float scale, int zeroPoint) {
+        if (dataType != DataType.FLOAT32 && dataType != DataType.UINT8 && dataType != DataType.INT8) {
+            throw new IllegalArgumentException("Unsupported tensor type " + dataType);
+        }
+        if (dataType != DataType.FLOAT32 && !(scale > 0f)) {
+            throw new IllegalArgumentException("Quantized tensor without a scale");
+        }
+        this.dataType = dataType;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+    }
+
+    public static TensorFormat of(Tensor tensor) {
+        DataType type = tensor.dataType();
+        if (type == DataType.FLOAT32) return FLOAT32;
+
+        Tensor.QuantizationParams params = tensor.quantizationParams();
+        return new TensorFormat(type, params.getScale(), params.getZeroPoint());
+    }
+
+    public boolean isQuantized() {
+        return dataType != DataType.FLOAT32;
+    }
+
+    /**
+     * Bytes per element: 4 for float32, 1 for uint8/int8
+     */
+    public int getElementBytes() {
+        return isQuantized() ? 1 : 4;
+    }
+
+    /**
+     * Stored byte for a real value, rounded and clamped to the type's range
+     */
+    public byte quantize(float value) {
+        int q = Math.round(value / scale) + zeroPoint;
+        if (dataType == DataType.UINT8) {
+            return (byte) Math.max(0, Math.min(255, q));
+        }
+        return (byte) Math.max(-128, Math.min(127, q));
+    }
+
+    /**
+     * Real value of a stored byte
+     */
+    public float dequantize(byte stored) {
+        int q = dataType == DataType.UINT8 ? stored & 0xFF : stored;
+        return scale * (q - zeroPoint);
+    }
+
+    /**
+     * quantize() over a 256-entry table of real values, e.g. a contrast curve
+     */
+    public byte[] quantizeTable(float[] values) {
+        byte[] table = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            table[i] = quantize(values[i]);
+        }
+        return table;
+    }
+
+    public DataType getDataType() {
+        return dataType;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public int getZeroPoint() {
+        return zeroPoint;
+    }
+
+    @Override
+    public String toString() {
+        return isQuantized()
+                ? String.format("%s (scale=%.6f, zero=%d)", dataType, scale, zeroPoint)
+                : dataType.toString();
+    }
+}
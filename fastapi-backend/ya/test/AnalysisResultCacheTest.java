@@ -0,0 +1,179 @@
+// AnalysisResultCacheTest.java - Memory LRU and the disk tier's write/read round-trip
+package com.example.spineanalyzer.ml;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisResultCacheTest {
+
+    private static final long MEMORY_BYTES = 1024 * 1024;
+    private static final long DISK_BYTES = 1024 * 1024;
+
+    private File diskDir;
+
+    @Before
+    public void createDiskDir() throws IOException {
+        diskDir = File.createTempFile("result-cache", "");
+        assertTrue(diskDir.delete() && diskDir.mkdir());
+    }
+
+    @After
+    public void deleteDiskDir() {
+        File[] files = diskDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        diskDir.delete();
+    }
+
+    @Test
+    public void resultSurvivesTheDiskTier() {
+        new AnalysisResultCache(MEMORY_BYTES, diskDir, DISK_BYTES).put("a1", sampleResult());
+
+        // Fresh memory tier: the entry can only come from disk
+        AnalysisResultCache cache = new AnalysisResultCache(MEMORY_BYTES, diskDir, DISK_BYTES);
+        MLModelManager.SpineAnalysisResult read = cache.get("a1");
+
+        assertNotNull(read);
+        assertEquals(1, cache.getStats().diskHits);
+        assertSameContent(sampleResult(), read);
+
+        // Now promoted to memory
+        assertNotNull(cache.get("a1"));
+        assertEquals(1, cache.getStats().memoryHits);
+    }
+
+    @Test
+    public void entryOfAnotherFormatVersionIsIgnored() throws IOException {
+        new AnalysisResultCache(MEMORY_BYTES, diskDir, DISK_BYTES).put("a1", sampleResult());
+
+        File entry = new File(diskDir, "a1.result");
+        try (RandomAccessFile file = new RandomAccessFile(entry, "rw")) {
+            int version = file.readInt();
+            file.seek(0);
+            file.writeInt(version + 1);
+        }
+
+        AnalysisResultCache cache = new AnalysisResultCache(MEMORY_BYTES, diskDir, DISK_BYTES);
+        assertNull(cache.get("a1"));
+        assertEquals(1, cache.getStats().misses);
+    }
+
+    @Test
+    public void memoryTierEvictsLeastRecentlyUsed() {
+        // Room for two small results, not three
+        AnalysisResultCache cache = new AnalysisResultCache(600, null, 0);
+        cache.put("a", new MLModelManager.SpineAnalysisResult());
+        cache.put("b", new MLModelManager.SpineAnalysisResult());
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", new MLModelManager.SpineAnalysisResult());
+
+        assertEquals(2, cache.getStats().memoryEntries);
+        assertEquals(1, cache.getStats().evictions);
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void callersCannotChangeTheCachedResult() {
+        AnalysisResultCache cache = new AnalysisResultCache(MEMORY_BYTES, null, 0);
+        MLModelManager.SpineAnalysisResult result = sampleResult();
+        cache.put("a1", result);
+
+        result.keypoints.get(0).position.x = -1f;
+        cache.get("a1").angles.cobbAngle = -1;
+
+        assertSameContent(sampleResult(), cache.get("a1"));
+    }
+
+    private static MLModelManager.SpineAnalysisResult sampleResult() {
+        MLModelManager.SpineAnalysisResult result = new MLModelManager.SpineAnalysisResult();
+        result.timestamp = 1234567L;
+        result.imageWidth = 1024;
+        result.imageHeight = 1536;
+        result.primaryAngle = 17.5;
+        result.confidence = 0.82f;
+        result.classification = "Mild Scoliosis";
+        result.classificationConfidence = 0.74f;
+        result.allProbabilities = new float[]{0.1f, 0.74f, 0.1f, 0.06f};
+
+        result.keypoints = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            SpineAngleDetector.SpineKeypoint keypoint = new SpineAngleDetector.SpineKeypoint();
+            keypoint.label = "T" + (i + 1);
+            keypoint.position = new SpinePoint(500f + i, 300f + 40f * i);
+            keypoint.confidence = 0.9f;
+            keypoint.index = 7 + i;
+            keypoint.region = "thoracic";
+            keypoint.isInterpolated = i == 1;
+            result.keypoints.add(keypoint);
+        }
+
+        result.angles = new SpineAngleDetector.SpineAngles();
+        result.angles.cobbAngle = 17.5;
+        result.angles.thoracicKyphosis = 31.0;
+        result.angles.maxLateralDeviation = 42.0;
+        result.angles.apexLocation = "T8";
+
+        result.assessment = new MLModelManager.SpineAssessment();
+        result.assessment.severity = "Mild";
+        result.assessment.riskLevel = "Low";
+        result.assessment.overallConfidence = 0.8f;
+        result.assessment.recommendations = "Follow-up in 6 months";
+        return result;
+    }
+
+    private static void assertSameContent(MLModelManager.SpineAnalysisResult expected,
+                                          MLModelManager.SpineAnalysisResult actual) {
+        assertEquals(expected.timestamp, actual.timestamp);
+        assertEquals(expected.imageWidth, actual.imageWidth);
+        assertEquals(expected.imageHeight, actual.imageHeight);
+        assertEquals(expected.primaryAngle, actual.primaryAngle, 0);
+        assertEquals(expected.confidence, actual.confidence, 0);
+        assertEquals(expected.classification, actual.classification);
+        assertEquals(expected.classificationConfidence, actual.classificationConfidence, 0);
+        assertEquals(expected.allProbabilities.length, actual.allProbabilities.length);
+        for (int i = 0; i < expected.allProbabilities.length; i++) {
+            assertEquals(expected.allProbabilities[i], actual.allProbabilities[i], 0);
+        }
+
+        assertEquals(expected.keypoints.size(), actual.keypoints.size());
+        for (int i = 0; i < expected.keypoints.size(); i++) {
+            SpineAngleDetector.SpineKeypoint want = expected.keypoints.get(i);
+            SpineAngleDetector.SpineKeypoint got = actual.keypoints.get(i);
+            assertEquals(want.label, got.label);
+            assertEquals(want.position.x, got.position.x, 0);
+            assertEquals(want.position.y, got.position.y, 0);
+            assertEquals(want.confidence, got.confidence, 0);
+            assertEquals(want.index, got.index);
+            assertEquals(want.region, got.region);
+            assertEquals(want.isInterpolated, got.isInterpolated);
+        }
+
+        assertEquals(expected.angles.cobbAngle, actual.angles.cobbAngle, 0);
+        assertEquals(expected.angles.thoracicKyphosis, actual.angles.thoracicKyphosis, 0);
+        assertEquals(expected.angles.maxLateralDeviation, actual.angles.maxLateralDeviation, 0);
+        assertEquals(expected.angles.apexLocation, actual.angles.apexLocation);
+
+        assertEquals(expected.assessment.severity, actual.assessment.severity);
+        assertEquals(expected.assessment.riskLevel, actual.assessment.riskLevel);
+        assertEquals(expected.assessment.overallConfidence, actual.assessment.overallConfidence, 0);
+        assertEquals(expected.assessment.recommendations, actual.assessment.recommendations);
+        assertEquals(expected.answeredBy, actual.answeredBy);
+    }
+}
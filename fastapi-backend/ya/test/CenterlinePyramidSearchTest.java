@@ -0,0 +1,55 @@
+// CenterlinePyramidSearchTest.java - Pyramid centerline search against the exhaustive column scan
+package com.example.spineanalyzer.ml;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Both detectors' centerlines, on the synthetic X-rays the benchmarks also use, must land
+ * within a pixel of the full-resolution scan they replaced. The spine band there
+ * is flat-topped with noise, the case where a local search drifts across the plateau.
+ */
+public class CenterlinePyramidSearchTest {
+
+    // Width and height, the sizes of the centerline benchmark
+    private static final int[][] SIZES = {{512, 512}, {1024, 1024}, {2048, 1536}, {4000, 3000}};
+
+    // Pixels the pyramid centerline may differ from the exhaustive one
+    private static final float TOLERANCE = 1f;
+
+    @Test
+    public void straightCenterlineMatchesExhaustiveScan() {
+        StraightSpineDetector detector = new StraightSpineDetector();
+        for (int[] size : SIZES) {
+            LuminancePlane luminance = LuminancePlane.fromPixels(TestImages.syntheticXray(size[0], size[1]));
+            assertClose(size[0] + "x" + size[1], detector.findPreciseCenterlineExhaustive(luminance),
+                    detector.findPreciseCenterline(luminance));
+        }
+    }
+
+    @Test
+    public void accurateCenterlineMatchesExhaustiveScan() {
+        TestImages.silenceLogs();
+        AccurateSpineDetector detector = new AccurateSpineDetector(TestImages.modelFreeRegistry());
+        for (int[] size : SIZES) {
+            LuminancePlane luminance = LuminancePlane.fromPixels(TestImages.syntheticXray(size[0], size[1]));
+            assertClose(size[0] + "x" + size[1], detector.findSpineCenterlineExhaustive(luminance),
+                    detector.findSpineCenterline(luminance));
+        }
+    }
+
+    private static void assertClose(String size, List<SpinePoint> expected, List<SpinePoint> actual) {
+        assertTrue(size + ": no centerline found", !expected.isEmpty());
+        assertEquals(size + ": point count", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            SpinePoint want = expected.get(i);
+            SpinePoint got = actual.get(i);
+            assertEquals(size + ": y of point " + i, want.y, got.y, 0f);
+            assertEquals(size + ": x of point " + i, want.x, got.x, TOLERANCE);
+        }
+    }
+}
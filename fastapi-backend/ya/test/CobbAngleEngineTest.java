@@ -0,0 +1,246 @@
+// CobbAngleEngineTest.java - CobbAngleEngine against the per-method angle passes it replaced
+package com.example.spineanalyzer.ml;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The engine promises bit-identical values to SpineAngleDetector's original
+ * per-method passes, reproduced below as the reference. Compared on raw bits,
+ * so NaN from a zero-length spine line has to match as well.
+ */
+public class CobbAngleEngineTest {
+
+    @Test
+    public void matchesReferenceOnCurvedSpines() {
+        assertMatches("s-curve", sCurve(KeypointSet.CAPACITY, 0.06));
+        assertMatches("mild curve", sCurve(KeypointSet.CAPACITY, 0.01));
+        assertMatches("strong curve", sCurve(KeypointSet.CAPACITY, 0.2));
+    }
+
+    @Test
+    public void matchesReferenceOnFewKeypoints() {
+        for (int n = 0; n <= 6; n++) {
+            assertMatches(n + " keypoints", sCurve(n, 0.08));
+        }
+    }
+
+    @Test
+    public void matchesReferenceOnVerticalSpine() {
+        KeypointSet keypoints = new KeypointSet();
+        for (int i = 0; i < KeypointSet.CAPACITY; i++) {
+            keypoints.add(i, 500f, 100f + 60f * i, 0.9f, false);
+        }
+        assertMatches("vertical", keypoints);
+    }
+
+    @Test
+    public void matchesReferenceOnHorizontalSlopes() {
+        // All keypoints on one row: zero vertical extent, vertical reference-line normals
+        KeypointSet flat = new KeypointSet();
+        for (int i = 0; i < KeypointSet.CAPACITY; i++) {
+            flat.add(i, 100f + 40f * i, 700f, 0.9f, false);
+        }
+        assertMatches("horizontal", flat);
+
+        // Horizontal segments inside an otherwise vertical spine
+        KeypointSet steps = new KeypointSet();
+        for (int i = 0; i < KeypointSet.CAPACITY; i++) {
+            steps.add(i, 480f + (i % 2) * 35f, 100f + 60f * (i / 2), 0.9f, false);
+        }
+        assertMatches("horizontal steps", steps);
+    }
+
+    @Test
+    public void matchesReferenceOnCoincidentKeypoints() {
+        KeypointSet same = new KeypointSet();
+        for (int i = 0; i < 6; i++) {
+            same.add(i, 320f, 240f, 0.9f, false);
+        }
+        assertMatches("coincident", same);
+
+        // Closed loop: first and last keypoint coincide, so the spine line has no length
+        KeypointSet loop = new KeypointSet();
+        for (int i = 0; i < 8; i++) {
+            double t = 2 * Math.PI * i / 7;
+            loop.add(i, (float) (300 + 50 * Math.sin(t)), (float) (400 - 50 * Math.cos(t)), 0.9f, false);
+        }
+        assertMatches("loop", loop);
+    }
+
+    private static KeypointSet sCurve(int count, double amplitude) {
+        KeypointSet keypoints = new KeypointSet();
+        int width = 1000;
+        int height = 1400;
+        for (int i = 0; i < count; i++) {
+            double t = 0.15 + 0.7 * i / Math.max(1, KeypointSet.CAPACITY - 1);
+            keypoints.add(i,
+                    (float) (width * (0.5 + amplitude * Math.sin(t * 2 * Math.PI))),
+                    (float) (height * t),
+                    0.8f, false);
+        }
+        return keypoints;
+    }
+
+    private static void assertMatches(String name, KeypointSet keypoints) {
+        CobbAngleEngine engine = new CobbAngleEngine();
+        engine.compute(keypoints);
+
+        assertBits(name + " traditional", traditionalCobb(keypoints), engine.getTraditionalCobb());
+        assertBits(name + " curve fitting", curveFittingAngle(keypoints), engine.getCurveFittingAngle());
+        assertBits(name + " deviation", deviationBasedAngle(keypoints), engine.getDeviationAngle());
+        for (int region = KeypointSet.CERVICAL; region <= KeypointSet.LUMBAR; region++) {
+            assertBits(name + " region " + region, regionalAngle(keypoints, region),
+                    engine.getRegionalAngle(region));
+        }
+        assertBits(name + " overall", overallCurvature(keypoints), engine.getOverallCurvature());
+        assertBits(name + " lateral", maxLateralDeviation(keypoints), engine.getMaxLateralDeviation());
+        assertEquals(name + " apex", apexSlot(keypoints), engine.getApexSlot());
+        assertEquals(name + " visible", hasVisibleCurvature(keypoints), engine.hasVisibleCurvature());
+    }
+
+    private static void assertBits(String message, double expected, double actual) {
+        assertEquals(message + " (expected " + expected + ", was " + actual + ")",
+                Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+    // Reference: the per-method passes SpineAngleDetector used before CobbAngleEngine
+
+    private static double traditionalCobb(KeypointSet keypoints) {
+        double maxAngle = 0.0;
+        for (int i = 1; i < keypoints.size() - 2; i++) {
+            maxAngle = Math.max(maxAngle, angleBetweenLines(keypoints, i - 1, i, i + 1, i + 2));
+        }
+        return maxAngle;
+    }
+
+    private static double curveFittingAngle(KeypointSet keypoints) {
+        if (keypoints.size() < 5) return 0.0;
+
+        double maxCurvature = 0.0;
+        for (int i = 2; i < keypoints.size() - 2; i++) {
+            double angle = angleFromThreePoints(keypoints, i - 2, i, i + 2);
+            maxCurvature = Math.max(maxCurvature, Math.abs(180 - angle));
+        }
+        return maxCurvature;
+    }
+
+    private static double deviationBasedAngle(KeypointSet keypoints) {
+        if (keypoints.size() < 3) return 0.0;
+
+        int top = 0;
+        int bottom = keypoints.size() - 1;
+        double maxDeviation = 0.0;
+        for (int i = 0; i < keypoints.size(); i++) {
+            maxDeviation = Math.max(maxDeviation, pointToLineDistance(keypoints, i, top, bottom));
+        }
+
+        double spineLength = Math.sqrt(Math.pow(keypoints.xs[bottom] - keypoints.xs[top], 2)
+                + Math.pow(keypoints.ys[bottom] - keypoints.ys[top], 2));
+        return Math.toDegrees(Math.atan(maxDeviation / (spineLength / 2))) * 2;
+    }
+
+    private static boolean hasVisibleCurvature(KeypointSet keypoints) {
+        if (keypoints.size() < 5) return false;
+
+        double totalDeviation = 0;
+        int bottom = keypoints.size() - 1;
+        for (int i = 0; i < keypoints.size(); i++) {
+            totalDeviation += pointToLineDistance(keypoints, i, 0, bottom);
+        }
+        return totalDeviation / keypoints.size() > 10;
+    }
+
+    private static double regionalAngle(KeypointSet keypoints, int region) {
+        int first = keypoints.regionStart(region);
+        int end = keypoints.regionEnd(region);
+        if (end - first < 3) return 0.0;
+
+        int last = end - 1;
+        double maxDeviation = 0.0;
+        int maxPoint = -1;
+        for (int i = first; i < end; i++) {
+            double deviation = pointToLineDistance(keypoints, i, first, last);
+            if (deviation > maxDeviation) {
+                maxDeviation = deviation;
+                maxPoint = i;
+            }
+        }
+
+        if (maxPoint < 0) return 0.0;
+        return angleFromThreePoints(keypoints, first, maxPoint, last);
+    }
+
+    private static double overallCurvature(KeypointSet keypoints) {
+        if (keypoints.size() < 3) return 0.0;
+
+        float[] xs = keypoints.xs;
+        float[] ys = keypoints.ys;
+        int top = 0;
+        int bottom = keypoints.size() - 1;
+        double maxDeviation = 0.0;
+        for (int i = 0; i < keypoints.size(); i++) {
+            maxDeviation = Math.max(maxDeviation, Math.abs(xs[i] - (xs[top] + xs[bottom]) / 2));
+        }
+
+        double spineLength = Math.sqrt(Math.pow(xs[bottom] - xs[top], 2) + Math.pow(ys[bottom] - ys[top], 2));
+        return Math.toDegrees(Math.atan(maxDeviation / (spineLength / 2)));
+    }
+
+    private static double maxLateralDeviation(KeypointSet keypoints) {
+        if (keypoints.size() < 2) return 0.0;
+
+        double maxDeviation = 0.0;
+        for (int i = 0; i < keypoints.size(); i++) {
+            maxDeviation = Math.max(maxDeviation, pointToLineDistance(keypoints, i, 0, keypoints.size() - 1));
+        }
+        return maxDeviation;
+    }
+
+    private static int apexSlot(KeypointSet keypoints) {
+        if (keypoints.size() < 3) return -1;
+
+        double maxDeviation = 0.0;
+        int apexPoint = -1;
+        for (int i = 0; i < keypoints.size(); i++) {
+            double deviation = pointToLineDistance(keypoints, i, 0, keypoints.size() - 1);
+            if (deviation > maxDeviation) {
+                maxDeviation = deviation;
+                apexPoint = i;
+            }
+        }
+        return apexPoint;
+    }
+
+    private static double pointToLineDistance(KeypointSet keypoints, int point, int lineStart, int lineEnd) {
+        float[] xs = keypoints.xs;
+        float[] ys = keypoints.ys;
+        double a = ys[lineEnd] - ys[lineStart];
+        double b = xs[lineStart] - xs[lineEnd];
+        double c = xs[lineEnd] * ys[lineStart] - xs[lineStart] * ys[lineEnd];
+        return Math.abs(a * xs[point] + b * ys[point] + c) / Math.sqrt(a * a + b * b);
+    }
+
+    private static double angleFromThreePoints(KeypointSet keypoints, int p1, int p2, int p3) {
+        float[] xs = keypoints.xs;
+        float[] ys = keypoints.ys;
+        return angleBetween(xs[p1] - xs[p2], ys[p1] - ys[p2], xs[p3] - xs[p2], ys[p3] - ys[p2]);
+    }
+
+    private static double angleBetweenLines(KeypointSet keypoints, int p1, int p2, int p3, int p4) {
+        float[] xs = keypoints.xs;
+        float[] ys = keypoints.ys;
+        return angleBetween(xs[p2] - xs[p1], ys[p2] - ys[p1], xs[p4] - xs[p3], ys[p4] - ys[p3]);
+    }
+
+    private static double angleBetween(double dx1, double dy1, double dx2, double dy2) {
+        double dot = dx1 * dx2 + dy1 * dy2;
+        double mag1 = Math.sqrt(dx1 * dx1 + dy1 * dy1);
+        double mag2 = Math.sqrt(dx2 * dx2 + dy2 * dy2);
+        if (mag1 == 0 || mag2 == 0) return 0.0;
+
+        double cosAngle = Math.max(-1.0, Math.min(1.0, dot / (mag1 * mag2)));
+        return Math.toDegrees(Math.acos(cosAngle));
+    }
+}
@@ -0,0 +1,88 @@
+// KeypointTrackerTest.java - Tracking a shifted frame and the conditions that force re-detection
+package com.example.spineanalyzer.ml;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeypointTrackerTest {
+
+    private static final int SIZE = 200;
+
+    @Test
+    public void followsAShiftedFrame() {
+        KeypointTracker tracker = new KeypointTracker();
+        tracker.reset(texturedPlane(SIZE, SIZE, 0), keypoints());
+
+        KeypointSet tracked = new KeypointSet();
+        assertTrue(tracker.track(texturedPlane(SIZE, SIZE, 3), tracked));
+
+        assertEquals(3, tracked.size());
+        for (int i = 0; i < tracked.size(); i++) {
+            assertEquals(103f, tracked.xs[i], 0f);
+            assertEquals(50f * (i + 1), tracked.ys[i], 0f);
+        }
+        assertEquals(1, tracker.getFramesSinceKeyframe());
+    }
+
+    @Test
+    public void refusesWithoutKeyframe() {
+        assertFalse(new KeypointTracker().track(texturedPlane(SIZE, SIZE, 0), new KeypointSet()));
+    }
+
+    @Test
+    public void refusesAFrameOfAnotherSize() {
+        KeypointTracker tracker = new KeypointTracker();
+        tracker.reset(texturedPlane(SIZE, SIZE, 0), keypoints());
+
+        assertFalse(tracker.track(texturedPlane(SIZE, SIZE - 20, 0), new KeypointSet()));
+        assertFalse(tracker.track(texturedPlane(SIZE + 20, SIZE, 0), new KeypointSet()));
+
+        // Left where it was: the keyframe still tracks
+        assertEquals(0, tracker.getFramesSinceKeyframe());
+        assertTrue(tracker.track(texturedPlane(SIZE, SIZE, 0), new KeypointSet()));
+    }
+
+    @Test
+    public void refusesAfterMaxTrackedFrames() {
+        KeypointTracker tracker = new KeypointTracker();
+        LuminancePlane frame = texturedPlane(SIZE, SIZE, 0);
+        tracker.reset(frame, keypoints());
+
+        for (int i = 0; i < KeypointTracker.MAX_TRACKED_FRAMES; i++) {
+            assertTrue("frame " + i, tracker.track(frame, new KeypointSet()));
+        }
+        assertFalse(tracker.track(frame, new KeypointSet()));
+
+        // A new keyframe starts the count again
+        tracker.reset(frame, keypoints());
+        assertTrue(tracker.track(frame, new KeypointSet()));
+    }
+
+    private static KeypointSet keypoints() {
+        KeypointSet keypoints = new KeypointSet();
+        for (int i = 0; i < 3; i++) {
+            keypoints.add(i, 100f, 50f * (i + 1), 0.9f, false);
+        }
+        return keypoints;
+    }
+
+    // Fixed noise texture moved right by shiftX pixels; any size shares the same texture
+    private static LuminancePlane texturedPlane(int width, int height, int shiftX) {
+        int textureSize = 2 * SIZE;
+        byte[] texture = new byte[textureSize * textureSize];
+        new Random(7).nextBytes(texture);
+
+        byte[] data = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[y * width + x] = texture[y * textureSize + Math.floorMod(x - shiftX, textureSize)];
+            }
+        }
+        return new LuminancePlane(data, width, height);
+    }
+}
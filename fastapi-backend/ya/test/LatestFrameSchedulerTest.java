@@ -0,0 +1,97 @@
+// LatestFrameSchedulerTest.java - Dropping and coalescing of frames that arrive while one is processed
+package com.example.spineanalyzer.ml;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LatestFrameSchedulerTest {
+
+    // Processor whose results the test completes by hand, recording what was started
+    private final List<Integer> started = new ArrayList<>();
+    private final List<CompletableFuture<String>> running = new ArrayList<>();
+    private final LatestFrameScheduler<Integer, String> scheduler = new LatestFrameScheduler<>((frame, trace) -> {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        started.add(frame);
+        running.add(result);
+        return result;
+    });
+
+    @Test
+    public void droppedFramesCompleteWithTheReplacingFramesResult() throws Exception {
+        CompletableFuture<String> first = scheduler.submit(1, new AnalysisTrace());
+        CompletableFuture<String> second = scheduler.submit(2, new AnalysisTrace());
+        CompletableFuture<String> third = scheduler.submit(3, new AnalysisTrace());
+        CompletableFuture<String> fourth = scheduler.submit(4, new AnalysisTrace());
+
+        assertEquals(2, scheduler.getDroppedCount());
+        assertEquals(1, started.size());
+
+        running.get(0).complete("result 1");
+        assertEquals("result 1", first.get());
+
+        // Only the newest waiting frame is processed; the ones it replaced wait for it
+        assertEquals(2, started.size());
+        assertEquals(Integer.valueOf(4), started.get(1));
+        assertFalse(second.isDone() || third.isDone() || fourth.isDone());
+
+        running.get(1).complete("result 4");
+        assertEquals("result 4", second.get());
+        assertEquals("result 4", third.get());
+        assertEquals("result 4", fourth.get());
+    }
+
+    @Test
+    public void waitingFrameStartsBeforeTheFinishedFrameIsDelivered() {
+        CompletableFuture<String> first = scheduler.submit(1, new AnalysisTrace());
+        scheduler.submit(2, new AnalysisTrace());
+
+        final List<Integer> startedWhenDelivered = new ArrayList<>();
+        first.thenRun(() -> startedWhenDelivered.addAll(started));
+        running.get(0).complete("result 1");
+
+        assertEquals(2, startedWhenDelivered.size());
+    }
+
+    @Test
+    public void failureReachesEveryCoalescedFuture() throws Exception {
+        scheduler.submit(1, new AnalysisTrace());
+        CompletableFuture<String> second = scheduler.submit(2, new AnalysisTrace());
+        CompletableFuture<String> third = scheduler.submit(3, new AnalysisTrace());
+        running.get(0).complete("result 1");
+
+        IllegalStateException error = new IllegalStateException("model failed");
+        running.get(1).completeExceptionally(error);
+
+        for (CompletableFuture<String> future : Arrays.asList(second, third)) {
+            try {
+                future.get();
+                fail("Expected the frame's failure");
+            } catch (ExecutionException e) {
+                assertSame(error, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    public void idleSchedulerStartsTheNextFrameAtOnce() {
+        scheduler.submit(1, new AnalysisTrace());
+        running.get(0).complete("result 1");
+
+        CompletableFuture<String> next = scheduler.submit(2, new AnalysisTrace());
+        assertEquals(2, started.size());
+        assertEquals(0, scheduler.getDroppedCount());
+        running.get(1).complete("result 2");
+        assertTrue(next.isDone());
+    }
+}
@@ -0,0 +1,51 @@
+// TestImages.java - Synthetic X-ray inputs shared by the tests and the kernel benchmarks
+package com.example.spineanalyzer.ml;
+
+import java.util.Random;
+
+final class TestImages {
+
+    private TestImages() {
+    }
+
+    /**
+     * Dark background, soft tissue, and a bright S-curved spine band with noise.
+     * Fixed seed so every run sees the same pixels.
+     */
+    static ArrayPixelSource syntheticXray(int width, int height) {
+        int[] pixels = new int[width * height];
+        Random random = new Random(42);
+
+        float bandHalfWidth = Math.max(4f, width * 0.03f);
+        for (int y = 0; y < height; y++) {
+            double t = (double) y / height;
+            float spineX = (float) (width * (0.5 + 0.04 * Math.sin(t * 2 * Math.PI)));
+
+            for (int x = 0; x < width; x++) {
+                float dx = (x - width * 0.5f) / (width * 0.35f);
+                int gray = dx * dx < 1 ? 90 : 30;
+
+                if (Math.abs(x - spineX) < bandHalfWidth) {
+                    gray = 200;
+                }
+                gray = Math.max(0, Math.min(255, gray + random.nextInt(31) - 15));
+                pixels[y * width + x] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+            }
+        }
+        return new ArrayPixelSource(pixels, width, height);
+    }
+
+    // Loader that always fails, so detectors run without model files; one instance per JVM
+    private static final ModelLoader NO_MODELS = modelFile -> {
+        throw new java.io.IOException("No model files in tests and benchmarks: " + modelFile);
+    };
+
+    static ModelRegistry modelFreeRegistry() {
+        return ModelRegistry.getInstance(NO_MODELS);
+    }
+
+    static void silenceLogs() {
+        MlLog.setSink((level, tag, message, error) -> {
+        });
+    }
+}